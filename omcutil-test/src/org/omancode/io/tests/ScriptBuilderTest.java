@@ -0,0 +1,70 @@
+package org.omancode.io.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.FunctionCallBuilder;
+import org.omancode.util.io.Output;
+import org.omancode.util.io.ScriptBuilder;
+
+public class ScriptBuilderTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testChunks() throws Exception {
+		final List<String> printed = new ArrayList<String>();
+		Output output = new Output() {
+			public void print(String message) {
+				printed.add(message);
+			}
+
+			public void println(String message) {
+				printed.add(message + "\n");
+			}
+		};
+
+		ScriptBuilder script = new ScriptBuilder(output, 20);
+		FunctionCallBuilder call = new FunctionCallBuilder();
+		for (int i = 0; i < 10; i++) {
+			script.add(call.start("f").arg(i).end());
+		}
+		assertEquals(2, printed.size());
+		for (String chunk : printed) {
+			// whole commands only
+			assertEquals('\n', chunk.charAt(chunk.length() - 1));
+		}
+		script.add("x <- \"\u00e9\"");
+		script.flush();
+
+		StringBuilder all = new StringBuilder();
+		for (String chunk : printed) {
+			all.append(chunk);
+		}
+		assertEquals(11, script.getCommandCount());
+		assertEquals(all.length(), script.getCharCount());
+		assertEquals(all.toString().getBytes("UTF-8").length, script
+				.getByteCount());
+		assertEquals(0, script.getPendingCharCount());
+		assertEquals("f(0)\nf(1)\nf(2)\nf(3)\n", printed.get(0));
+	}
+
+	@Test
+	public void testWriter() throws Exception {
+		StringWriter writer = new StringWriter();
+		ScriptBuilder script = new ScriptBuilder(writer);
+		script.add("a").add("b");
+		assertEquals("", writer.toString());
+		script.close();
+		assertEquals("a\nb\n", writer.toString());
+		assertEquals(1, script.getChunkCount());
+	}
+
+}
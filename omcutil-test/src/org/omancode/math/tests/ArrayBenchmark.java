@@ -0,0 +1,237 @@
+package org.omancode.math.tests;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.omancode.math.ArrayMath;
+import org.omancode.util.ArrayUtil;
+import org.omancode.util.ExecutionTimer;
+
+/**
+ * Timings of the array routines against naive loops. Not a unit test, run
+ * as an application with the names of the benchmarks to run, or none to
+ * run them all, eg:
+ *
+ * <pre>
+ * java org.omancode.math.tests.ArrayBenchmark multiply sum
+ * </pre>
+ *
+ * Each benchmark is repeated so the later runs show times after JIT
+ * compilation.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class ArrayBenchmark {
+
+	private static final int RUNS = 3;
+
+	/**
+	 * Matrix size of the multiply benchmarks.
+	 */
+	private static final int N = 1024;
+
+	/**
+	 * Matrix vector products per timing.
+	 */
+	private static final int VECTOR_REPEATS = 200;
+
+	/**
+	 * Array length of the sum benchmarks.
+	 */
+	private static final int SUM_LENGTH = 1 << 22;
+
+	/**
+	 * Sums per timing.
+	 */
+	private static final int SUM_REPEATS = 20;
+
+	/**
+	 * Accumulates results so the timed work isn't optimised away.
+	 */
+	private static double sink;
+
+	private ArrayBenchmark() {
+		// run from main
+	}
+
+	/**
+	 * Run benchmarks.
+	 *
+	 * @param args
+	 *            names of the benchmarks to run, or none to run all
+	 */
+	public static void main(String[] args) {
+		List<String> names = Arrays.asList(args);
+		if (names.isEmpty() || names.contains("multiply")) {
+			benchmarkMultiply();
+		}
+		if (names.isEmpty() || names.contains("sum")) {
+			benchmarkSum();
+		}
+		System.out.println("(" + sink + ")");
+	}
+
+	private static double[][] random(Random random, int rows, int cols) {
+		double[][] matrix = new double[rows][cols];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				matrix[r][c] = random.nextDouble() - 0.5;
+			}
+		}
+		return matrix;
+	}
+
+	private static double[][] naiveMultiply(double[][] a, double[][] b) {
+		double[][] c = new double[a.length][b[0].length];
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < b[0].length; j++) {
+				double sum = 0;
+				for (int k = 0; k < b.length; k++) {
+					sum += a[i][k] * b[k][j];
+				}
+				c[i][j] = sum;
+			}
+		}
+		return c;
+	}
+
+	private static double[][] transposedMultiply(double[][] a, double[][] b) {
+		double[][] bt = ArrayUtil.transpose(b);
+		double[][] c = new double[a.length][bt.length];
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < bt.length; j++) {
+				double sum = 0;
+				for (int k = 0; k < bt[j].length; k++) {
+					sum += a[i][k] * bt[j][k];
+				}
+				c[i][j] = sum;
+			}
+		}
+		return c;
+	}
+
+	private static double[] naiveMultiply(double[][] a, double[] x) {
+		double[] y = new double[a.length];
+		for (int i = 0; i < a.length; i++) {
+			double sum = 0;
+			for (int k = 0; k < x.length; k++) {
+				sum += a[i][k] * x[k];
+			}
+			y[i] = sum;
+		}
+		return y;
+	}
+
+	/**
+	 * Time {@link ArrayMath#multiplyMatrix(double[][], double[][])} and
+	 * {@link ArrayMath#multiplyVector(double[][], double[])} against naive
+	 * loops on {@value #N} x {@value #N} matrices.
+	 */
+	private static void benchmarkMultiply() {
+		Random random = new Random(1);
+		double[][] a = random(random, N, N);
+		double[][] b = random(random, N, N);
+		double[] x = random(random, 1, N)[0];
+
+		ExecutionTimer timer = new ExecutionTimer();
+		for (int run = 0; run < RUNS; run++) {
+			timer.start();
+			sink += naiveMultiply(a, b)[0][0];
+			timer.stop();
+			long naive = timer.duration();
+
+			timer.start();
+			sink += transposedMultiply(a, b)[0][0];
+			timer.stop();
+			long transposed = timer.duration();
+
+			timer.start();
+			sink += ArrayMath.multiplyMatrix(a, b)[0][0];
+			timer.stop();
+			long blocked = timer.duration();
+
+			System.out.println(N + "x" + N + " multiply ms: naive " + naive
+					+ ", transposed " + transposed + ", multiplyMatrix "
+					+ blocked);
+		}
+
+		for (int run = 0; run < RUNS; run++) {
+			timer.start();
+			for (int i = 0; i < VECTOR_REPEATS; i++) {
+				sink += naiveMultiply(a, x)[0];
+			}
+			timer.stop();
+			long naive = timer.duration();
+
+			timer.start();
+			for (int i = 0; i < VECTOR_REPEATS; i++) {
+				sink += ArrayMath.multiplyVector(a, x)[0];
+			}
+			timer.stop();
+			long parallel = timer.duration();
+
+			System.out.println(N + "x" + N + " vector multiply ms, "
+					+ VECTOR_REPEATS + " times: naive " + naive
+					+ ", multiplyVector " + parallel);
+		}
+	}
+
+	/**
+	 * Time the compensated and pairwise sums of {@link ArrayUtil}, and their
+	 * parallel versions, against {@link ArrayUtil#sum(double[])}.
+	 */
+	private static void benchmarkSum() {
+		Random random = new Random(1);
+		double[] array = new double[SUM_LENGTH];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = random.nextDouble();
+		}
+
+		ExecutionTimer timer = new ExecutionTimer();
+		for (int run = 0; run < RUNS; run++) {
+			timer.start();
+			for (int i = 0; i < SUM_REPEATS; i++) {
+				sink += ArrayUtil.sum(array);
+			}
+			timer.stop();
+			long naive = timer.duration();
+
+			timer.start();
+			for (int i = 0; i < SUM_REPEATS; i++) {
+				sink += ArrayUtil.sumCompensated(array);
+			}
+			timer.stop();
+			long compensated = timer.duration();
+
+			timer.start();
+			for (int i = 0; i < SUM_REPEATS; i++) {
+				sink += ArrayUtil.sumPairwise(array);
+			}
+			timer.stop();
+			long pairwise = timer.duration();
+
+			timer.start();
+			for (int i = 0; i < SUM_REPEATS; i++) {
+				sink += ArrayUtil.sumCompensatedParallel(array);
+			}
+			timer.stop();
+			long compensatedParallel = timer.duration();
+
+			timer.start();
+			for (int i = 0; i < SUM_REPEATS; i++) {
+				sink += ArrayUtil.sumPairwiseParallel(array);
+			}
+			timer.stop();
+			long pairwiseParallel = timer.duration();
+
+			System.out.println(SUM_LENGTH + " element sum ms, " + SUM_REPEATS
+					+ " times: sum " + naive + ", sumCompensated "
+					+ compensated + ", sumPairwise " + pairwise
+					+ ", sumCompensatedParallel " + compensatedParallel
+					+ ", sumPairwiseParallel " + pairwiseParallel);
+		}
+	}
+
+}
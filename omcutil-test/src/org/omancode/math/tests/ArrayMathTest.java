@@ -0,0 +1,101 @@
+package org.omancode.math.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.math.ArrayMath;
+
+public class ArrayMathTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	private static double[][] random(Random random, int rows, int cols) {
+		double[][] matrix = new double[rows][cols];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				matrix[r][c] = random.nextDouble() - 0.5;
+			}
+		}
+		return matrix;
+	}
+
+	private static double[][] naiveMultiply(double[][] a, double[][] b) {
+		double[][] c = new double[a.length][b[0].length];
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < b[0].length; j++) {
+				double sum = 0;
+				for (int k = 0; k < b.length; k++) {
+					sum += a[i][k] * b[k][j];
+				}
+				c[i][j] = sum;
+			}
+		}
+		return c;
+	}
+
+	@Test
+	public void testElementWise() {
+		double[] x = new double[100000];
+		double[] y = new double[x.length];
+		double[] z = new double[x.length];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = i;
+			y[i] = 1;
+		}
+
+		ArrayMath.axpy(2, x, y);
+		ArrayMath.fma(x, y, z);
+		ArrayMath.scale(0.5, z);
+		assertEquals(1 + 2.0 * 1234, y[1234], 0);
+		assertEquals(1234 * (1 + 2.0 * 1234) / 2, z[1234], 0);
+
+		double[][] rows = new double[][] { { 1, 2 }, { 3, 4 }, { 5, 6 } };
+		ArrayMath.scale(10, rows, 1, 2);
+		assertArrayEquals(new double[] { 1, 2 }, rows[0], 0);
+		assertArrayEquals(new double[] { 30, 40 }, rows[1], 0);
+		assertArrayEquals(new double[] { 5, 6 }, rows[2], 0);
+	}
+
+	@Test
+	public void testMultiply() {
+		Random random = new Random(1);
+		// odd sizes so no dimension is a multiple of the block sizes
+		double[][] a = random(random, 131, 301);
+		double[][] b = random(random, 301, 67);
+
+		double[][] expected = naiveMultiply(a, b);
+		double[][] actual = ArrayMath.multiplyMatrix(a, b);
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertArrayEquals(expected[i], actual[i], 1e-12);
+		}
+
+		double[] x = random(random, 1, 301)[0];
+		double[] y = ArrayMath.multiplyVector(a, x);
+		for (int i = 0; i < a.length; i++) {
+			double sum = 0;
+			for (int k = 0; k < x.length; k++) {
+				sum += a[i][k] * x[k];
+			}
+			assertEquals(sum, y[i], 1e-12);
+		}
+
+		double[][] c = ArrayMath.multiplyMatrix(new double[][] { { 1, 2 },
+				{ 3, 4 } }, new double[][] { { 5 }, { 6 } });
+		assertEquals(1, c[0].length);
+		assertEquals(17, c[0][0], 0);
+		assertEquals(39, c[1][0], 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMultiplyMismatch() {
+		ArrayMath.multiplyMatrix(new double[2][3], new double[2][3]);
+	}
+
+}
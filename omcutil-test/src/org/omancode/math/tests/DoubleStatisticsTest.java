@@ -0,0 +1,143 @@
+package org.omancode.math.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.math.DoubleStatistics;
+import org.omancode.util.ArrayUtil;
+
+public class DoubleStatisticsTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testOf() {
+		DoubleStatistics stats = DoubleStatistics.of(new double[] { 2, 4,
+				Double.NaN, 4, 4, 5, 5, 7, 9 });
+
+		assertEquals(8, stats.getCount());
+		assertEquals(1, stats.getNaNCount());
+		assertEquals(40, stats.getSum(), 1e-12);
+		assertEquals(5, stats.getMean(), 1e-12);
+		assertEquals(4, stats.getPopulationVariance(), 1e-12);
+		assertEquals(32.0 / 7, stats.getVariance(), 1e-12);
+		assertEquals(2, stats.getMin(), 0);
+		assertEquals(9, stats.getMax(), 0);
+	}
+
+	@Test
+	public void testOfColumns() {
+		Random random = new Random(1);
+		double[][] matrix = new double[5000][30];
+		for (int r = 0; r < matrix.length; r++) {
+			for (int c = 0; c < matrix[r].length; c++) {
+				matrix[r][c] = random.nextGaussian() * c;
+			}
+		}
+		matrix[10][3] = Double.NaN;
+
+		DoubleStatistics[] columns = DoubleStatistics.ofColumns(matrix);
+		DoubleStatistics[] parallel = DoubleStatistics
+				.ofColumnsParallel(matrix);
+		double[][] transposed = ArrayUtil.transpose(matrix);
+
+		assertEquals(30, columns.length);
+		for (int c = 0; c < columns.length; c++) {
+			DoubleStatistics expected = DoubleStatistics.of(transposed[c]);
+			assertEquals(expected.getCount(), columns[c].getCount());
+			assertEquals(expected.getNaNCount(), columns[c].getNaNCount());
+			assertEquals(expected.getMean(), columns[c].getMean(), 1e-12);
+			assertEquals(expected.getVariance(), columns[c].getVariance(),
+					1e-9);
+			assertEquals(expected.getMin(), columns[c].getMin(), 0);
+			assertEquals(expected.getMax(), columns[c].getMax(), 0);
+
+			assertEquals(expected.getCount(), parallel[c].getCount());
+			assertEquals(expected.getMean(), parallel[c].getMean(), 1e-12);
+			assertEquals(expected.getVariance(), parallel[c].getVariance(),
+					1e-9);
+			assertEquals(expected.getMax(), parallel[c].getMax(), 0);
+		}
+		assertEquals(1, columns[3].getNaNCount());
+	}
+
+	@Test
+	public void testSum() {
+		DoubleStatistics cancel = DoubleStatistics.of(new double[] { 1e17, 1,
+				1, 1, -1e17 });
+		assertEquals(3, cancel.getSum(), 0);
+
+		Random random = new Random(1);
+		DoubleStatistics merged = new DoubleStatistics();
+		for (int run = 0; run < 100; run++) {
+			double[] values = new double[1000];
+			BigDecimal exact = BigDecimal.ZERO;
+			for (int i = 0; i < values.length; i++) {
+				values[i] = random.nextGaussian() * Math.pow(10, i % 12);
+				exact = exact.add(new BigDecimal(values[i]));
+			}
+			double rounded = exact.doubleValue();
+			DoubleStatistics stats = DoubleStatistics.of(values);
+			assertEquals(rounded, stats.getSum(), Math.ulp(rounded));
+
+			DoubleStatistics first = DoubleStatistics.of(Arrays.copyOf(
+					values, 300));
+			first.merge(DoubleStatistics.of(Arrays.copyOfRange(values, 300,
+					values.length)));
+			assertEquals(rounded, first.getSum(), Math.ulp(rounded));
+			merged.merge(first);
+		}
+		assertEquals(100000, merged.getCount());
+	}
+
+	@Test
+	public void testNonFinite() {
+		double inf = Double.POSITIVE_INFINITY;
+
+		DoubleStatistics stats = DoubleStatistics.of(new double[] { inf });
+		assertEquals(inf, stats.getSum(), 0);
+		assertEquals(inf, stats.getMean(), 0);
+		assertEquals(inf, stats.getMax(), 0);
+		assertTrue(Double.isNaN(stats.getPopulationVariance()));
+
+		stats = DoubleStatistics.of(new double[] { 1, -inf, 2 });
+		assertEquals(3, stats.getCount());
+		assertEquals(-inf, stats.getSum(), 0);
+		assertEquals(-inf, stats.getMean(), 0);
+		assertEquals(-inf, stats.getMin(), 0);
+		assertEquals(2, stats.getMax(), 0);
+
+		stats.merge(DoubleStatistics.of(new double[] { inf }));
+		assertTrue(Double.isNaN(stats.getSum()));
+		assertTrue(Double.isNaN(stats.getMean()));
+
+		// overflow
+		stats = DoubleStatistics.of(new double[] { 1e308, 1e308 });
+		assertEquals(inf, stats.getSum(), 0);
+		DoubleStatistics other = DoubleStatistics.of(new double[] { 1e308 });
+		other.merge(DoubleStatistics.of(new double[] { 1e308 }));
+		assertEquals(inf, other.getSum(), 0);
+
+		// finite values merged with infinite ones keep their min and max
+		stats = DoubleStatistics.of(new double[] { inf });
+		stats.merge(DoubleStatistics.of(new double[] { 3, 5 }));
+		assertEquals(3, stats.getMin(), 0);
+		assertEquals(inf, stats.getMean(), 0);
+
+		double[][] matrix = new double[][] { { 1, inf }, { 2, 1 }, { 3, 2 } };
+		DoubleStatistics[] columns = DoubleStatistics.ofColumns(matrix);
+		assertEquals(6, columns[0].getSum(), 0);
+		assertEquals(1, columns[0].getVariance(), 0);
+		assertEquals(inf, columns[1].getSum(), 0);
+		assertEquals(inf, columns[1].getMean(), 0);
+	}
+
+}
@@ -0,0 +1,82 @@
+package org.omancode.math.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.math.Histogram;
+import org.omancode.math.QuantileSketch;
+
+public class HistogramTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testFixedWidth() {
+		double[] values = new double[] { 0, 0.5, 1, 1.99, 2, 3, 4, -1, 5,
+				Double.NaN };
+
+		Histogram histogram = Histogram.ofFixedWidth(values, 0, 4, 4);
+
+		assertArrayEquals(new long[] { 2, 2, 1, 2 }, histogram.getCounts());
+		assertEquals(1, histogram.getUnderflow());
+		assertEquals(1, histogram.getOverflow());
+		assertEquals(1, histogram.getNaNCount());
+		assertEquals(7, histogram.getTotal());
+	}
+
+	@Test
+	public void testParallelAndEdges() {
+		Random random = new Random(1);
+		double[] values = new double[200000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextGaussian();
+		}
+
+		assertArrayEquals(Histogram.ofFixedWidth(values, -3, 3, 60)
+				.getCounts(), Histogram.ofFixedWidthParallel(values, -3, 3, 60)
+				.getCounts());
+
+		double[] edges = new double[] { -10, -1, 0, 1, 10 };
+		Histogram histogram = Histogram.ofEdgesParallel(values, edges);
+		assertArrayEquals(Histogram.ofEdges(values, edges).getCounts(),
+				histogram.getCounts());
+		assertEquals(values.length, histogram.getTotal());
+	}
+
+	@Test
+	public void testQuantileSketch() {
+		Random random = new Random(1);
+		double[] values = new double[500000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextDouble();
+		}
+
+		QuantileSketch sketch = new QuantileSketch(200, 1);
+		sketch.addAll(Arrays.copyOf(values, values.length / 2));
+		QuantileSketch other = new QuantileSketch(200, 2);
+		other.addAll(Arrays.copyOfRange(values, values.length / 2,
+				values.length));
+		sketch.merge(other);
+
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+
+		assertEquals(values.length, sketch.getN());
+		assertEquals(sorted[0], sketch.getMin(), 0);
+		assertEquals(sorted[sorted.length - 1], sketch.getMax(), 0);
+		for (double q : new double[] { 0.01, 0.1, 0.5, 0.9, 0.99 }) {
+			double estimate = sketch.quantile(q);
+			int rank = Math.abs(Arrays.binarySearch(sorted, estimate));
+			assertEquals(q, (double) rank / sorted.length, 0.0165);
+			assertEquals(q, sketch.rank(estimate), 0.0165);
+		}
+	}
+
+}
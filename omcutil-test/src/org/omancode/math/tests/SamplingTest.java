@@ -0,0 +1,112 @@
+package org.omancode.math.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.math.DoubleStatistics;
+import org.omancode.math.Sampling;
+import org.omancode.util.BitVector;
+
+public class SamplingTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	private static double[] sequence(int n) {
+		double[] values = new double[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = i;
+		}
+		return values;
+	}
+
+	@Test
+	public void testShuffle() {
+		int[] array = new int[1000];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = i;
+		}
+		int[] copy = array.clone();
+		Sampling.shuffle(array, new SplittableRandom(1));
+		Sampling.shuffle(copy, new SplittableRandom(1));
+
+		assertArrayEquals(copy, array);
+		int fixed = 0;
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] == i) {
+				fixed++;
+			}
+		}
+		assertTrue(fixed < 10);
+		Arrays.sort(array);
+		assertEquals(999, array[999]);
+	}
+
+	@Test
+	public void testSampleIndices() {
+		int[] indices = Sampling.sampleIndices(1000000, 5000,
+				new SplittableRandom(1));
+		BitVector seen = new BitVector(1000000);
+		for (int index : indices) {
+			assertTrue(!seen.get(index));
+			seen.set(index);
+		}
+		assertEquals(5000, seen.count());
+
+		int[] all = Sampling.sampleIndices(10, 10, new SplittableRandom(2));
+		Arrays.sort(all);
+		assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }, all);
+	}
+
+	@Test
+	public void testReservoir() {
+		double[] values = sequence(1000000);
+
+		double[] sample = Sampling.reservoir(values, 10000,
+				new SplittableRandom(1));
+		assertEquals(10000, sample.length);
+		assertEquals(500000, DoubleStatistics.of(sample).getMean(), 10000);
+
+		double[] parallel = Sampling.reservoirParallel(values, 10000, 1);
+		assertArrayEquals(parallel,
+				Sampling.reservoirParallel(values, 10000, 1), 0);
+		assertEquals(500000, DoubleStatistics.of(parallel).getMean(), 10000);
+		Arrays.sort(parallel);
+		for (int i = 1; i < parallel.length; i++) {
+			assertTrue(parallel[i - 1] < parallel[i]);
+		}
+
+		assertEquals(3, Sampling.reservoir(sequence(3), 5,
+				new SplittableRandom(1)).length);
+	}
+
+	@Test
+	public void testBernoulli() {
+		double[] values = sequence(1000000);
+
+		double[] kept = Sampling.bernoulli(values, 0.01,
+				new SplittableRandom(1));
+		assertEquals(10000, kept.length, 400);
+		for (int i = 1; i < kept.length; i++) {
+			assertTrue(kept[i - 1] < kept[i]);
+		}
+
+		double[] parallel = Sampling.bernoulliParallel(values, 0.01, 1);
+		assertEquals(10000, parallel.length, 400);
+		assertArrayEquals(parallel,
+				Sampling.bernoulliParallel(values, 0.01, 1), 0);
+
+		assertEquals(values.length, Sampling.bernoulliIndices(values.length,
+				1, new SplittableRandom(1)).length);
+		assertEquals(0, Sampling.bernoulli(values, 0,
+				new SplittableRandom(1)).length);
+	}
+
+}
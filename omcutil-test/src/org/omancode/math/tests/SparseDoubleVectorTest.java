@@ -0,0 +1,144 @@
+package org.omancode.math.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.math.SparseDoubleVector;
+
+public class SparseDoubleVectorTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	private static double[] randomSparse(Random random, int length,
+			double density) {
+		double[] dense = new double[length];
+		for (int i = 0; i < length; i++) {
+			if (random.nextDouble() < density) {
+				dense[i] = random.nextInt(21) - 10;
+			}
+		}
+		return dense;
+	}
+
+	@Test
+	public void testSetGet() {
+		SparseDoubleVector v = new SparseDoubleVector(100);
+		assertEquals(0, v.nonZeroCount());
+		assertEquals(0, v.get(50), 0);
+
+		// out of order inserts, past the initial capacity
+		for (int i = 99; i >= 0; i -= 9) {
+			v.set(i, i + 0.5);
+		}
+		assertEquals(12, v.nonZeroCount());
+		assertEquals(45.5, v.get(45), 0);
+		assertEquals(0, v.get(46), 0);
+
+		// setting a zero where nothing is stored stores nothing
+		v.set(46, 0);
+		assertEquals(12, v.nonZeroCount());
+
+		// overwrite, then remove by setting zero
+		v.set(45, -1);
+		assertEquals(-1, v.get(45), 0);
+		v.set(45, 0);
+		assertEquals(11, v.nonZeroCount());
+		assertEquals(0, v.get(45), 0);
+		assertEquals(54.5, v.get(54), 0);
+		assertEquals(36.5, v.get(36), 0);
+
+		v.trimToSize();
+		assertEquals(11, v.nonZeroCount());
+		v.zero();
+		assertEquals(0, v.nonZeroCount());
+		assertEquals(0, v.get(99), 0);
+	}
+
+	@Test
+	public void testIterationOrder() {
+		SparseDoubleVector v = new SparseDoubleVector(10);
+		v.set(7, 7);
+		v.set(2, 2);
+		v.set(9, 9);
+		v.set(0, 10);
+		v.set(2, 0);
+
+		int[] indices = new int[v.nonZeroCount()];
+		double[] values = new double[v.nonZeroCount()];
+		for (int k = 0; k < v.nonZeroCount(); k++) {
+			indices[k] = v.indexAt(k);
+			values[k] = v.valueAt(k);
+		}
+		assertArrayEquals(new int[] { 0, 7, 9 }, indices);
+		assertArrayEquals(new double[] { 10, 7, 9 }, values, 0);
+		assertEquals("length 10 {0=10.0, 7=7.0, 9=9.0}", v.toString());
+	}
+
+	@Test
+	public void testAgainstDense() {
+		Random random = new Random(1);
+		int length = 1000;
+		for (int run = 0; run < 20; run++) {
+			double[] a = randomSparse(random, length, 0.05);
+			double[] b = randomSparse(random, length, 0.05);
+			SparseDoubleVector sa = new SparseDoubleVector(a);
+			SparseDoubleVector sb = new SparseDoubleVector(b);
+			assertArrayEquals(a, sa.toDense(), 0);
+
+			double dot = 0;
+			double sum = 0;
+			double[] added = new double[length];
+			for (int i = 0; i < length; i++) {
+				dot += a[i] * b[i];
+				sum += a[i];
+				added[i] = a[i] + b[i];
+			}
+			assertEquals(dot, sa.dot(b), 0);
+			assertEquals(dot, sa.dot(sb), 0);
+			assertEquals(sum, sa.sum(), 0);
+
+			SparseDoubleVector sum2 = sa.add(sb);
+			assertArrayEquals(added, sum2.toDense(), 0);
+			// cancelled elements are not stored
+			for (int k = 0; k < sum2.nonZeroCount(); k++) {
+				assertEquals(added[sum2.indexAt(k)], sum2.valueAt(k), 0);
+				assertTrue(sum2.valueAt(k) != 0);
+			}
+
+			double[] dense = b.clone();
+			sa.addTo(dense);
+			assertArrayEquals(added, dense, 0);
+		}
+
+		SparseDoubleVector v = new SparseDoubleVector(new double[] { 1, 0,
+				-1 });
+		assertEquals(0, v.add(new SparseDoubleVector(new double[] { -1, 0,
+				1 })).nonZeroCount());
+	}
+
+	@Test
+	public void testFromIndicesSkipsZeros() {
+		SparseDoubleVector v = new SparseDoubleVector(5, new int[] { 0, 1,
+				3, 4 }, new double[] { 0, 2, 0, -1 });
+		assertEquals(2, v.nonZeroCount());
+		assertEquals(1, v.indexAt(0));
+		assertEquals(4, v.indexAt(1));
+		assertArrayEquals(new double[] { 0, 2, 0, 0, -1 }, v.toDense(), 0);
+
+		assertEquals(0, new SparseDoubleVector(3, new int[] { 2 },
+				new double[] { 0 }).nonZeroCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLengthMismatch() {
+		new SparseDoubleVector(3).dot(new double[4]);
+	}
+
+}
@@ -0,0 +1,7 @@
+/**
+ * Math classes tests.
+ *
+ * @author Oliver Mannion
+ *
+ */
+package org.omancode.math.tests;
\ No newline at end of file
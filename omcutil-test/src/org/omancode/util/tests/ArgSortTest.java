@@ -0,0 +1,63 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.ArgSort;
+
+public class ArgSortTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testSortDouble() {
+		double[] values = new double[] { 3, -1, Double.NaN, 0.0, -0.0, 3,
+				Double.NEGATIVE_INFINITY, -2.5 };
+
+		int[] perm = ArgSort.sort(values);
+
+		assertArrayEquals(new int[] { 6, 7, 1, 4, 3, 0, 5, 2 }, perm);
+		assertEquals(3, values[perm[ArgSort.binarySearch(values, perm, 3)]], 0);
+		assertEquals(-3, ArgSort.binarySearch(values, perm, -1.5));
+	}
+
+	@Test
+	public void testParallelMatchesSequential() {
+		Random random = new Random(1);
+		int[] ints = new int[100000];
+		double[] doubles = new double[ints.length];
+		for (int i = 0; i < ints.length; i++) {
+			ints[i] = random.nextInt(1000);
+			doubles[i] = random.nextGaussian();
+		}
+
+		int[] perm = ArgSort.sort(ints);
+		assertArrayEquals(perm, ArgSort.parallelSort(ints));
+		for (int i = 1; i < perm.length; i++) {
+			assertTrue(ints[perm[i - 1]] <= ints[perm[i]]);
+			if (ints[perm[i - 1]] == ints[perm[i]]) {
+				// stable
+				assertTrue(perm[i - 1] < perm[i]);
+			}
+		}
+
+		int[] doublePerm = ArgSort.parallelSort(doubles);
+		double[] sorted = doubles.clone();
+		Arrays.sort(sorted);
+		for (int i = 0; i < sorted.length; i++) {
+			assertEquals(sorted[i], doubles[doublePerm[i]], 0);
+		}
+
+		int pos = ArgSort.binarySearch(ints, perm, 500);
+		assertEquals(500, ints[perm[pos]]);
+	}
+
+}
@@ -0,0 +1,76 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.ArrayPool;
+
+public class ArrayPoolTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testReuseAndZero() {
+		ArrayPool pool = new ArrayPool(1024, true);
+
+		double[] first;
+		try (ArrayPool.Lease<double[]> lease = pool.leaseDoubles(10)) {
+			first = lease.array();
+			assertEquals(10, lease.length());
+			assertTrue(first.length >= 10);
+			first[3] = 42;
+		}
+		assertEquals(0, pool.getHits());
+		assertEquals(1, pool.getMisses());
+		assertEquals(16 * 8, pool.getRetainedBytes());
+
+		try (ArrayPool.Lease<double[]> lease = pool.leaseDoubles(12)) {
+			assertSame(first, lease.array());
+			assertEquals(0, lease.array()[3], 0);
+		}
+		assertEquals(1, pool.getHits());
+	}
+
+	@Test
+	public void testRetainedBytesCap() {
+		ArrayPool pool = new ArrayPool(64, false);
+
+		ArrayPool.Lease<long[]> a = pool.leaseLongs(8);
+		ArrayPool.Lease<long[]> b = pool.leaseLongs(8);
+		a.close();
+		b.close();
+
+		// only one 64 byte array fits under the cap
+		assertEquals(64, pool.getRetainedBytes());
+
+		pool.leaseInts(8).close();
+		assertEquals(64, pool.getRetainedBytes());
+		assertEquals(3, pool.getMisses());
+
+		// too big to ever retain, so not rounded up to a power of two
+		ArrayPool.Lease<long[]> big = pool.leaseLongs(9);
+		assertEquals(9, big.array().length);
+		big.close();
+		assertEquals(64, pool.getRetainedBytes());
+	}
+
+	@Test
+	public void testLocal() {
+		assertSame(ArrayPool.local(), ArrayPool.local());
+
+		int[] first;
+		try (ArrayPool.Lease<int[]> lease = ArrayPool.local().leaseInts(1000)) {
+			first = lease.array();
+			assertEquals(1024, first.length);
+		}
+		try (ArrayPool.Lease<int[]> lease = ArrayPool.local().leaseInts(1000)) {
+			assertSame(first, lease.array());
+		}
+	}
+
+}
@@ -3,9 +3,22 @@ package org.omancode.util.tests;
 import static org.junit.Assert.*;
 
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.omancode.math.DoubleStatistics;
 import org.omancode.util.ArrayUtil;
+import org.omancode.util.DoubleSlice;
+import org.omancode.util.IntDoubleMap;
+import org.omancode.util.IntIntMap;
+import org.omancode.util.IntSlice;
+import org.omancode.util.ObjectSlice;
+import org.omancode.util.XorDoubleArray;
+import org.omancode.util.io.Output;
+import org.omancode.util.io.OutputWriter;
 
 public class ArrayUtilTest {
 
@@ -32,5 +45,196 @@ public class ArrayUtilTest {
 		
 
 	}
-	
+
+	@Test
+	public void testAppendTo() throws IOException {
+		Object[] objects = new Object[] { 1, null, "a" };
+		StringBuilder sb = new StringBuilder();
+		ArrayUtil.appendTo(sb, objects);
+		assertEquals(ArrayUtil.toString(objects), sb.toString());
+
+		StringWriter writer = new StringWriter();
+		ArrayUtil.appendTo(writer, new double[] { 1.5, 2, 3 }, 2);
+		assertEquals("1.5, 2.0, ... (1 more)", writer.toString());
+
+		sb.setLength(0);
+		ArrayUtil.appendTo(sb, new int[] { 1, 2, 3 }, 0);
+		assertEquals("... (3 more)", sb.toString());
+
+		final StringBuilder printed = new StringBuilder();
+		OutputWriter out = new OutputWriter(new Output() {
+			@Override
+			public void print(String message) {
+				printed.append(message);
+			}
+
+			@Override
+			public void println(String message) {
+				printed.append(message).append('\n');
+			}
+		}, 4);
+		ArrayUtil.appendTo(out, new long[] { 10, 20, 30 }, 10);
+		out.flush();
+		assertEquals("10, 20, 30", printed.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAppendToNegative() throws IOException {
+		ArrayUtil.appendTo(new StringBuilder(), new long[] { 1, 2 }, -1);
+	}
+
+	@Test
+	public void testSumDouble() {
+		// 1 followed by many values too small to register against it
+		double[] array = new double[1000001];
+		array[0] = 1;
+		for (int i = 1; i < array.length; i++) {
+			array[i] = 1e-16;
+		}
+		double exact = 1 + 1e-10;
+
+		assertTrue(Math.abs(ArrayUtil.sum(array) - exact) > 1e-11);
+		assertEquals(exact, ArrayUtil.sumCompensated(array), 1e-14);
+		assertEquals(exact, ArrayUtil.sumCompensatedParallel(array), 1e-14);
+		assertEquals(exact, ArrayUtil.sumPairwise(array), 1e-14);
+		assertEquals(ArrayUtil.sumPairwise(array),
+				ArrayUtil.sumPairwiseParallel(array), 0);
+
+		assertEquals(0, ArrayUtil.sumCompensated(new double[0]), 0);
+		assertEquals(6, ArrayUtil.sumPairwise(new double[] { 1, 2, 3 }), 0);
+	}
+
+	@Test
+	public void testGroupBy() {
+		java.util.Random random = new java.util.Random(1);
+		int[] keys = new int[300000];
+		double[] values = new double[keys.length];
+		double[] expected = new double[10];
+		long[] counts = new long[10];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = random.nextInt(10);
+			values[i] = random.nextInt(100);
+			expected[keys[i]] += values[i];
+			counts[keys[i]]++;
+		}
+
+		assertArrayEquals(expected, ArrayUtil.groupSum(keys, values, 10), 0);
+		assertArrayEquals(expected,
+				ArrayUtil.groupSumParallel(keys, values, 10), 0);
+		assertArrayEquals(counts, ArrayUtil.groupCountParallel(keys, 10));
+		double[] means = ArrayUtil.groupMeanParallel(keys, values, 11);
+		assertEquals(expected[3] / counts[3], means[3], 1e-12);
+		assertTrue(Double.isNaN(means[10]));
+
+		// spread the keys out so they need the hash
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = keys[i] * 1000003 - 5;
+		}
+		IntDoubleMap sums = ArrayUtil.groupSumParallel(keys, values);
+		IntIntMap sparseCounts = ArrayUtil.groupCount(keys);
+		assertEquals(10, sums.size());
+		assertEquals(expected[7], sums.get(7 * 1000003 - 5, Double.NaN), 0);
+		assertEquals(counts[7], sparseCounts.get(7 * 1000003 - 5, 0));
+		assertEquals(expected[7] / counts[7], ArrayUtil.groupMean(keys,
+				values).get(7 * 1000003 - 5, Double.NaN), 1e-12);
+	}
+
+	@Test
+	public void testSlices() {
+		// a 3 x 4 row major matrix
+		double[] matrix = new double[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 };
+		DoubleSlice row = new DoubleSlice(matrix, 4, 4);
+		DoubleSlice column = new DoubleSlice(matrix, 1, 3, 4);
+
+		assertEquals(26, ArrayUtil.sum(row), 0);
+		assertEquals(18, ArrayUtil.sumCompensated(column), 0);
+		assertEquals(18, ArrayUtil.sumPairwise(column), 0);
+		assertEquals("2.0, 6.0, 10.0", ArrayUtil.toString(column));
+		assertEquals(6, DoubleStatistics.of(column).getMean(), 0);
+		assertEquals(10, column.slice(2, 3).get(0), 0);
+
+		ArrayUtil.zeroArray(column);
+		assertArrayEquals(new double[] { 1, 0, 3, 4, 5, 0, 7, 8, 9, 0, 11,
+				12 }, matrix, 0);
+
+		double[] large = new double[1001];
+		for (int i = 0; i < large.length; i++) {
+			large[i] = i;
+		}
+		assertEquals(250500, ArrayUtil.sumPairwise(new DoubleSlice(large, 0,
+				501, 2)), 0);
+
+		IntSlice ints = new IntSlice(new int[] { 1, 2, 3, 4, 5 }, 1, 3);
+		assertEquals(9, ArrayUtil.sum(ints));
+		assertEquals("2, 3, 4", ArrayUtil.toString(ints));
+
+		ObjectSlice<String> strings = new ObjectSlice<String>(new String[] {
+				"a", null, "c", "d" }, 0, 2, 2);
+		assertEquals("a, c", ArrayUtil.toString(strings));
+		assertEquals(0, ArrayUtil.countNulls(strings));
+		assertEquals(1, ArrayUtil.countNulls(new ObjectSlice<String>(
+				strings.array())));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testSliceBounds() {
+		new DoubleSlice(new double[12], 1, 4, 4);
+	}
+
+	@Test
+	public void testSumDoubleAccuracy() {
+		double[] array = new double[1 << 18];
+		java.util.Random random = new java.util.Random(1);
+		BigDecimal exact = BigDecimal.ZERO;
+		for (int i = 0; i < array.length; i++) {
+			array[i] = (random.nextDouble() - 0.5) * Math.pow(2, i % 40);
+			exact = exact.add(new BigDecimal(array[i]));
+		}
+		double rounded = exact.doubleValue();
+
+		// compensated is exact to within one rounding of the sum
+		assertEquals(rounded, ArrayUtil.sumCompensated(array), Math
+				.ulp(rounded));
+		assertEquals(rounded, ArrayUtil.sumCompensatedParallel(array), Math
+				.ulp(rounded));
+		// pairwise error grows with log n, naive with n
+		double pairwiseError = Math.abs(ArrayUtil.sumPairwise(array)
+				- rounded);
+		double naiveError = Math.abs(ArrayUtil.sum(array) - rounded);
+		assertTrue(pairwiseError <= naiveError);
+	}
+
+	@Test
+	public void testSumDoubleNonFinite() {
+		double inf = Double.POSITIVE_INFINITY;
+		double[] overflow = new double[] { 1e308, 1e308 };
+
+		assertEquals(inf, ArrayUtil.sumCompensated(new double[] { inf, 1 }),
+				0);
+		assertEquals(-inf, ArrayUtil.sumCompensated(new double[] { 1, -inf }),
+				0);
+		assertEquals(inf, ArrayUtil.sumCompensated(overflow), 0);
+		assertEquals(-inf, ArrayUtil.sumCompensated(new double[] { -1e308,
+				-1e308, 1 }), 0);
+		assertTrue(Double.isNaN(ArrayUtil.sumCompensated(new double[] { inf,
+				-inf })));
+		assertEquals(ArrayUtil.sum(overflow), ArrayUtil.sumPairwise(overflow),
+				0);
+
+		assertEquals(inf, ArrayUtil.sumCompensated(XorDoubleArray
+				.of(overflow)), 0);
+		assertEquals(inf, ArrayUtil.sumCompensated(new DoubleSlice(
+				new double[] { 1e308, 0, 1e308, 0 }, 0, 2, 2)), 0);
+
+		// halves are finite, their merge overflows
+		double[] large = new double[1 << 18];
+		large[0] = 1e308;
+		large[large.length - 1] = 1e308;
+		assertEquals(inf, ArrayUtil.sumCompensatedParallel(large), 0);
+		large[1] = -inf;
+		assertEquals(-inf, ArrayUtil.sumCompensatedParallel(large), 0);
+		large[large.length - 1] = inf;
+		assertTrue(Double.isNaN(ArrayUtil.sumCompensatedParallel(large)));
+	}
+
 }
\ No newline at end of file
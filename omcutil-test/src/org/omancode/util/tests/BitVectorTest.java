@@ -0,0 +1,85 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.ArrayUtil;
+import org.omancode.util.BitVector;
+
+public class BitVectorTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testSetClearGet() {
+		BitVector bits = new BitVector(130);
+
+		bits.set(0);
+		bits.set(63);
+		bits.set(64);
+		bits.set(129);
+
+		assertTrue(bits.get(0));
+		assertTrue(bits.get(63));
+		assertTrue(bits.get(64));
+		assertTrue(bits.get(129));
+		assertFalse(bits.get(1));
+		assertEquals(4, bits.count());
+
+		bits.clear(63);
+		assertFalse(bits.get(63));
+		assertEquals(3, bits.count());
+
+		bits.setAll();
+		assertEquals(130, bits.count());
+		assertEquals(-1, bits.nextClearBit(0));
+	}
+
+	@Test
+	public void testBooleanArray() {
+		boolean[] array = new boolean[] { true, false, false, true, true,
+				false, true };
+
+		BitVector bits = new BitVector(array);
+
+		assertArrayEquals(new int[] { 0, 3, 4, 6 }, bits.setBits());
+		assertEquals(ArrayUtil.count(array), ArrayUtil.count(bits), 0);
+		assertEquals(1, bits.nextClearBit(0));
+		assertEquals(3, bits.nextSetBit(1));
+		assertEquals(-1, bits.nextSetBit(7));
+
+		boolean[] roundTrip = bits.toBooleanArray();
+		for (int i = 0; i < array.length; i++) {
+			assertEquals(array[i], roundTrip[i]);
+		}
+	}
+
+	@Test
+	public void testBulkOps() {
+		BitVector a = new BitVector(new boolean[] { true, true, false, false });
+		BitVector b = new BitVector(new boolean[] { true, false, true, false });
+
+		BitVector and = a.copy();
+		and.and(b);
+		assertArrayEquals(new int[] { 0 }, and.setBits());
+
+		BitVector or = a.copy();
+		or.or(b);
+		assertArrayEquals(new int[] { 0, 1, 2 }, or.setBits());
+
+		BitVector xor = a.copy();
+		xor.xor(b);
+		assertArrayEquals(new int[] { 1, 2 }, xor.setBits());
+
+		BitVector andNot = a.copy();
+		andNot.andNot(b);
+		assertArrayEquals(new int[] { 1 }, andNot.setBits());
+	}
+
+}
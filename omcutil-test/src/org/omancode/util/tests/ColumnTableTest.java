@@ -0,0 +1,86 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.ColumnTable;
+import org.omancode.util.swing.ColumnTableModel;
+
+public class ColumnTableTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testObjectArrayRoundTrip() {
+		Object[][] rows = new Object[][] { { 1, 1.5, "a", 10L },
+				{ 2, null, "b", null }, { null, 3, null, 30 } };
+
+		ColumnTable table = ColumnTable.fromObjectArray(new String[] { "id",
+				"value", "name", "big" }, rows);
+
+		assertEquals(int.class, table.getColumn("id").getType());
+		assertEquals(double.class, table.getColumn("value").getType());
+		assertEquals(String.class, table.getColumn("name").getType());
+		assertEquals(long.class, table.getColumn("big").getType());
+
+		Object[][] back = table.toObjectArray();
+		assertArrayEquals(new Object[] { 1, 1.5, "a", 10L }, back[0]);
+		assertArrayEquals(new Object[] { 2, null, "b", null }, back[1]);
+		assertArrayEquals(new Object[] { null, 3.0, null, 30L }, back[2]);
+
+		ColumnTableModel model = new ColumnTableModel(table);
+		assertEquals(4, model.getColumnCount());
+		assertEquals(Double.class, model.getColumnClass(1));
+		assertEquals("b", model.getValueAt(1, 2));
+		assertNull(model.getValueAt(1, 1));
+	}
+
+	@Test
+	public void testViews() {
+		double[] values = new double[] { 0, 1, 2, 3, 4, 5 };
+		ColumnTable table = new ColumnTable(values.length);
+		ColumnTable.DoubleColumn value = table.addColumn("value", values);
+		ColumnTable.IntColumn count = table.addIntColumn("count");
+		table.addStringColumn("label");
+
+		ColumnTable view = table.rows(2, 5);
+		assertEquals(3, view.getRowCount());
+		ColumnTable.DoubleColumn viewValue = (ColumnTable.DoubleColumn) view
+				.getColumn("value");
+		assertSame(values, viewValue.array());
+		assertEquals(2, viewValue.getOffset());
+		assertEquals(3, view.row(1).getDouble(0), 0);
+
+		viewValue.set(0, 20);
+		assertEquals(20, values[2], 0);
+		view.getColumn("count").setNull(2);
+		assertTrue(count.isNull(4));
+		assertFalse(count.isNull(2));
+		assertEquals(1, count.nullCount());
+		count.set(4, 7);
+		assertEquals(0, count.nullCount());
+
+		ColumnTable selected = table.select("count", "value");
+		assertArrayEquals(new String[] { "count", "value" }, selected
+				.getColumnNames());
+		assertSame(value, selected.getColumn(1));
+		assertEquals(7, selected.row(4).getInt(0));
+		assertNull(table.row(0).get(2));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testViewBounds() {
+		ColumnTable table = new ColumnTable(6);
+		table.addDoubleColumn("value");
+		table.rows(2, 5).getColumn(0).get(3);
+	}
+
+}
@@ -0,0 +1,107 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.ArrayUtil;
+import org.omancode.util.DeltaLongArray;
+import org.omancode.util.PackedIntArray;
+import org.omancode.util.XorDoubleArray;
+
+public class CompressedArrayTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testDeltaLongArray() {
+		Random random = new Random(1);
+		long[] values = new long[10001];
+		values[0] = 1300000000000L;
+		for (int i = 1; i < values.length; i++) {
+			values[i] = values[i - 1] + random.nextInt(2000) - 100;
+		}
+		values[5000] = Long.MIN_VALUE;
+		values[5001] = Long.MAX_VALUE;
+
+		DeltaLongArray array = DeltaLongArray.of(values);
+		assertArrayEquals(values, array.toArray());
+		assertEquals(values[5001], array.get(5001));
+		assertEquals(values[10000], array.get(10000));
+		long sum = 0;
+		for (long value : values) {
+			sum += value;
+		}
+		assertEquals(sum, ArrayUtil.sum(array));
+		assertTrue(array.getCompressedBytes() < 8L * values.length / 3);
+		assertEquals(0, DeltaLongArray.of(new long[0]).toArray().length);
+	}
+
+	@Test
+	public void testXorDoubleArray() {
+		Random random = new Random(1);
+		double[] values = new double[10001];
+		for (int i = 0; i < values.length; i++) {
+			// a slowly changing series with repeats
+			values[i] = i % 3 == 0 ? values[Math.max(0, i - 1)] : 20 + Math
+					.round(random.nextGaussian() * 40) / 4.0;
+		}
+		values[7] = Double.NaN;
+		values[8] = -0.0;
+		values[9] = Double.MIN_VALUE;
+		values[10] = Double.MAX_VALUE;
+
+		XorDoubleArray array = XorDoubleArray.of(values);
+		assertArrayEquals(values, array.toArray(), 0);
+		assertEquals(values[9], array.get(9), 0);
+		assertEquals(values[10000], array.get(10000), 0);
+		assertTrue(array.getCompressedBytes() < 8L * values.length / 2);
+
+		values[7] = 0;
+		values[10] = 0;
+		array = XorDoubleArray.of(values);
+		assertEquals(ArrayUtil.sumCompensated(values),
+				ArrayUtil.sumCompensated(array), 0);
+		assertEquals(ArrayUtil.sum(values), ArrayUtil.sum(array), 0);
+
+		double[] noise = new double[1000];
+		for (int i = 0; i < noise.length; i++) {
+			noise[i] = random.nextDouble();
+		}
+		assertArrayEquals(noise, XorDoubleArray.of(noise).toArray(), 0);
+	}
+
+	@Test
+	public void testPackedIntArray() {
+		Random random = new Random(1);
+		int[] values = new int[10001];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextInt(16);
+		}
+		values[300] = 7;
+		for (int i = 256; i < 384; i++) {
+			values[i] = 7;
+		}
+		values[9000] = Integer.MIN_VALUE;
+		values[9001] = Integer.MAX_VALUE;
+
+		PackedIntArray array = PackedIntArray.of(values);
+		assertArrayEquals(values, array.toArray());
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], array.get(i));
+		}
+		long sum = 0;
+		for (int value : values) {
+			sum += value;
+		}
+		assertEquals(sum, ArrayUtil.sum(array));
+		assertTrue(array.getCompressedBytes() < 4L * values.length / 4);
+	}
+
+}
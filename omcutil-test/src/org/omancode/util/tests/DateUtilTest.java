@@ -1,5 +1,15 @@
 package org.omancode.util.tests;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.omancode.util.DateUtil;
@@ -15,4 +25,71 @@ public class DateUtilTest {
 		System.out.println(DateUtil.nowToSortableUniqueDateString());
 	}
 
+	@Test
+	public void testToUniqueSortableString() {
+		SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd-HHmmss",
+				Locale.ROOT);
+		SplittableRandom random = new SplittableRandom(1);
+
+		// 1900 to 2100
+		long from = -2208988800000L;
+		long to = 4102444800000L;
+		for (int i = 0; i < 100000; i++) {
+			Date date = new Date(random.nextLong(from, to));
+			assertEquals(format.format(date), DateUtil
+					.toUniqueSortableString(date));
+		}
+
+		// every hour of a year, through any daylight saving changes
+		for (long t = 1262304000000L; t < 1293840000000L; t += 3600000L) {
+			Date date = new Date(t - 1);
+			assertEquals(format.format(date), DateUtil
+					.toUniqueSortableString(date));
+		}
+
+		// same second is cached
+		long t = 1234567890000L;
+		assertSame(DateUtil.toUniqueSortableString(t), DateUtil
+				.toUniqueSortableString(t + 999));
+		assertEquals("00010101-000000".length(), DateUtil
+				.toUniqueSortableString(t).length());
+	}
+
+	@Test
+	public void testConcurrent() {
+		ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(new Formats(0), new Formats(1), new Formats(2),
+						new Formats(3));
+			}
+		});
+	}
+
+	private static final class Formats extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final long seed;
+
+		Formats(long seed) {
+			this.seed = seed;
+		}
+
+		@Override
+		protected void compute() {
+			SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd-HHmmss",
+					Locale.ROOT);
+			SplittableRandom random = new SplittableRandom(seed);
+			long now = System.currentTimeMillis();
+			for (int i = 0; i < 50000; i++) {
+				// mostly the same few seconds, so threads share the cache
+				long t = now + random.nextInt(4000);
+				assertEquals(format.format(new Date(t)), DateUtil
+						.toUniqueSortableString(t));
+			}
+		}
+	}
+
 }
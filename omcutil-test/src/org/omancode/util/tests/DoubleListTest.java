@@ -0,0 +1,59 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.ArrayUtil;
+import org.omancode.util.DoubleList;
+import org.omancode.util.IntList;
+
+public class DoubleListTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testGrowAndTrim() {
+		DoubleList list = new DoubleList(2);
+		for (int i = 0; i < 100; i++) {
+			list.add(i);
+		}
+		list.addAll(new double[] { 100, 101 });
+
+		assertEquals(102, list.size());
+		assertEquals(101, list.get(101), 0);
+		assertEquals(101 * 102 / 2, ArrayUtil.sum(list), 0);
+		assertEquals(ArrayUtil.sum(list), ArrayUtil.sumPairwise(list), 0);
+
+		double[] trimmed = list.trimmedArray();
+		assertEquals(102, trimmed.length);
+		assertSame(trimmed, list.trimmedArray());
+
+		ArrayUtil.zeroArray(list);
+		assertEquals(102, list.size());
+		assertEquals(0, ArrayUtil.sum(list), 0);
+	}
+
+	@Test
+	public void testSortAndSearch() throws IOException {
+		IntList list = IntList.wrap(new int[] { 5, 3, 9, 1 });
+		list.add(7);
+		list.sort();
+
+		assertArrayEquals(new int[] { 1, 3, 5, 7, 9 }, list.toArray());
+		assertEquals(3, list.binarySearch(7));
+		assertEquals(-3, list.binarySearch(4));
+		assertEquals(25, ArrayUtil.sum(list));
+
+		StringBuilder sb = new StringBuilder();
+		ArrayUtil.appendTo(sb, list, 3);
+		assertEquals("1, 3, 5, ... (2 more)", sb.toString());
+	}
+
+}
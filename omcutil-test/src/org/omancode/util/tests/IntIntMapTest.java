@@ -0,0 +1,68 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.IntIntMap;
+import org.omancode.util.LongDoubleMap;
+
+public class IntIntMapTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testAgainstHashMap() {
+		Random random = new Random(1);
+		IntIntMap map = new IntIntMap(4, 0.75f);
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+
+		for (int i = 0; i < 100000; i++) {
+			int key = random.nextInt(2000) - 1000;
+			int value = random.nextInt();
+			switch (random.nextInt(3)) {
+			case 0:
+				assertEquals(!expected.containsKey(key), map.put(key, value));
+				expected.put(key, value);
+				break;
+			case 1:
+				assertEquals(expected.remove(key) != null, map.remove(key));
+				break;
+			default:
+				Integer e = expected.get(key);
+				assertEquals(e == null ? -1 : e.intValue(), map.get(key, -1));
+			}
+		}
+
+		assertEquals(expected.size(), map.size());
+		int count = 0;
+		for (IntIntMap.Cursor c = map.cursor(); c.next();) {
+			assertEquals(expected.get(c.key()).intValue(), c.value());
+			count++;
+		}
+		assertEquals(expected.size(), count);
+	}
+
+	@Test
+	public void testBulkAndAdd() {
+		LongDoubleMap map = new LongDoubleMap(new long[] { 0, 1L << 40, 7 },
+				new double[] { 1.5, 2.5, 3.5 });
+
+		assertEquals(3, map.size());
+		assertTrue(map.containsKey(0));
+		assertEquals(2.5, map.get(1L << 40, Double.NaN), 0);
+		assertEquals(4.5, map.add(7, 1), 0);
+		assertEquals(-1, map.add(8, -1), 0);
+		assertFalse(map.containsKey(9));
+		assertEquals(4, map.keys().length);
+	}
+
+}
@@ -0,0 +1,98 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.ArrayUtil;
+import org.omancode.util.LargeDoubleArray;
+
+public class LargeDoubleArrayTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testDirect() {
+		double[] values = new double[] { 1, 0, 2, 0, 3, 4 };
+		LargeDoubleArray array = LargeDoubleArray.allocateDirect(values.length);
+		array.copyFrom(values, 0, 0, values.length);
+
+		assertEquals(10, array.sum(), 0);
+		assertEquals(4, array.count());
+
+		// 2 x 3 becomes 3 x 2
+		LargeDoubleArray transposed = LargeDoubleArray
+				.allocateDirect(values.length);
+		LargeDoubleArray.transpose(array, 2, 3, transposed);
+		double[] result = new double[values.length];
+		transposed.copyTo(0, result, 0, result.length);
+
+		double[][] expected = ArrayUtil.transpose(new double[][] {
+				{ 1, 0, 2 }, { 0, 3, 4 } });
+		assertArrayEquals(expected[0], new double[] { result[0], result[1] },
+				0);
+		assertArrayEquals(expected[2], new double[] { result[4], result[5] },
+				0);
+
+		array.zero();
+		assertEquals(0, array.sum(), 0);
+	}
+
+	@Test
+	public void testMapped() throws IOException {
+		File file = File.createTempFile("LargeDoubleArrayTest", ".bin");
+		file.deleteOnExit();
+
+		LargeDoubleArray array = LargeDoubleArray.map(file, 1000);
+		for (long i = 0; i < array.length(); i++) {
+			array.set(i, i);
+		}
+		array.close();
+
+		assertEquals(8000, file.length());
+
+		LargeDoubleArray readOnly = LargeDoubleArray.mapReadOnly(file);
+		assertEquals(1000, readOnly.length());
+		assertEquals(999 * 1000 / 2, readOnly.sum(), 0);
+
+		LargeDoubleArray copy = LargeDoubleArray.allocateDirect(10);
+		LargeDoubleArray.copy(readOnly, 990, copy, 0, 10);
+		assertEquals(995, copy.get(5), 0);
+		readOnly.close();
+	}
+
+	@Test
+	public void testTransposeFile() throws IOException {
+		File src = File.createTempFile("LargeDoubleArrayTest", ".bin");
+		File dest = File.createTempFile("LargeDoubleArrayTest", ".bin");
+		src.deleteOnExit();
+		dest.deleteOnExit();
+
+		int rows = 37;
+		int cols = 101;
+		LargeDoubleArray matrix = LargeDoubleArray.map(src, rows * cols);
+		for (long i = 0; i < matrix.length(); i++) {
+			matrix.set(i, i);
+		}
+		matrix.close();
+
+		// budget for 4 x 4 tiles
+		LargeDoubleArray.transpose(src, rows, cols, dest, 256);
+
+		LargeDoubleArray transposed = LargeDoubleArray.mapReadOnly(dest);
+		assertEquals(rows * cols, transposed.length());
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				assertEquals(r * cols + c, transposed.get(c * rows + r), 0);
+			}
+		}
+		transposed.close();
+	}
+
+}
@@ -0,0 +1,138 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.DateUtil;
+import org.omancode.util.SortableIdGenerator;
+import org.omancode.util.io.FileUtil;
+
+public class SortableIdGeneratorTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testNextId() {
+		SortableIdGenerator ids = new SortableIdGenerator(0x2a5);
+		long before = System.currentTimeMillis();
+		long id = ids.nextId();
+		long after = System.currentTimeMillis();
+
+		assertEquals(0x2a5, ids.getNode());
+		assertEquals(0x2a5, SortableIdGenerator.getNode(id));
+		long timestamp = SortableIdGenerator.getTimestamp(id);
+		assertTrue(timestamp >= before && timestamp <= after);
+
+		// far more than fit in one millisecond
+		long previous = id;
+		for (int i = 0; i < 100000; i++) {
+			long next = ids.nextId();
+			assertTrue(next > previous);
+			assertEquals(0x2a5, SortableIdGenerator.getNode(next));
+			previous = next;
+		}
+	}
+
+	@Test
+	public void testToString() {
+		SortableIdGenerator ids = new SortableIdGenerator(0x3ff);
+		long id = ids.nextId();
+		String str = SortableIdGenerator.toString(id);
+
+		long millis = SortableIdGenerator.getTimestamp(id);
+		String expected = DateUtil.toUniqueSortableString(millis)
+				+ String.format("-%03d-%03x%03x", millis % 1000, 0x3ff,
+						SortableIdGenerator.getSequence(id));
+		assertEquals(expected, str);
+
+		String next = ids.nextString();
+		assertTrue(next.compareTo(str) > 0);
+		assertEquals(str.length(), next.length());
+
+		String name = FileUtil.cleanDatedName("run: 1");
+		assertTrue(name, name.endsWith(" run 1"));
+		assertTrue(!name.equals(FileUtil.cleanDatedName("run: 1")));
+	}
+
+	@Test
+	public void testConcurrent() {
+		final SortableIdGenerator ids = new SortableIdGenerator(7);
+		final int threads = 4;
+		final int perThread = 100000;
+		final long[][] generated = new long[threads][perThread];
+
+		ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				RecursiveAction[] tasks = new RecursiveAction[threads];
+				for (int t = 0; t < threads; t++) {
+					tasks[t] = new Generate(ids, generated[t]);
+				}
+				invokeAll(tasks);
+			}
+		});
+
+		long[] all = new long[threads * perThread];
+		for (int t = 0; t < threads; t++) {
+			for (int i = 1; i < perThread; i++) {
+				assertTrue(generated[t][i] > generated[t][i - 1]);
+			}
+			System.arraycopy(generated[t], 0, all, t * perThread, perThread);
+		}
+		Arrays.sort(all);
+		for (int i = 1; i < all.length; i++) {
+			assertTrue(all[i] != all[i - 1]);
+		}
+	}
+
+	@Test
+	public void testSequenceRollover() {
+		SortableIdGenerator ids = new SortableIdGenerator(1);
+		int perMillisecond = 1 << SortableIdGenerator.SEQUENCE_BITS;
+
+		// several milliseconds worth, faster than the clock advances
+		long previous = ids.nextId();
+		for (int i = 0; i < 5 * perMillisecond; i++) {
+			long next = ids.nextId();
+			assertTrue(next > previous);
+			assertEquals(1, SortableIdGenerator.getNode(next));
+			int sequence = SortableIdGenerator.getSequence(previous);
+			if (sequence == perMillisecond - 1) {
+				// the timestamp moves on rather than the sequence wrapping
+				assertEquals(0, SortableIdGenerator.getSequence(next));
+				assertTrue(SortableIdGenerator.getTimestamp(next)
+						> SortableIdGenerator.getTimestamp(previous));
+			}
+			previous = next;
+		}
+	}
+
+	private static final class Generate extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final SortableIdGenerator ids;
+		private final long[] dest;
+
+		Generate(SortableIdGenerator ids, long[] dest) {
+			this.ids = ids;
+			this.dest = dest;
+		}
+
+		@Override
+		protected void compute() {
+			for (int i = 0; i < dest.length; i++) {
+				dest[i] = ids.nextId();
+			}
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.ArrayUtil;
+import org.omancode.util.StringIndex;
+
+public class StringIndexTest {
+
+	private static final String[] HEADERS = new String[] { "id", "Age",
+			"sex", null, "AGE", "income" };
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testIndexOf() {
+		StringIndex index = new StringIndex(HEADERS);
+
+		for (String str : new String[] { "id", "age", "Age", "AGE", "SEX",
+				null, "missing" }) {
+			assertEquals(ArrayUtil.indexOfString(HEADERS, str, true),
+					index.indexOf(str, true));
+			assertEquals(ArrayUtil.indexOfString(HEADERS, str, false),
+					index.indexOf(str, false));
+		}
+	}
+
+	@Test
+	public void testBatchQueries() {
+		StringIndex index = new StringIndex(HEADERS);
+		String[] query = new String[] { "AGE", "weight", "Income", "id" };
+
+		assertArrayEquals(new int[] { 1, -1, 5, 0 },
+				index.indicesOf(query, true));
+		assertArrayEquals(new int[] { 0, 2, 3 },
+				index.intersection(query, true));
+		assertArrayEquals(new int[] { 1 }, index.complement(query, true));
+		assertArrayEquals(new int[] { 1, 2 }, index.complement(query, false));
+
+		assertEquals("weight", index.firstComplement(query, true));
+		assertNull(ArrayUtil.firstStringComplement(HEADERS, new String[] {
+				"SEX", "id" }, true));
+		assertEquals("SEX", ArrayUtil.firstStringComplement(HEADERS,
+				new String[] { "id", "SEX" }, false));
+	}
+
+}
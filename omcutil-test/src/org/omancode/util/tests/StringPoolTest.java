@@ -0,0 +1,112 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.StringPool;
+
+public class StringPoolTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testIntern() {
+		StringPool pool = new StringPool(64);
+		assertEquals(64, pool.capacity());
+		assertNull(pool.intern(null));
+
+		String a = new String("name");
+		assertSame(a, pool.intern(a));
+		assertSame(a, pool.intern(new String("name")));
+
+		StringBuilder sb = new StringBuilder("na").append("me");
+		assertSame(a, pool.intern(sb));
+		sb.setLength(0);
+		assertEquals("", pool.intern(sb));
+
+		assertEquals(2, pool.getHitCount());
+		assertEquals(2, pool.getMissCount());
+		assertEquals(2, pool.size());
+		// 40 + 2 * 4 bytes, twice
+		assertEquals(96, pool.getSavedBytes());
+
+		pool.clear();
+		assertEquals(0, pool.size());
+		assertEquals(0.5, pool.getHitRatio(), 0);
+	}
+
+	@Test
+	public void testEviction() {
+		StringPool pool = new StringPool(5);
+		assertEquals(8, pool.capacity());
+
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("s" + i, pool.intern("s" + i));
+		}
+		assertEquals(8, pool.size());
+		assertEquals(1000, pool.getMissCount());
+		assertTrue(pool.getEvictionCount() >= 1000 - 8);
+
+		// the most recently added string in each set survives
+		assertSame(pool.intern("s999"), pool.intern(new String("s999")));
+	}
+
+	@Test
+	public void testConcurrent() {
+		final StringPool pool = new StringPool(1024);
+		final int names = 50;
+		final int lookups = 200000;
+
+		ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(new Lookups(pool, names, 0, lookups / 2),
+						new Lookups(pool, names, lookups / 2, lookups));
+			}
+		});
+
+		assertEquals(lookups, pool.getHitCount() + pool.getMissCount());
+		assertTrue(pool.getHitRatio() > 0.9);
+		assertTrue(pool.getSavedBytes() > 0);
+	}
+
+	private static final class Lookups extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final StringPool pool;
+		private final int names;
+		private final int from;
+		private final int to;
+
+		Lookups(StringPool pool, int names, int from, int to) {
+			this.pool = pool;
+			this.names = names;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			StringBuilder sb = new StringBuilder();
+			for (int i = from; i < to; i++) {
+				sb.setLength(0);
+				sb.append("property").append(i % names);
+				String str = pool.intern(sb);
+				if (!str.contentEquals(sb)) {
+					throw new AssertionError(str + " != " + sb);
+				}
+			}
+		}
+	}
+}
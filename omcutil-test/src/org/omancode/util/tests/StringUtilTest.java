@@ -0,0 +1,50 @@
+package org.omancode.util.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omancode.util.FunctionCallBuilder;
+import org.omancode.util.StringUtil;
+
+public class StringUtilTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	@Test
+	public void testFunctionCall() {
+		assertEquals("func(1, 2.5, x)", StringUtil.functionCall("func", 1, 2.5,
+				"x"));
+		assertEquals("func()", StringUtil.functionCall("func"));
+	}
+
+	@Test
+	public void testFunctionCallBuilder() throws Exception {
+		FunctionCallBuilder call = new FunctionCallBuilder();
+		StringBuilder sb = new StringBuilder();
+
+		call.start(sb, "f").arg(1).arg(2L).arg(0.5).arg(true).end();
+		sb.append('\n');
+		call.start(sb, "g").argQuoted("a \"b\"\\\n\u0001").name("n").arg("x")
+				.arg((Object) null).end();
+		assertEquals("f(1, 2, 0.5, true)\n"
+				+ "g(\"a \\\"b\\\"\\\\\\n\\u0001\", n = x, null)", sb
+				.toString());
+
+		StringWriter writer = new StringWriter();
+		call.start("h").end().appendTo(writer);
+		call.start("i").arg(3).end().appendTo(writer);
+		assertEquals("h()i(3)", writer.toString());
+		assertEquals("i(3)", call.toString());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testArgBeforeStart() {
+		new FunctionCallBuilder().arg(1);
+	}
+
+}
@@ -0,0 +1,626 @@
+package org.omancode.math;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.omancode.util.ArrayUtil;
+
+/**
+ * Static utility class of in-place element-wise arithmetic on
+ * {@code double[]} and on row ranges of {@code double[][]}, and of matrix
+ * products. The element-wise methods do not allocate. Work of at least
+ * {@link #PARALLEL_THRESHOLD} elements (or multiply-adds, for products) is
+ * split across the common fork join pool.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class ArrayMath {
+
+	/**
+	 * Number of elements at and above which the kernels run in parallel.
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	/**
+	 * Columns of the right hand operand in each block of a matrix product.
+	 * Together with {@link #INNER_BLOCK} sized so a block of the transposed
+	 * operand (128KB) stays in the L2 cache while the rows of the left
+	 * operand stream past it.
+	 */
+	private static final int COLUMN_BLOCK = 64;
+
+	/**
+	 * Inner dimension of each block of a matrix product.
+	 */
+	private static final int INNER_BLOCK = 256;
+
+	/**
+	 * Side of the tiles used to transpose the right hand operand.
+	 */
+	private static final int TRANSPOSE_TILE = 64;
+
+	/**
+	 * The element-wise operations. Each updates its last array argument.
+	 */
+	private enum Kernel {
+		/** {@code y += a * x}. */
+		AXPY,
+		/** {@code x *= a}. */
+		SCALE,
+		/** {@code y += x}. */
+		ADD,
+		/** {@code y *= x}. */
+		MULTIPLY,
+		/** {@code z += x * y}. */
+		FMA
+	}
+
+	private ArrayMath() {
+		// static util class
+	}
+
+	/**
+	 * {@code y[i] += a * x[i]} for every element.
+	 *
+	 * @param a
+	 *            scalar
+	 * @param x
+	 *            input array
+	 * @param y
+	 *            array to update, same length as {@code x}
+	 */
+	public static void axpy(double a, double[] x, double[] y) {
+		checkLength(x, y);
+		run(Kernel.AXPY, a, x, y, null);
+	}
+
+	/**
+	 * {@code x[i] *= a} for every element.
+	 *
+	 * @param a
+	 *            scalar
+	 * @param x
+	 *            array to update
+	 */
+	public static void scale(double a, double[] x) {
+		run(Kernel.SCALE, a, x, null, null);
+	}
+
+	/**
+	 * {@code y[i] += x[i]} for every element.
+	 *
+	 * @param x
+	 *            input array
+	 * @param y
+	 *            array to update, same length as {@code x}
+	 */
+	public static void add(double[] x, double[] y) {
+		checkLength(x, y);
+		run(Kernel.ADD, 0, x, y, null);
+	}
+
+	/**
+	 * {@code y[i] *= x[i]} for every element.
+	 *
+	 * @param x
+	 *            input array
+	 * @param y
+	 *            array to update, same length as {@code x}
+	 */
+	public static void multiply(double[] x, double[] y) {
+		checkLength(x, y);
+		run(Kernel.MULTIPLY, 0, x, y, null);
+	}
+
+	/**
+	 * {@code z[i] += x[i] * y[i]} for every element. The product is rounded
+	 * before it is added, ie: this is not the single rounding fused
+	 * multiply-add of {@code Math.fma}, which needs Java 9.
+	 *
+	 * @param x
+	 *            input array
+	 * @param y
+	 *            input array, same length as {@code x}
+	 * @param z
+	 *            array to update, same length as {@code x}
+	 */
+	public static void fma(double[] x, double[] y, double[] z) {
+		checkLength(x, y);
+		checkLength(x, z);
+		run(Kernel.FMA, 0, x, y, z);
+	}
+
+	/**
+	 * {@link #axpy(double, double[], double[])} on each row in
+	 * {@code [fromRow, toRow)}.
+	 *
+	 * @param a
+	 *            scalar
+	 * @param x
+	 *            input matrix
+	 * @param y
+	 *            matrix to update, rows the same length as {@code x}
+	 * @param fromRow
+	 *            first row (inclusive)
+	 * @param toRow
+	 *            last row (exclusive)
+	 */
+	public static void axpy(double a, double[][] x, double[][] y,
+			int fromRow, int toRow) {
+		runRows(Kernel.AXPY, a, x, y, null, fromRow, toRow);
+	}
+
+	/**
+	 * {@link #scale(double, double[])} on each row in
+	 * {@code [fromRow, toRow)}.
+	 *
+	 * @param a
+	 *            scalar
+	 * @param x
+	 *            matrix to update
+	 * @param fromRow
+	 *            first row (inclusive)
+	 * @param toRow
+	 *            last row (exclusive)
+	 */
+	public static void scale(double a, double[][] x, int fromRow, int toRow) {
+		runRows(Kernel.SCALE, a, x, null, null, fromRow, toRow);
+	}
+
+	/**
+	 * {@link #add(double[], double[])} on each row in
+	 * {@code [fromRow, toRow)}.
+	 *
+	 * @param x
+	 *            input matrix
+	 * @param y
+	 *            matrix to update, rows the same length as {@code x}
+	 * @param fromRow
+	 *            first row (inclusive)
+	 * @param toRow
+	 *            last row (exclusive)
+	 */
+	public static void add(double[][] x, double[][] y, int fromRow, int toRow) {
+		runRows(Kernel.ADD, 0, x, y, null, fromRow, toRow);
+	}
+
+	/**
+	 * {@link #multiply(double[], double[])} on each row in
+	 * {@code [fromRow, toRow)}.
+	 *
+	 * @param x
+	 *            input matrix
+	 * @param y
+	 *            matrix to update, rows the same length as {@code x}
+	 * @param fromRow
+	 *            first row (inclusive)
+	 * @param toRow
+	 *            last row (exclusive)
+	 */
+	public static void multiply(double[][] x, double[][] y, int fromRow,
+			int toRow) {
+		runRows(Kernel.MULTIPLY, 0, x, y, null, fromRow, toRow);
+	}
+
+	/**
+	 * {@link #fma(double[], double[], double[])} on each row in
+	 * {@code [fromRow, toRow)}.
+	 *
+	 * @param x
+	 *            input matrix
+	 * @param y
+	 *            input matrix, rows the same length as {@code x}
+	 * @param z
+	 *            matrix to update, rows the same length as {@code x}
+	 * @param fromRow
+	 *            first row (inclusive)
+	 * @param toRow
+	 *            last row (exclusive)
+	 */
+	public static void fma(double[][] x, double[][] y, double[][] z,
+			int fromRow, int toRow) {
+		runRows(Kernel.FMA, 0, x, y, z, fromRow, toRow);
+	}
+
+	/**
+	 * Matrix product {@code a * b}. {@code b} is first transposed so every
+	 * inner product reads two contiguous rows, and the product is then
+	 * computed in blocks of columns and of the inner dimension so each block
+	 * of the transposed {@code b} is reused from cache by every row of
+	 * {@code a}. Blocks of rows are computed in parallel when the product
+	 * needs at least {@link #PARALLEL_THRESHOLD} multiply-adds. Needs no
+	 * native BLAS.
+	 * <p>
+	 * The result can differ from {@link ArrayUtil#transpose(double[][])}
+	 * followed by a naive triple loop in the last bits, because the inner
+	 * products are summed in a different order.
+	 *
+	 * @param a
+	 *            left matrix, {@code n x m}, rectangular
+	 * @param b
+	 *            right matrix, {@code m x p}, rectangular
+	 * @return new {@code n x p} matrix
+	 */
+	public static double[][] multiplyMatrix(double[][] a, double[][] b) {
+		int n = a.length;
+		int m = checkRectangular(a, -1);
+		if (n > 0 && m != b.length) {
+			throw new IllegalArgumentException("inner dimensions differ: "
+					+ m + " != " + b.length);
+		}
+		int p = checkRectangular(b, -1);
+
+		double[][] c = new double[n][p];
+		if (n == 0 || p == 0 || m == 0) {
+			return c;
+		}
+		double[][] bt = transposeBlocked(b, m, p);
+
+		if ((long) n * m * p >= PARALLEL_THRESHOLD) {
+			ForkJoinPool.commonPool().invoke(
+					new ProductTask(a, bt, c, 0, n));
+		} else {
+			multiplyBlocked(a, bt, c, 0, n);
+		}
+		return c;
+	}
+
+	/**
+	 * Matrix vector product {@code a * x}. Rows are computed in parallel
+	 * when {@code a} has at least {@link #PARALLEL_THRESHOLD} elements.
+	 *
+	 * @param a
+	 *            matrix, {@code n x m}, rectangular
+	 * @param x
+	 *            vector of length {@code m}
+	 * @return new vector of length {@code n}
+	 */
+	public static double[] multiplyVector(double[][] a, double[] x) {
+		int n = a.length;
+		double[] y = new double[n];
+		if (n == 0) {
+			return y;
+		}
+		int m = checkRectangular(a, x.length);
+
+		if ((long) n * m >= PARALLEL_THRESHOLD) {
+			ForkJoinPool.commonPool().invoke(
+					new VectorTask(a, x, y, 0, n));
+		} else {
+			multiplyRows(a, x, y, 0, n);
+		}
+		return y;
+	}
+
+	/**
+	 * Check every row of {@code matrix} has the same length.
+	 *
+	 * @param matrix
+	 *            matrix
+	 * @param expected
+	 *            required row length, or -1 for the length of the first row
+	 * @return row length, or 0 if there are no rows
+	 */
+	private static int checkRectangular(double[][] matrix, int expected) {
+		if (matrix.length == 0) {
+			return 0;
+		}
+		int cols = expected < 0 ? matrix[0].length : expected;
+		for (int r = 0; r < matrix.length; r++) {
+			if (matrix[r].length != cols) {
+				throw new IllegalArgumentException("row " + r + " has length "
+						+ matrix[r].length + ", expected " + cols);
+			}
+		}
+		return cols;
+	}
+
+	/**
+	 * Transpose tile by tile so both the reads and the writes stay within a
+	 * few cache lines per row.
+	 */
+	private static double[][] transposeBlocked(double[][] matrix, int rows,
+			int cols) {
+		double[][] result = new double[cols][rows];
+		for (int r0 = 0; r0 < rows; r0 += TRANSPOSE_TILE) {
+			int r1 = Math.min(rows, r0 + TRANSPOSE_TILE);
+			for (int c0 = 0; c0 < cols; c0 += TRANSPOSE_TILE) {
+				int c1 = Math.min(cols, c0 + TRANSPOSE_TILE);
+				for (int r = r0; r < r1; r++) {
+					double[] row = matrix[r];
+					for (int c = c0; c < c1; c++) {
+						result[c][r] = row[c];
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Rows {@code [fromRow, toRow)} of {@code c = a * bt'}.
+	 */
+	private static void multiplyBlocked(double[][] a, double[][] bt,
+			double[][] c, int fromRow, int toRow) {
+		int m = bt[0].length;
+		int p = bt.length;
+		for (int j0 = 0; j0 < p; j0 += COLUMN_BLOCK) {
+			int j1 = Math.min(p, j0 + COLUMN_BLOCK);
+			for (int k0 = 0; k0 < m; k0 += INNER_BLOCK) {
+				int k1 = Math.min(m, k0 + INNER_BLOCK);
+				for (int i = fromRow; i < toRow; i++) {
+					double[] ai = a[i];
+					double[] ci = c[i];
+					for (int j = j0; j < j1; j++) {
+						ci[j] += dot(ai, bt[j], k0, k1);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rows {@code [fromRow, toRow)} of {@code y = a * x}.
+	 */
+	private static void multiplyRows(double[][] a, double[] x, double[] y,
+			int fromRow, int toRow) {
+		for (int i = fromRow; i < toRow; i++) {
+			y[i] = dot(a[i], x, 0, x.length);
+		}
+	}
+
+	/**
+	 * Inner product of {@code [from, to)} of two arrays, with four
+	 * independent accumulators so the additions can overlap.
+	 */
+	private static double dot(double[] x, double[] y, int from, int to) {
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = from;
+		for (int end = to - 3; i < end; i += 4) {
+			s0 += x[i] * y[i];
+			s1 += x[i + 1] * y[i + 1];
+			s2 += x[i + 2] * y[i + 2];
+			s3 += x[i + 3] * y[i + 3];
+		}
+		for (; i < to; i++) {
+			s0 += x[i] * y[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	private static void checkLength(double[] a, double[] b) {
+		if (a.length != b.length) {
+			throw new IllegalArgumentException("length mismatch: " + a.length
+					+ " != " + b.length);
+		}
+	}
+
+	private static void run(Kernel kernel, double a, double[] x, double[] y,
+			double[] z) {
+		if (x.length >= PARALLEL_THRESHOLD) {
+			ForkJoinPool.commonPool().invoke(
+					new RangeTask(kernel, a, x, y, z, 0, x.length));
+		} else {
+			apply(kernel, a, x, y, z, 0, x.length);
+		}
+	}
+
+	private static void runRows(Kernel kernel, double a, double[][] x,
+			double[][] y, double[][] z, int fromRow, int toRow) {
+		if (fromRow < 0 || toRow > x.length || fromRow > toRow) {
+			throw new IndexOutOfBoundsException("rows [" + fromRow + ", "
+					+ toRow + ") outside " + x.length);
+		}
+		long cells = 0;
+		for (int r = fromRow; r < toRow; r++) {
+			checkLength(x[r], y == null ? x[r] : y[r]);
+			checkLength(x[r], z == null ? x[r] : z[r]);
+			cells += x[r].length;
+		}
+
+		if (cells >= PARALLEL_THRESHOLD) {
+			ForkJoinPool.commonPool().invoke(
+					new RowsTask(kernel, a, x, y, z, fromRow, toRow));
+		} else {
+			applyRows(kernel, a, x, y, z, fromRow, toRow);
+		}
+	}
+
+	private static void apply(Kernel kernel, double a, double[] x,
+			double[] y, double[] z, int from, int to) {
+		switch (kernel) {
+		case AXPY:
+			for (int i = from; i < to; i++) {
+				y[i] += a * x[i];
+			}
+			break;
+		case SCALE:
+			for (int i = from; i < to; i++) {
+				x[i] *= a;
+			}
+			break;
+		case ADD:
+			for (int i = from; i < to; i++) {
+				y[i] += x[i];
+			}
+			break;
+		case MULTIPLY:
+			for (int i = from; i < to; i++) {
+				y[i] *= x[i];
+			}
+			break;
+		case FMA:
+			for (int i = from; i < to; i++) {
+				z[i] += x[i] * y[i];
+			}
+			break;
+		default:
+			throw new IllegalStateException("Unknown kernel " + kernel);
+		}
+	}
+
+	private static void applyRows(Kernel kernel, double a, double[][] x,
+			double[][] y, double[][] z, int fromRow, int toRow) {
+		for (int r = fromRow; r < toRow; r++) {
+			apply(kernel, a, x[r], y == null ? null : y[r], z == null ? null
+					: z[r], 0, x[r].length);
+		}
+	}
+
+	/**
+	 * Applies a kernel to a range of elements, splitting it in half while it
+	 * is larger than {@link ArrayMath#PARALLEL_THRESHOLD}.
+	 */
+	private static final class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final Kernel kernel;
+		private final double a;
+		private final double[] x;
+		private final double[] y;
+		private final double[] z;
+		private final int from;
+		private final int to;
+
+		RangeTask(Kernel kernel, double a, double[] x, double[] y,
+				double[] z, int from, int to) {
+			this.kernel = kernel;
+			this.a = a;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				apply(kernel, a, x, y, z, from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new RangeTask(kernel, a, x, y, z, from, mid),
+					new RangeTask(kernel, a, x, y, z, mid, to));
+		}
+	}
+
+	/**
+	 * Applies a kernel to a range of rows, splitting it in half while it
+	 * holds more than {@link ArrayMath#PARALLEL_THRESHOLD} elements.
+	 */
+	private static final class RowsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final Kernel kernel;
+		private final double a;
+		private final double[][] x;
+		private final double[][] y;
+		private final double[][] z;
+		private final int fromRow;
+		private final int toRow;
+
+		RowsTask(Kernel kernel, double a, double[][] x, double[][] y,
+				double[][] z, int fromRow, int toRow) {
+			this.kernel = kernel;
+			this.a = a;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+		}
+
+		@Override
+		protected void compute() {
+			if (toRow - fromRow == 1 && x[fromRow].length > PARALLEL_THRESHOLD) {
+				// a single long row is split by elements instead
+				new RangeTask(kernel, a, x[fromRow], y == null ? null
+						: y[fromRow], z == null ? null : z[fromRow], 0,
+						x[fromRow].length).compute();
+				return;
+			}
+			if (toRow - fromRow <= 1
+					|| (long) (toRow - fromRow) * x[fromRow].length <= PARALLEL_THRESHOLD) {
+				applyRows(kernel, a, x, y, z, fromRow, toRow);
+				return;
+			}
+			int mid = (fromRow + toRow) >>> 1;
+			invokeAll(new RowsTask(kernel, a, x, y, z, fromRow, mid),
+					new RowsTask(kernel, a, x, y, z, mid, toRow));
+		}
+	}
+
+	/**
+	 * Computes a block of rows of a matrix product, splitting it in half
+	 * while it needs more than {@link ArrayMath#PARALLEL_THRESHOLD}
+	 * multiply-adds.
+	 */
+	private static final class ProductTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final double[][] a;
+		private final double[][] bt;
+		private final double[][] c;
+		private final int fromRow;
+		private final int toRow;
+
+		ProductTask(double[][] a, double[][] bt, double[][] c, int fromRow,
+				int toRow) {
+			this.a = a;
+			this.bt = bt;
+			this.c = c;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+		}
+
+		@Override
+		protected void compute() {
+			long work = (long) (toRow - fromRow) * bt.length * bt[0].length;
+			if (toRow - fromRow <= 1 || work <= PARALLEL_THRESHOLD) {
+				multiplyBlocked(a, bt, c, fromRow, toRow);
+				return;
+			}
+			int mid = (fromRow + toRow) >>> 1;
+			invokeAll(new ProductTask(a, bt, c, fromRow, mid),
+					new ProductTask(a, bt, c, mid, toRow));
+		}
+	}
+
+	/**
+	 * Computes a block of rows of a matrix vector product, splitting it in
+	 * half while it covers more than {@link ArrayMath#PARALLEL_THRESHOLD}
+	 * elements.
+	 */
+	private static final class VectorTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final double[][] a;
+		private final double[] x;
+		private final double[] y;
+		private final int fromRow;
+		private final int toRow;
+
+		VectorTask(double[][] a, double[] x, double[] y, int fromRow,
+				int toRow) {
+			this.a = a;
+			this.x = x;
+			this.y = y;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+		}
+
+		@Override
+		protected void compute() {
+			if (toRow - fromRow <= 1
+					|| (long) (toRow - fromRow) * x.length <= PARALLEL_THRESHOLD) {
+				multiplyRows(a, x, y, fromRow, toRow);
+				return;
+			}
+			int mid = (fromRow + toRow) >>> 1;
+			invokeAll(new VectorTask(a, x, y, fromRow, mid),
+					new VectorTask(a, x, y, mid, toRow));
+		}
+	}
+}
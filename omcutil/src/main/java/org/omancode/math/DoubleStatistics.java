@@ -0,0 +1,473 @@
+package org.omancode.math;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.omancode.util.DoubleSlice;
+
+/**
+ * Summary statistics (count, NaN count, sum, mean, variance, min and max) of
+ * a series of doubles, accumulated in a single pass. NaN values are counted
+ * but otherwise ignored.
+ * <p>
+ * The mean and variance use Welford's online algorithm, which is numerically
+ * stable. The sum is accumulated separately with Neumaier compensated
+ * summation, so it is as accurate as
+ * {@link org.omancode.util.ArrayUtil#sumCompensated(double[])}. Infinite
+ * values are counted rather than accumulated, so the sum and mean are
+ * infinite, or NaN if there are infinities of both signs, and the variance is
+ * NaN, as they would be for naive summation. Partial results from separate
+ * threads are combined with
+ * {@link #merge(DoubleStatistics)}. The static methods compute statistics for
+ * a {@code double[]} or for every column of a row-major {@code double[][]}
+ * in one sweep over the rows, without transposing it first.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class DoubleStatistics {
+
+	/**
+	 * Below this many cells, {@link #ofColumnsParallel(double[][])} runs in
+	 * a single thread.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	private long count = 0;
+	private long nanCount = 0;
+	private long positiveInfinityCount = 0;
+	private long negativeInfinityCount = 0;
+	private double mean = 0;
+	private double m2 = 0;
+	private double sum = 0;
+	private double sumCompensation = 0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Construct empty statistics.
+	 */
+	public DoubleStatistics() {
+		// empty
+	}
+
+	private DoubleStatistics(Columns columns, int c) {
+		this.count = columns.count[c];
+		this.nanCount = columns.nanCount[c];
+		this.positiveInfinityCount = columns.positiveInfinityCount[c];
+		this.negativeInfinityCount = columns.negativeInfinityCount[c];
+		this.mean = columns.mean[c];
+		this.m2 = columns.m2[c];
+		this.sum = columns.sum[c];
+		this.sumCompensation = columns.sumCompensation[c];
+		this.min = columns.min[c];
+		this.max = columns.max[c];
+	}
+
+	/**
+	 * Add a value.
+	 *
+	 * @param value
+	 *            value
+	 */
+	public void add(double value) {
+		if (Double.isNaN(value)) {
+			nanCount++;
+			return;
+		}
+		count++;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+		if (value == Double.POSITIVE_INFINITY) {
+			positiveInfinityCount++;
+			return;
+		}
+		if (value == Double.NEGATIVE_INFINITY) {
+			negativeInfinityCount++;
+			return;
+		}
+
+		double delta = value - mean;
+		mean += delta / getFiniteCount();
+		m2 += delta * (value - mean);
+
+		double t = sum + value;
+		if (Math.abs(sum) >= Math.abs(value)) {
+			sumCompensation += (sum - t) + value;
+		} else {
+			sumCompensation += (value - t) + sum;
+		}
+		sum = t;
+	}
+
+	/**
+	 * Combine another set of statistics into this one, as if all of its
+	 * values had been added to this.
+	 *
+	 * @param other
+	 *            statistics to merge
+	 */
+	public void merge(DoubleStatistics other) {
+		nanCount += other.nanCount;
+		if (other.count == 0) {
+			return;
+		}
+		long finite = getFiniteCount();
+		long otherFinite = other.getFiniteCount();
+		if (finite == 0) {
+			mean = other.mean;
+			m2 = other.m2;
+		} else if (otherFinite > 0) {
+			long n = finite + otherFinite;
+			double delta = other.mean - mean;
+			mean += delta * otherFinite / n;
+			m2 += other.m2 + delta * delta
+					* ((double) finite * otherFinite / n);
+		}
+
+		double t = sum + other.sum;
+		double c;
+		if (Math.abs(sum) >= Math.abs(other.sum)) {
+			c = (sum - t) + other.sum;
+		} else {
+			c = (other.sum - t) + sum;
+		}
+		sumCompensation += other.sumCompensation + c;
+		sum = t;
+
+		count += other.count;
+		positiveInfinityCount += other.positiveInfinityCount;
+		negativeInfinityCount += other.negativeInfinityCount;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Number of values that are neither NaN nor infinite, ie: those included
+	 * in the mean and variance.
+	 */
+	private long getFiniteCount() {
+		return count - positiveInfinityCount - negativeInfinityCount;
+	}
+
+	private boolean hasInfinity() {
+		return positiveInfinityCount > 0 || negativeInfinityCount > 0;
+	}
+
+	/**
+	 * Number of non-NaN values.
+	 *
+	 * @return count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Number of NaN values.
+	 *
+	 * @return NaN count
+	 */
+	public long getNaNCount() {
+		return nanCount;
+	}
+
+	/**
+	 * Sum of non-NaN values. Infinite if there are infinite values of one
+	 * sign or the sum overflows, NaN if there are infinite values of both
+	 * signs.
+	 *
+	 * @return sum
+	 */
+	public double getSum() {
+		if (positiveInfinityCount > 0) {
+			return negativeInfinityCount > 0 ? Double.NaN
+					: Double.POSITIVE_INFINITY;
+		}
+		if (negativeInfinityCount > 0) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		// once the sum overflows the compensation is Inf - Inf
+		return Double.isFinite(sum) ? sum + sumCompensation : sum;
+	}
+
+	/**
+	 * Mean of non-NaN values, or NaN if there are none. Infinite or NaN if
+	 * there are infinite values, as per {@link #getSum()}.
+	 *
+	 * @return mean
+	 */
+	public double getMean() {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		return hasInfinity() ? getSum() : mean;
+	}
+
+	/**
+	 * Sample variance (dividing by {@code n - 1}), or NaN if there are fewer
+	 * than two values or any infinite values.
+	 *
+	 * @return sample variance
+	 */
+	public double getVariance() {
+		return count < 2 || hasInfinity() ? Double.NaN : m2 / (count - 1);
+	}
+
+	/**
+	 * Population variance (dividing by {@code n}), or NaN if there are no
+	 * values or any infinite values.
+	 *
+	 * @return population variance
+	 */
+	public double getPopulationVariance() {
+		return count == 0 || hasInfinity() ? Double.NaN : m2 / count;
+	}
+
+	/**
+	 * Sample standard deviation.
+	 *
+	 * @return square root of {@link #getVariance()}
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * Minimum non-NaN value, or NaN if there are none.
+	 *
+	 * @return minimum
+	 */
+	public double getMin() {
+		return count == 0 ? Double.NaN : min;
+	}
+
+	/**
+	 * Maximum non-NaN value, or NaN if there are none.
+	 *
+	 * @return maximum
+	 */
+	public double getMax() {
+		return count == 0 ? Double.NaN : max;
+	}
+
+	@Override
+	public String toString() {
+		return "count: " + count + ", NaN count: " + nanCount + ", sum: "
+				+ getSum() + ", mean: " + getMean() + ", variance: "
+				+ getVariance() + ", min: " + getMin() + ", max: " + getMax();
+	}
+
+	/**
+	 * Statistics of all the values in an array.
+	 *
+	 * @param array
+	 *            values
+	 * @return statistics
+	 */
+	public static DoubleStatistics of(double[] array) {
+		DoubleStatistics stats = new DoubleStatistics();
+		for (int i = 0; i < array.length; i++) {
+			stats.add(array[i]);
+		}
+		return stats;
+	}
+
+	/**
+	 * Statistics of the values in a slice of an array, without copying
+	 * them.
+	 *
+	 * @param slice
+	 *            values
+	 * @return statistics
+	 */
+	public static DoubleStatistics of(DoubleSlice slice) {
+		DoubleStatistics stats = new DoubleStatistics();
+		double[] array = slice.array();
+		int stride = slice.stride();
+		for (int i = 0, j = slice.offset(); i < slice.size(); i++, j += stride) {
+			stats.add(array[j]);
+		}
+		return stats;
+	}
+
+	/**
+	 * Statistics of each column of a row-major matrix, computed in a single
+	 * sweep over the rows. Rows may be of different lengths, in which case
+	 * the number of columns is the longest row.
+	 *
+	 * @param matrix
+	 *            matrix of values, eg: {@code matrix[row][col]}
+	 * @return statistics for each column
+	 */
+	public static DoubleStatistics[] ofColumns(double[][] matrix) {
+		return new Columns(maxRowLength(matrix)).addRows(matrix, 0,
+				matrix.length).toStatistics();
+	}
+
+	/**
+	 * Statistics of each column of a row-major matrix, as per
+	 * {@link #ofColumns(double[][])}, but with blocks of rows swept in
+	 * parallel on the common fork join pool and the per-block results merged.
+	 *
+	 * @param matrix
+	 *            matrix of values, eg: {@code matrix[row][col]}
+	 * @return statistics for each column
+	 */
+	public static DoubleStatistics[] ofColumnsParallel(double[][] matrix) {
+		int cols = maxRowLength(matrix);
+		return ForkJoinPool.commonPool()
+				.invoke(new ColumnsTask(matrix, cols, 0, matrix.length))
+				.toStatistics();
+	}
+
+	private static int maxRowLength(double[][] matrix) {
+		int cols = 0;
+		for (int i = 0; i < matrix.length; i++) {
+			cols = Math.max(cols, matrix[i].length);
+		}
+		return cols;
+	}
+
+	/**
+	 * Accumulators for every column, held in parallel primitive arrays so a
+	 * sweep along a row touches contiguous memory.
+	 */
+	private static final class Columns {
+		private final long[] count;
+		private final long[] nanCount;
+		private final long[] positiveInfinityCount;
+		private final long[] negativeInfinityCount;
+		private final double[] mean;
+		private final double[] m2;
+		private final double[] sum;
+		private final double[] sumCompensation;
+		private final double[] min;
+		private final double[] max;
+
+		Columns(int cols) {
+			count = new long[cols];
+			nanCount = new long[cols];
+			positiveInfinityCount = new long[cols];
+			negativeInfinityCount = new long[cols];
+			mean = new double[cols];
+			m2 = new double[cols];
+			sum = new double[cols];
+			sumCompensation = new double[cols];
+			min = new double[cols];
+			max = new double[cols];
+			Arrays.fill(min, Double.POSITIVE_INFINITY);
+			Arrays.fill(max, Double.NEGATIVE_INFINITY);
+		}
+
+		Columns addRows(double[][] matrix, int fromRow, int toRow) {
+			for (int r = fromRow; r < toRow; r++) {
+				double[] row = matrix[r];
+				for (int c = 0; c < row.length; c++) {
+					double value = row[c];
+					if (value != value) {
+						// NaN
+						nanCount[c]++;
+						continue;
+					}
+					count[c]++;
+					if (value < min[c]) {
+						min[c] = value;
+					}
+					if (value > max[c]) {
+						max[c] = value;
+					}
+					if (value == Double.POSITIVE_INFINITY) {
+						positiveInfinityCount[c]++;
+						continue;
+					}
+					if (value == Double.NEGATIVE_INFINITY) {
+						negativeInfinityCount[c]++;
+						continue;
+					}
+
+					long n = count[c] - positiveInfinityCount[c]
+							- negativeInfinityCount[c];
+					double delta = value - mean[c];
+					mean[c] += delta / n;
+					m2[c] += delta * (value - mean[c]);
+
+					double s = sum[c];
+					double t = s + value;
+					if (Math.abs(s) >= Math.abs(value)) {
+						sumCompensation[c] += (s - t) + value;
+					} else {
+						sumCompensation[c] += (value - t) + s;
+					}
+					sum[c] = t;
+				}
+			}
+			return this;
+		}
+
+		DoubleStatistics[] toStatistics() {
+			DoubleStatistics[] result = new DoubleStatistics[count.length];
+			for (int c = 0; c < result.length; c++) {
+				result[c] = new DoubleStatistics(this, c);
+			}
+			return result;
+		}
+
+		Columns merge(Columns other) {
+			for (int c = 0; c < count.length; c++) {
+				DoubleStatistics stats = new DoubleStatistics(this, c);
+				stats.merge(new DoubleStatistics(other, c));
+				count[c] = stats.count;
+				nanCount[c] = stats.nanCount;
+				positiveInfinityCount[c] = stats.positiveInfinityCount;
+				negativeInfinityCount[c] = stats.negativeInfinityCount;
+				mean[c] = stats.mean;
+				m2[c] = stats.m2;
+				sum[c] = stats.sum;
+				sumCompensation[c] = stats.sumCompensation;
+				min[c] = stats.min;
+				max[c] = stats.max;
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Sweeps a block of rows, splitting it in half while it is larger than
+	 * {@link DoubleStatistics#PARALLEL_THRESHOLD} cells.
+	 */
+	private static final class ColumnsTask extends RecursiveTask<Columns> {
+
+		private static final long serialVersionUID = 1L;
+		private final double[][] matrix;
+		private final int cols;
+		private final int fromRow;
+		private final int toRow;
+
+		ColumnsTask(double[][] matrix, int cols, int fromRow, int toRow) {
+			this.matrix = matrix;
+			this.cols = cols;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+		}
+
+		@Override
+		protected Columns compute() {
+			int rows = toRow - fromRow;
+			if (rows < 2 || (long) rows * cols <= PARALLEL_THRESHOLD) {
+				return new Columns(cols).addRows(matrix, fromRow, toRow);
+			}
+			int mid = (fromRow + toRow) >>> 1;
+			ColumnsTask top = new ColumnsTask(matrix, cols, fromRow, mid);
+			top.fork();
+			Columns bottom = new ColumnsTask(matrix, cols, mid, toRow)
+					.compute();
+			return top.join().merge(bottom);
+		}
+	}
+}
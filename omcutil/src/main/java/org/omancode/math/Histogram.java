@@ -0,0 +1,336 @@
+package org.omancode.math;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts of values falling into bins, defined either by a fixed width over a
+ * range or by arbitrary ascending bin edges. Built in a single pass without
+ * sorting or copying the values.
+ * <p>
+ * Bin {@code i} covers {@code [edge(i), edge(i + 1))}, except the last bin
+ * which also includes its upper edge. Values below the first edge or above
+ * the last edge are counted as underflow and overflow, and NaN values are
+ * counted separately.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class Histogram {
+
+	/**
+	 * Below this many values the parallel methods run in a single thread.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	private final double[] edges;
+
+	/**
+	 * Count for each bin, followed by underflow, overflow and NaN counts.
+	 */
+	private final long[] counts;
+
+	private Histogram(double[] edges, long[] counts) {
+		this.edges = edges;
+		this.counts = counts;
+	}
+
+	/**
+	 * Histogram of {@code bins} equal width bins from {@code min} to
+	 * {@code max}.
+	 *
+	 * @param values
+	 *            values to bin
+	 * @param min
+	 *            lower edge of the first bin
+	 * @param max
+	 *            upper edge of the last bin
+	 * @param bins
+	 *            number of bins
+	 * @return histogram
+	 */
+	public static Histogram ofFixedWidth(double[] values, double min,
+			double max, int bins) {
+		Binner binner = new Binner(fixedEdges(min, max, bins), true);
+		return new Histogram(binner.edges, binner.count(values, 0,
+				values.length));
+	}
+
+	/**
+	 * As per {@link #ofFixedWidth(double[], double, double, int)}, but
+	 * counting blocks of values in parallel on the common fork join pool
+	 * with separate counts per block that are summed at the end.
+	 *
+	 * @param values
+	 *            values to bin
+	 * @param min
+	 *            lower edge of the first bin
+	 * @param max
+	 *            upper edge of the last bin
+	 * @param bins
+	 *            number of bins
+	 * @return histogram
+	 */
+	public static Histogram ofFixedWidthParallel(double[] values, double min,
+			double max, int bins) {
+		Binner binner = new Binner(fixedEdges(min, max, bins), true);
+		return new Histogram(binner.edges, ForkJoinPool.commonPool().invoke(
+				new CountTask(binner, values, 0, values.length)));
+	}
+
+	/**
+	 * Histogram with bins defined by {@code edges}.
+	 *
+	 * @param values
+	 *            values to bin
+	 * @param edges
+	 *            strictly ascending bin edges, at least two. {@code n}
+	 *            edges define {@code n - 1} bins.
+	 * @return histogram
+	 */
+	public static Histogram ofEdges(double[] values, double[] edges) {
+		Binner binner = new Binner(checkEdges(edges), false);
+		return new Histogram(binner.edges, binner.count(values, 0,
+				values.length));
+	}
+
+	/**
+	 * As per {@link #ofEdges(double[], double[])}, but counting blocks of
+	 * values in parallel on the common fork join pool.
+	 *
+	 * @param values
+	 *            values to bin
+	 * @param edges
+	 *            strictly ascending bin edges, at least two
+	 * @return histogram
+	 */
+	public static Histogram ofEdgesParallel(double[] values, double[] edges) {
+		Binner binner = new Binner(checkEdges(edges), false);
+		return new Histogram(binner.edges, ForkJoinPool.commonPool().invoke(
+				new CountTask(binner, values, 0, values.length)));
+	}
+
+	private static double[] fixedEdges(double min, double max, int bins) {
+		if (bins < 1) {
+			throw new IllegalArgumentException("bins must be >= 1: " + bins);
+		}
+		if (!(min < max)) {
+			throw new IllegalArgumentException("min must be less than max");
+		}
+		double[] edges = new double[bins + 1];
+		double width = (max - min) / bins;
+		for (int i = 0; i < bins; i++) {
+			edges[i] = min + i * width;
+		}
+		edges[bins] = max;
+		return edges;
+	}
+
+	private static double[] checkEdges(double[] edges) {
+		if (edges.length < 2) {
+			throw new IllegalArgumentException("at least two edges required");
+		}
+		for (int i = 1; i < edges.length; i++) {
+			if (!(edges[i - 1] < edges[i])) {
+				throw new IllegalArgumentException(
+						"edges must be strictly ascending");
+			}
+		}
+		return edges.clone();
+	}
+
+	/**
+	 * Number of bins.
+	 *
+	 * @return number of bins
+	 */
+	public int getBinCount() {
+		return edges.length - 1;
+	}
+
+	/**
+	 * Lower edge of bin {@code i}, or upper edge of the last bin when
+	 * {@code i == getBinCount()}.
+	 *
+	 * @param i
+	 *            edge index
+	 * @return edge
+	 */
+	public double getEdge(int i) {
+		return edges[i];
+	}
+
+	/**
+	 * Number of values in bin {@code i}.
+	 *
+	 * @param i
+	 *            bin index
+	 * @return count
+	 */
+	public long getCount(int i) {
+		if (i < 0 || i >= getBinCount()) {
+			throw new IndexOutOfBoundsException("bin: " + i);
+		}
+		return counts[i];
+	}
+
+	/**
+	 * Counts of all bins.
+	 *
+	 * @return new array of counts, one per bin
+	 */
+	public long[] getCounts() {
+		return Arrays.copyOf(counts, getBinCount());
+	}
+
+	/**
+	 * Number of values below the first edge.
+	 *
+	 * @return underflow count
+	 */
+	public long getUnderflow() {
+		return counts[getBinCount()];
+	}
+
+	/**
+	 * Number of values above the last edge.
+	 *
+	 * @return overflow count
+	 */
+	public long getOverflow() {
+		return counts[getBinCount() + 1];
+	}
+
+	/**
+	 * Number of NaN values.
+	 *
+	 * @return NaN count
+	 */
+	public long getNaNCount() {
+		return counts[getBinCount() + 2];
+	}
+
+	/**
+	 * Number of values binned, excluding underflow, overflow and NaNs.
+	 *
+	 * @return total of all bin counts
+	 */
+	public long getTotal() {
+		long total = 0;
+		for (int i = 0; i < getBinCount(); i++) {
+			total += counts[i];
+		}
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < getBinCount(); i++) {
+			sb.append('[').append(edges[i]).append(", ")
+					.append(edges[i + 1]).append(i == getBinCount() - 1 ? "]" : ")")
+					.append(": ").append(counts[i]).append('\n');
+		}
+		sb.append("underflow: ").append(getUnderflow()).append(", overflow: ")
+				.append(getOverflow()).append(", NaN: ").append(getNaNCount());
+		return sb.toString();
+	}
+
+	/**
+	 * Finds the bin of each value.
+	 */
+	private static final class Binner {
+		private final double[] edges;
+		private final boolean fixedWidth;
+		private final int bins;
+		private final double min;
+		private final double max;
+		private final double scale;
+
+		Binner(double[] edges, boolean fixedWidth) {
+			this.edges = edges;
+			this.fixedWidth = fixedWidth;
+			this.bins = edges.length - 1;
+			this.min = edges[0];
+			this.max = edges[bins];
+			this.scale = bins / (max - min);
+		}
+
+		long[] count(double[] values, int from, int to) {
+			long[] counts = new long[bins + 3];
+			for (int i = from; i < to; i++) {
+				double value = values[i];
+				if (value >= min && value <= max) {
+					counts[bin(value)]++;
+				} else if (value < min) {
+					counts[bins]++;
+				} else if (value > max) {
+					counts[bins + 1]++;
+				} else {
+					counts[bins + 2]++;
+				}
+			}
+			return counts;
+		}
+
+		/**
+		 * Bin of a value known to be between {@link #min} and {@link #max}.
+		 */
+		private int bin(double value) {
+			if (fixedWidth) {
+				int bin = (int) ((value - min) * scale);
+				// correct for rounding, and put max in the last bin
+				if (bin >= bins) {
+					return bins - 1;
+				}
+				if (value < edges[bin]) {
+					return bin - 1;
+				}
+				if (bin + 1 < bins && value >= edges[bin + 1]) {
+					return bin + 1;
+				}
+				return bin;
+			}
+			int pos = Arrays.binarySearch(edges, value);
+			int bin = pos >= 0 ? pos : -pos - 2;
+			return bin >= bins ? bins - 1 : bin;
+		}
+	}
+
+	/**
+	 * Counts a block of values, splitting it in half while it is larger than
+	 * {@link Histogram#PARALLEL_THRESHOLD}.
+	 */
+	private static final class CountTask extends RecursiveTask<long[]> {
+
+		private static final long serialVersionUID = 1L;
+		private final Binner binner;
+		private final double[] values;
+		private final int from;
+		private final int to;
+
+		CountTask(Binner binner, double[] values, int from, int to) {
+			this.binner = binner;
+			this.values = values;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				return binner.count(values, from, to);
+			}
+			int mid = (from + to) >>> 1;
+			CountTask left = new CountTask(binner, values, from, mid);
+			left.fork();
+			long[] right = new CountTask(binner, values, mid, to).compute();
+			long[] counts = left.join();
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += right[i];
+			}
+			return counts;
+		}
+	}
+}
@@ -0,0 +1,393 @@
+package org.omancode.math;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.omancode.util.ArgSort;
+import org.omancode.util.DoubleList;
+
+/**
+ * A streaming quantile sketch (KLL, after Karnin, Lang and Liberty, "Optimal
+ * Quantile Approximation in Streams", 2016). Estimates quantiles and ranks of
+ * a stream of doubles in one pass, retaining only
+ * {@code O(k log(n / k))} values rather than sorting a copy of all of them.
+ * <p>
+ * Values are kept in a hierarchy of compactors. When a level fills it is
+ * sorted and every other value (from a random offset) is promoted to the
+ * next level with double the weight. The rank error of an estimate is
+ * roughly proportional to {@code 1 / k}: with the default
+ * {@code k = 200}, estimated ranks are within about 1.65% of the true rank
+ * with 99% confidence. {@link #getMin()} and {@link #getMax()} are exact.
+ * <p>
+ * Sketches of separate parts of the data (eg: built in separate threads) can
+ * be combined with {@link #merge(QuantileSketch)}. NaN values are ignored.
+ * Not thread-safe.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class QuantileSketch {
+
+	/**
+	 * Default accuracy parameter.
+	 */
+	public static final int DEFAULT_K = 200;
+
+	/**
+	 * Smallest capacity of any level.
+	 */
+	private static final int MIN_LEVEL_CAPACITY = 8;
+
+	/**
+	 * Each level below the top has this fraction of the capacity of the level
+	 * above it.
+	 */
+	private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+	private final int k;
+
+	private final Random random;
+
+	/**
+	 * Values at each level. A value at level {@code h} has weight
+	 * {@code 2^h}.
+	 */
+	private final List<DoubleList> levels = new ArrayList<DoubleList>();
+
+	private long n = 0;
+
+	private double min = Double.NaN;
+
+	private double max = Double.NaN;
+
+	/**
+	 * Construct with {@link #DEFAULT_K}.
+	 */
+	public QuantileSketch() {
+		this(DEFAULT_K);
+	}
+
+	/**
+	 * Construct with accuracy parameter {@code k}. Larger is more accurate
+	 * and uses more memory.
+	 *
+	 * @param k
+	 *            accuracy parameter, at least 8
+	 */
+	public QuantileSketch(int k) {
+		this(k, new Random());
+	}
+
+	/**
+	 * Construct with accuracy parameter {@code k} and a seed for the random
+	 * choices made when compacting, so results are reproducible.
+	 *
+	 * @param k
+	 *            accuracy parameter, at least 8
+	 * @param seed
+	 *            random seed
+	 */
+	public QuantileSketch(int k, long seed) {
+		this(k, new Random(seed));
+	}
+
+	private QuantileSketch(int k, Random random) {
+		if (k < MIN_LEVEL_CAPACITY) {
+			throw new IllegalArgumentException("k must be >= "
+					+ MIN_LEVEL_CAPACITY + ": " + k);
+		}
+		this.k = k;
+		this.random = random;
+		levels.add(new DoubleList(k));
+	}
+
+	/**
+	 * Sketch all values of an array.
+	 *
+	 * @param values
+	 *            values
+	 * @return sketch with {@link #DEFAULT_K}
+	 */
+	public static QuantileSketch of(double[] values) {
+		QuantileSketch sketch = new QuantileSketch();
+		sketch.addAll(values);
+		return sketch;
+	}
+
+	/**
+	 * Add a value.
+	 *
+	 * @param value
+	 *            value, ignored if NaN
+	 */
+	public void add(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		if (n == 0) {
+			min = value;
+			max = value;
+		} else if (value < min) {
+			min = value;
+		} else if (value > max) {
+			max = value;
+		}
+		n++;
+
+		DoubleList level0 = levels.get(0);
+		level0.add(value);
+		if (level0.size() >= capacity(0)) {
+			compress();
+		}
+	}
+
+	/**
+	 * Add all values of an array.
+	 *
+	 * @param values
+	 *            values, NaNs are ignored
+	 */
+	public void addAll(double[] values) {
+		for (int i = 0; i < values.length; i++) {
+			add(values[i]);
+		}
+	}
+
+	/**
+	 * Combine another sketch into this one, as if all of its values had been
+	 * added to this. The other sketch is unchanged.
+	 *
+	 * @param other
+	 *            sketch to merge
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.n == 0) {
+			return;
+		}
+		if (n == 0) {
+			min = other.min;
+			max = other.max;
+		} else {
+			min = Math.min(min, other.min);
+			max = Math.max(max, other.max);
+		}
+		n += other.n;
+
+		while (levels.size() < other.levels.size()) {
+			levels.add(new DoubleList());
+		}
+		for (int h = 0; h < other.levels.size(); h++) {
+			levels.get(h).addAll(other.levels.get(h));
+		}
+		compress();
+	}
+
+	/**
+	 * Capacity of level {@code h}. The top level has capacity {@code k} and
+	 * each level below it is smaller by {@link #CAPACITY_DECAY}.
+	 */
+	private int capacity(int h) {
+		int depth = levels.size() - 1 - h;
+		return Math.max(MIN_LEVEL_CAPACITY,
+				(int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+	}
+
+	/**
+	 * Compact full levels, from the bottom up, until every level is within
+	 * its capacity.
+	 */
+	private void compress() {
+		for (int h = 0; h < levels.size(); h++) {
+			if (levels.get(h).size() >= capacity(h)) {
+				if (h + 1 == levels.size()) {
+					levels.add(new DoubleList());
+				}
+				compact(h);
+			}
+		}
+	}
+
+	/**
+	 * Sort level {@code h} and promote every other value to level
+	 * {@code h + 1}. With an odd number of values, one stays behind.
+	 */
+	private void compact(int h) {
+		DoubleList level = levels.get(h);
+		DoubleList above = levels.get(h + 1);
+		level.sort();
+
+		double[] values = level.array();
+		int size = level.size();
+		int pairs = size & ~1;
+		// keep the largest value behind when odd
+		double leftover = values[size - 1];
+		for (int i = random.nextBoolean() ? 1 : 0; i < pairs; i += 2) {
+			above.add(values[i]);
+		}
+		level.clear();
+		if (size != pairs) {
+			level.add(leftover);
+		}
+	}
+
+	/**
+	 * Number of values added.
+	 *
+	 * @return count, excluding NaNs
+	 */
+	public long getN() {
+		return n;
+	}
+
+	/**
+	 * Smallest value added.
+	 *
+	 * @return exact minimum, or NaN if empty
+	 */
+	public double getMin() {
+		return min;
+	}
+
+	/**
+	 * Largest value added.
+	 *
+	 * @return exact maximum, or NaN if empty
+	 */
+	public double getMax() {
+		return max;
+	}
+
+	/**
+	 * Number of values retained by the sketch.
+	 *
+	 * @return retained count
+	 */
+	public int getRetained() {
+		int retained = 0;
+		for (DoubleList level : levels) {
+			retained += level.size();
+		}
+		return retained;
+	}
+
+	/**
+	 * Estimate the value at quantile {@code q}.
+	 *
+	 * @param q
+	 *            quantile from 0 to 1, eg: 0.5 for the median
+	 * @return estimated value, or NaN if empty
+	 */
+	public double quantile(double q) {
+		return quantiles(new double[] { q })[0];
+	}
+
+	/**
+	 * Estimate the values at several quantiles at once, sorting the retained
+	 * values only once.
+	 *
+	 * @param qs
+	 *            quantiles from 0 to 1
+	 * @return estimated values, in the same order as {@code qs}
+	 */
+	public double[] quantiles(double[] qs) {
+		double[] result = new double[qs.length];
+		if (n == 0) {
+			Arrays.fill(result, Double.NaN);
+			return result;
+		}
+
+		Weighted sorted = sortedRetained();
+		for (int j = 0; j < qs.length; j++) {
+			double q = qs[j];
+			if (!(q >= 0 && q <= 1)) {
+				throw new IllegalArgumentException(
+						"quantile must be between 0 and 1: " + q);
+			}
+			if (q == 0) {
+				result[j] = min;
+			} else if (q == 1) {
+				result[j] = max;
+			} else {
+				double target = q * n;
+				int i = 0;
+				while (i < sorted.cumulative.length - 1
+						&& sorted.cumulative[i] < target) {
+					i++;
+				}
+				result[j] = sorted.values[i];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Estimate the fraction of values less than or equal to {@code value}.
+	 *
+	 * @param value
+	 *            value
+	 * @return estimated normalised rank from 0 to 1, or NaN if empty
+	 */
+	public double rank(double value) {
+		if (n == 0) {
+			return Double.NaN;
+		}
+		long weight = 0;
+		for (int h = 0; h < levels.size(); h++) {
+			DoubleList level = levels.get(h);
+			double[] values = level.array();
+			for (int i = 0; i < level.size(); i++) {
+				if (values[i] <= value) {
+					weight += 1L << h;
+				}
+			}
+		}
+		return (double) weight / n;
+	}
+
+	/**
+	 * Retained values in ascending order with cumulative weights.
+	 */
+	private Weighted sortedRetained() {
+		int retained = getRetained();
+		double[] values = new double[retained];
+		long[] weights = new long[retained];
+		int r = 0;
+		for (int h = 0; h < levels.size(); h++) {
+			DoubleList level = levels.get(h);
+			System.arraycopy(level.array(), 0, values, r, level.size());
+			Arrays.fill(weights, r, r + level.size(), 1L << h);
+			r += level.size();
+		}
+
+		int[] perm = ArgSort.sort(values);
+		Weighted sorted = new Weighted(retained);
+		long cumulative = 0;
+		for (int i = 0; i < retained; i++) {
+			cumulative += weights[perm[i]];
+			sorted.values[i] = values[perm[i]];
+			sorted.cumulative[i] = cumulative;
+		}
+		return sorted;
+	}
+
+	/**
+	 * Sorted values and cumulative weights.
+	 */
+	private static final class Weighted {
+		private final double[] values;
+		private final long[] cumulative;
+
+		Weighted(int size) {
+			values = new double[size];
+			cumulative = new long[size];
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "n: " + n + ", retained: " + getRetained() + ", levels: "
+				+ levels.size() + ", min: " + min + ", max: " + max;
+	}
+}
@@ -0,0 +1,471 @@
+package org.omancode.math;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.omancode.util.DoubleList;
+import org.omancode.util.IntIntMap;
+import org.omancode.util.IntList;
+
+/**
+ * Static utility class for shuffling and random sampling of primitive
+ * arrays without boxing. All methods take their randomness from a
+ * {@link SplittableRandom}, or from a seed, so runs can be reproduced.
+ * <p>
+ * The parallel methods divide the array into blocks of a fixed size and give
+ * each block its own generator split from the seed in block order. The
+ * result for a given seed is therefore the same whatever the number of
+ * threads, though it differs from the sequential method with the same seed.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class Sampling {
+
+	/**
+	 * Number of elements in each block of the parallel methods. Fixed, so
+	 * the blocks and their generators do not depend on the pool.
+	 */
+	private static final int BLOCK = 1 << 16;
+
+	private Sampling() {
+		// static util class
+	}
+
+	/**
+	 * Shuffle in place with the Fisher-Yates algorithm.
+	 *
+	 * @param array
+	 *            array to shuffle
+	 * @param random
+	 *            source of randomness
+	 */
+	public static void shuffle(double[] array, SplittableRandom random) {
+		for (int i = array.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			double tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+
+	/**
+	 * Shuffle in place with the Fisher-Yates algorithm.
+	 *
+	 * @param array
+	 *            array to shuffle
+	 * @param random
+	 *            source of randomness
+	 */
+	public static void shuffle(int[] array, SplittableRandom random) {
+		for (int i = array.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+
+	/**
+	 * Shuffle in place with the Fisher-Yates algorithm.
+	 *
+	 * @param array
+	 *            array to shuffle
+	 * @param random
+	 *            source of randomness
+	 */
+	public static void shuffle(long[] array, SplittableRandom random) {
+		for (int i = array.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			long tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+
+	/**
+	 * Shuffle in place with the Fisher-Yates algorithm.
+	 *
+	 * @param array
+	 *            array to shuffle
+	 * @param random
+	 *            source of randomness
+	 */
+	public static void shuffle(Object[] array, SplittableRandom random) {
+		for (int i = array.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			Object tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+
+	/**
+	 * Choose {@code k} distinct indices from {@code [0, n)}, in random order.
+	 * Runs a partial Fisher-Yates shuffle over a virtual array of indices,
+	 * storing only the swapped positions, so takes time and memory
+	 * proportional to {@code k} rather than {@code n}.
+	 *
+	 * @param n
+	 *            population size
+	 * @param k
+	 *            sample size, at most {@code n}
+	 * @param random
+	 *            source of randomness
+	 * @return {@code k} indices
+	 */
+	public static int[] sampleIndices(int n, int k, SplittableRandom random) {
+		if (k < 0 || k > n) {
+			throw new IllegalArgumentException("sample size " + k
+					+ " outside [0, " + n + "]");
+		}
+		int[] sample = new int[k];
+		IntIntMap swapped = new IntIntMap(2 * k);
+		for (int i = 0; i < k; i++) {
+			int j = i + random.nextInt(n - i);
+			sample[i] = swapped.get(j, j);
+			swapped.put(j, swapped.get(i, i));
+		}
+		return sample;
+	}
+
+	/**
+	 * Choose {@code k} distinct elements of {@code values} at random.
+	 *
+	 * @param values
+	 *            population
+	 * @param k
+	 *            sample size, at most {@code values.length}
+	 * @param random
+	 *            source of randomness
+	 * @return new array of {@code k} values, in random order
+	 * @see #sampleIndices(int, int, SplittableRandom)
+	 */
+	public static double[] sample(double[] values, int k,
+			SplittableRandom random) {
+		int[] indices = sampleIndices(values.length, k, random);
+		double[] sample = new double[k];
+		for (int i = 0; i < k; i++) {
+			sample[i] = values[indices[i]];
+		}
+		return sample;
+	}
+
+	/**
+	 * Reservoir sample of {@code k} elements of {@code values}, reading the
+	 * values in a single forward pass. Uses Li's Algorithm L, which draws
+	 * how many values to skip rather than a random number per value, so the
+	 * number of random draws grows only with {@code k log(n / k)}.
+	 *
+	 * @param values
+	 *            population
+	 * @param k
+	 *            sample size
+	 * @param random
+	 *            source of randomness
+	 * @return new array of {@code min(k, values.length)} values
+	 */
+	public static double[] reservoir(double[] values, int k,
+			SplittableRandom random) {
+		return reservoir(values, 0, values.length, k, random);
+	}
+
+	/**
+	 * As per {@link #reservoir(double[], int, SplittableRandom)}, but
+	 * sampling blocks of the array in parallel on the common fork join pool.
+	 * Block samples are combined by drawing from each in proportion to the
+	 * number of values it still represents, so the result is still a uniform
+	 * sample of the whole array.
+	 *
+	 * @param values
+	 *            population
+	 * @param k
+	 *            sample size
+	 * @param seed
+	 *            random seed
+	 * @return new array of {@code min(k, values.length)} values, in random
+	 *         order
+	 */
+	public static double[] reservoirParallel(double[] values, int k, long seed) {
+		checkSampleSize(k);
+		return ForkJoinPool.commonPool().invoke(
+				new ReservoirTask(values, k, blockRandoms(values.length, seed),
+						0, blocks(values.length))).values;
+	}
+
+	/**
+	 * Bernoulli sample of {@code values}, keeping each value independently
+	 * with probability {@code p}. Draws the gap to the next kept value from
+	 * a geometric distribution, so needs one random draw per kept value
+	 * rather than per value.
+	 *
+	 * @param values
+	 *            population
+	 * @param p
+	 *            probability of keeping each value
+	 * @param random
+	 *            source of randomness
+	 * @return new array of the kept values, in their original order
+	 */
+	public static double[] bernoulli(double[] values, double p,
+			SplittableRandom random) {
+		return bernoulli(values, 0, values.length, p, random).trimmedArray();
+	}
+
+	/**
+	 * Indices kept by a Bernoulli sample of {@code [0, n)}.
+	 *
+	 * @param n
+	 *            population size
+	 * @param p
+	 *            probability of keeping each index
+	 * @param random
+	 *            source of randomness
+	 * @return kept indices, ascending
+	 * @see #bernoulli(double[], double, SplittableRandom)
+	 */
+	public static int[] bernoulliIndices(int n, double p,
+			SplittableRandom random) {
+		checkProbability(p);
+		IntList kept = new IntList((int) Math.min(n, n * p * 1.1 + 16));
+		for (long i = nextGap(-1, p, random); i < n; i = nextGap(i, p, random)) {
+			kept.add((int) i);
+		}
+		return kept.trimmedArray();
+	}
+
+	/**
+	 * As per {@link #bernoulli(double[], double, SplittableRandom)}, but
+	 * sampling blocks of the array in parallel on the common fork join pool.
+	 *
+	 * @param values
+	 *            population
+	 * @param p
+	 *            probability of keeping each value
+	 * @param seed
+	 *            random seed
+	 * @return new array of the kept values, in their original order
+	 */
+	public static double[] bernoulliParallel(double[] values, double p,
+			long seed) {
+		checkProbability(p);
+		return ForkJoinPool.commonPool().invoke(
+				new BernoulliTask(values, p, blockRandoms(values.length, seed),
+						0, blocks(values.length))).trimmedArray();
+	}
+
+	private static void checkSampleSize(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("sample size must be >= 0: "
+					+ k);
+		}
+	}
+
+	private static void checkProbability(double p) {
+		if (!(p >= 0 && p <= 1)) {
+			throw new IllegalArgumentException(
+					"probability must be between 0 and 1: " + p);
+		}
+	}
+
+	/**
+	 * Uniform double in {@code (0, 1]}, safe to take the log of.
+	 */
+	private static double nextOpenDouble(SplittableRandom random) {
+		return 1.0 - random.nextDouble();
+	}
+
+	/**
+	 * Index of the next value kept by a Bernoulli sample after index
+	 * {@code i}. May be beyond the end of the array.
+	 */
+	private static long nextGap(long i, double p, SplittableRandom random) {
+		if (p >= 1) {
+			return i + 1;
+		}
+		if (p <= 0) {
+			return Long.MAX_VALUE;
+		}
+		double skip = Math.floor(Math.log(nextOpenDouble(random))
+				/ Math.log1p(-p));
+		return skip >= Integer.MAX_VALUE ? Long.MAX_VALUE : i + 1
+				+ (long) skip;
+	}
+
+	private static DoubleList bernoulli(double[] values, int from, int to,
+			double p, SplittableRandom random) {
+		checkProbability(p);
+		DoubleList kept = new DoubleList((int) Math.min(to - from, (to - from)
+				* p * 1.1 + 16));
+		for (long i = nextGap(from - 1, p, random); i < to; i = nextGap(i, p,
+				random)) {
+			kept.add(values[(int) i]);
+		}
+		return kept;
+	}
+
+	/**
+	 * Algorithm L over {@code [from, to)}.
+	 */
+	private static double[] reservoir(double[] values, int from, int to,
+			int k, SplittableRandom random) {
+		checkSampleSize(k);
+		int size = Math.min(k, to - from);
+		double[] sample = new double[size];
+		System.arraycopy(values, from, sample, 0, size);
+		if (size < k || k == 0) {
+			return sample;
+		}
+
+		double w = Math.exp(Math.log(nextOpenDouble(random)) / k);
+		long i = from + k - 1;
+		while (true) {
+			double skip = Math.floor(Math.log(nextOpenDouble(random))
+					/ Math.log1p(-w));
+			if (skip >= to - i - 1) {
+				break;
+			}
+			i += (long) skip + 1;
+			sample[random.nextInt(k)] = values[(int) i];
+			w *= Math.exp(Math.log(nextOpenDouble(random)) / k);
+		}
+		return sample;
+	}
+
+	private static int blocks(int length) {
+		return Math.max(1, (length + BLOCK - 1) / BLOCK);
+	}
+
+	/**
+	 * One generator per block, split from the seed in block order.
+	 */
+	private static SplittableRandom[] blockRandoms(int length, long seed) {
+		SplittableRandom root = new SplittableRandom(seed);
+		SplittableRandom[] randoms = new SplittableRandom[blocks(length)];
+		for (int b = 0; b < randoms.length; b++) {
+			randoms[b] = root.split();
+		}
+		return randoms;
+	}
+
+	/**
+	 * A sample in random order and the number of values it was drawn from.
+	 */
+	private static final class Sample {
+		private final double[] values;
+		private final long population;
+
+		Sample(double[] values, long population) {
+			this.values = values;
+			this.population = population;
+		}
+	}
+
+	/**
+	 * Parallel reservoir sample of blocks {@code [fromBlock, toBlock)}.
+	 */
+	private static final class ReservoirTask extends RecursiveTask<Sample> {
+
+		private static final long serialVersionUID = 1L;
+		private final double[] values;
+		private final int k;
+		private final SplittableRandom[] randoms;
+		private final int fromBlock;
+		private final int toBlock;
+
+		ReservoirTask(double[] values, int k, SplittableRandom[] randoms,
+				int fromBlock, int toBlock) {
+			this.values = values;
+			this.k = k;
+			this.randoms = randoms;
+			this.fromBlock = fromBlock;
+			this.toBlock = toBlock;
+		}
+
+		@Override
+		protected Sample compute() {
+			if (toBlock - fromBlock == 1) {
+				int from = fromBlock * BLOCK;
+				int to = (int) Math.min(values.length, (long) from + BLOCK);
+				SplittableRandom random = randoms[fromBlock];
+				double[] sample = reservoir(values, from, to, k, random);
+				// merging draws from the front, so needs random order
+				shuffle(sample, random);
+				return new Sample(sample, to - from);
+			}
+			int mid = (fromBlock + toBlock) >>> 1;
+			ReservoirTask left = new ReservoirTask(values, k, randoms,
+					fromBlock, mid);
+			left.fork();
+			Sample right = new ReservoirTask(values, k, randoms, mid, toBlock)
+					.compute();
+			// the right half has finished with this generator
+			return merge(left.join(), right, randoms[mid]);
+		}
+
+		/**
+		 * Sample without replacement from the union of the populations of
+		 * two samples. Each draw comes from the left with probability
+		 * proportional to the values the left still represents.
+		 */
+		private Sample merge(Sample left, Sample right, SplittableRandom random) {
+			long remainingLeft = left.population;
+			long remainingRight = right.population;
+			int size = (int) Math.min(k, remainingLeft + remainingRight);
+			double[] merged = new double[size];
+			int l = 0;
+			int r = 0;
+			for (int s = 0; s < size; s++) {
+				if (random.nextLong(remainingLeft + remainingRight) < remainingLeft) {
+					merged[s] = left.values[l++];
+					remainingLeft--;
+				} else {
+					merged[s] = right.values[r++];
+					remainingRight--;
+				}
+			}
+			return new Sample(merged, left.population + right.population);
+		}
+	}
+
+	/**
+	 * Parallel Bernoulli sample of blocks {@code [fromBlock, toBlock)}.
+	 */
+	private static final class BernoulliTask extends RecursiveTask<DoubleList> {
+
+		private static final long serialVersionUID = 1L;
+		private final double[] values;
+		private final double p;
+		private final SplittableRandom[] randoms;
+		private final int fromBlock;
+		private final int toBlock;
+
+		BernoulliTask(double[] values, double p, SplittableRandom[] randoms,
+				int fromBlock, int toBlock) {
+			this.values = values;
+			this.p = p;
+			this.randoms = randoms;
+			this.fromBlock = fromBlock;
+			this.toBlock = toBlock;
+		}
+
+		@Override
+		protected DoubleList compute() {
+			if (toBlock - fromBlock == 1) {
+				int from = fromBlock * BLOCK;
+				int to = (int) Math.min(values.length, (long) from + BLOCK);
+				return bernoulli(values, from, to, p, randoms[fromBlock]);
+			}
+			int mid = (fromBlock + toBlock) >>> 1;
+			BernoulliTask left = new BernoulliTask(values, p, randoms,
+					fromBlock, mid);
+			left.fork();
+			DoubleList right = new BernoulliTask(values, p, randoms, mid,
+					toBlock).compute();
+			DoubleList kept = left.join();
+			kept.addAll(right);
+			return kept;
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package org.omancode.math;
+
+import java.util.Arrays;
+
+/**
+ * A vector of doubles that stores only its non-zero elements, as parallel
+ * arrays of ascending indices and values. Operations take time proportional
+ * to the number of non-zero elements ({@code nnz}) rather than the length of
+ * the vector.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class SparseDoubleVector {
+
+	private static final int DEFAULT_CAPACITY = 8;
+
+	private final int length;
+
+	private int[] indices;
+
+	private double[] values;
+
+	private int nnz = 0;
+
+	/**
+	 * Construct an all zero vector.
+	 *
+	 * @param length
+	 *            length of the vector
+	 */
+	public SparseDoubleVector(int length) {
+		if (length < 0) {
+			throw new IllegalArgumentException("length must be >= 0: "
+					+ length);
+		}
+		this.length = length;
+		this.indices = new int[DEFAULT_CAPACITY];
+		this.values = new double[DEFAULT_CAPACITY];
+	}
+
+	/**
+	 * Construct from a dense array, storing only its non-zero elements.
+	 *
+	 * @param dense
+	 *            dense array
+	 */
+	public SparseDoubleVector(double[] dense) {
+		this.length = dense.length;
+		int count = 0;
+		for (int i = 0; i < dense.length; i++) {
+			if (dense[i] != 0) {
+				count++;
+			}
+		}
+		this.indices = new int[Math.max(count, 1)];
+		this.values = new double[Math.max(count, 1)];
+		for (int i = 0; i < dense.length; i++) {
+			if (dense[i] != 0) {
+				indices[nnz] = i;
+				values[nnz++] = dense[i];
+			}
+		}
+	}
+
+	/**
+	 * Construct from arrays of indices and values. The arrays are copied,
+	 * skipping zero values.
+	 *
+	 * @param length
+	 *            length of the vector
+	 * @param indices
+	 *            strictly ascending indices of the elements
+	 * @param values
+	 *            values of the elements
+	 */
+	public SparseDoubleVector(int length, int[] indices, double[] values) {
+		if (indices.length != values.length) {
+			throw new IllegalArgumentException(
+					"indices and values must be the same length");
+		}
+		int count = 0;
+		for (int i = 0; i < indices.length; i++) {
+			if (indices[i] < 0 || indices[i] >= length
+					|| (i > 0 && indices[i] <= indices[i - 1])) {
+				throw new IllegalArgumentException(
+						"indices must be strictly ascending and within length");
+			}
+			if (values[i] != 0) {
+				count++;
+			}
+		}
+		this.length = length;
+		this.indices = new int[Math.max(count, 1)];
+		this.values = new double[Math.max(count, 1)];
+		for (int i = 0; i < indices.length; i++) {
+			if (values[i] != 0) {
+				this.indices[nnz] = indices[i];
+				this.values[nnz++] = values[i];
+			}
+		}
+	}
+
+	/**
+	 * Length of the vector, including zeros.
+	 *
+	 * @return length
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Number of stored (non-zero) elements.
+	 *
+	 * @return nnz
+	 */
+	public int nonZeroCount() {
+		return nnz;
+	}
+
+	/**
+	 * Index of the {@code k}th stored element.
+	 *
+	 * @param k
+	 *            position, from 0 to {@link #nonZeroCount()} - 1
+	 * @return index in the vector
+	 */
+	public int indexAt(int k) {
+		return indices[k];
+	}
+
+	/**
+	 * Value of the {@code k}th stored element.
+	 *
+	 * @param k
+	 *            position, from 0 to {@link #nonZeroCount()} - 1
+	 * @return value
+	 */
+	public double valueAt(int k) {
+		return values[k];
+	}
+
+	private int find(int index) {
+		return Arrays.binarySearch(indices, 0, nnz, index);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("index: " + index
+					+ ", length: " + length);
+		}
+	}
+
+	/**
+	 * Get the element at {@code index}. Takes {@code O(log nnz)}.
+	 *
+	 * @param index
+	 *            index
+	 * @return value, zero if not stored
+	 */
+	public double get(int index) {
+		checkIndex(index);
+		int k = find(index);
+		return k >= 0 ? values[k] : 0;
+	}
+
+	/**
+	 * Set the element at {@code index}. Setting a zero removes a stored
+	 * element. Inserting a new element before existing ones shifts them, so
+	 * build vectors in ascending index order where possible.
+	 *
+	 * @param index
+	 *            index
+	 * @param value
+	 *            value
+	 */
+	public void set(int index, double value) {
+		checkIndex(index);
+		int k = find(index);
+		if (k >= 0) {
+			if (value == 0) {
+				System.arraycopy(indices, k + 1, indices, k, nnz - k - 1);
+				System.arraycopy(values, k + 1, values, k, nnz - k - 1);
+				nnz--;
+			} else {
+				values[k] = value;
+			}
+		} else if (value != 0) {
+			int insert = -(k + 1);
+			if (nnz == indices.length) {
+				int capacity = Math.max(DEFAULT_CAPACITY, nnz * 2);
+				indices = Arrays.copyOf(indices, capacity);
+				values = Arrays.copyOf(values, capacity);
+			}
+			System.arraycopy(indices, insert, indices, insert + 1, nnz
+					- insert);
+			System.arraycopy(values, insert, values, insert + 1, nnz - insert);
+			indices[insert] = index;
+			values[insert] = value;
+			nnz++;
+		}
+	}
+
+	/**
+	 * Sum of all elements.
+	 *
+	 * @return sum
+	 */
+	public double sum() {
+		double result = 0;
+		for (int k = 0; k < nnz; k++) {
+			result += values[k];
+		}
+		return result;
+	}
+
+	/**
+	 * Dot product with a dense array.
+	 *
+	 * @param dense
+	 *            dense array of the same length
+	 * @return dot product
+	 */
+	public double dot(double[] dense) {
+		checkLength(dense.length);
+		double result = 0;
+		for (int k = 0; k < nnz; k++) {
+			result += values[k] * dense[indices[k]];
+		}
+		return result;
+	}
+
+	/**
+	 * Dot product with another sparse vector. Takes
+	 * {@code O(nnz + other.nnz)}.
+	 *
+	 * @param other
+	 *            sparse vector of the same length
+	 * @return dot product
+	 */
+	public double dot(SparseDoubleVector other) {
+		checkLength(other.length);
+		double result = 0;
+		int i = 0;
+		int j = 0;
+		while (i < nnz && j < other.nnz) {
+			int a = indices[i];
+			int b = other.indices[j];
+			if (a == b) {
+				result += values[i++] * other.values[j++];
+			} else if (a < b) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Multiply every element by {@code factor}, in place.
+	 *
+	 * @param factor
+	 *            factor
+	 */
+	public void scale(double factor) {
+		if (factor == 0) {
+			zero();
+			return;
+		}
+		for (int k = 0; k < nnz; k++) {
+			values[k] *= factor;
+		}
+	}
+
+	/**
+	 * Return the element-wise sum of this vector and {@code other}. Takes
+	 * {@code O(nnz + other.nnz)}. Elements that cancel to zero are dropped.
+	 *
+	 * @param other
+	 *            sparse vector of the same length
+	 * @return new sparse vector
+	 */
+	public SparseDoubleVector add(SparseDoubleVector other) {
+		checkLength(other.length);
+		SparseDoubleVector result = new SparseDoubleVector(length);
+		result.indices = new int[Math.max(nnz + other.nnz, 1)];
+		result.values = new double[result.indices.length];
+
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while (i < nnz || j < other.nnz) {
+			int a = i < nnz ? indices[i] : Integer.MAX_VALUE;
+			int b = j < other.nnz ? other.indices[j] : Integer.MAX_VALUE;
+			int index;
+			double value;
+			if (a == b) {
+				index = a;
+				value = values[i++] + other.values[j++];
+			} else if (a < b) {
+				index = a;
+				value = values[i++];
+			} else {
+				index = b;
+				value = other.values[j++];
+			}
+			if (value != 0) {
+				result.indices[n] = index;
+				result.values[n++] = value;
+			}
+		}
+		result.nnz = n;
+		return result;
+	}
+
+	/**
+	 * Add this vector to a dense array, in place: {@code dense += this}.
+	 *
+	 * @param dense
+	 *            dense array of the same length
+	 */
+	public void addTo(double[] dense) {
+		checkLength(dense.length);
+		for (int k = 0; k < nnz; k++) {
+			dense[indices[k]] += values[k];
+		}
+	}
+
+	/**
+	 * Set all elements to zero. Takes constant time.
+	 */
+	public void zero() {
+		nnz = 0;
+	}
+
+	/**
+	 * Convert to a dense array.
+	 *
+	 * @return dense array of {@link #length()} elements
+	 */
+	public double[] toDense() {
+		double[] dense = new double[length];
+		for (int k = 0; k < nnz; k++) {
+			dense[indices[k]] = values[k];
+		}
+		return dense;
+	}
+
+	/**
+	 * Trim the storage arrays to the number of stored elements.
+	 */
+	public void trimToSize() {
+		int capacity = Math.max(nnz, 1);
+		if (capacity < indices.length) {
+			indices = Arrays.copyOf(indices, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+	}
+
+	private void checkLength(int otherLength) {
+		if (otherLength != length) {
+			throw new IllegalArgumentException("length mismatch: " + length
+					+ " != " + otherLength);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("length ").append(length).append(" {");
+		for (int k = 0; k < nnz; k++) {
+			if (k > 0) {
+				sb.append(", ");
+			}
+			sb.append(indices[k]).append('=').append(values[k]);
+		}
+		return sb.append('}').toString();
+	}
+}
@@ -0,0 +1,346 @@
+package org.omancode.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Static utility class that finds the sort order of primitive arrays without
+ * moving or boxing the values. The result is a permutation: an {@code int[]}
+ * of indices such that {@code values[perm[0]], values[perm[1]], ...} is in
+ * ascending order. Equal values keep their original relative order (the sort
+ * is stable).
+ * <p>
+ * Doubles are ordered as per {@link Double#compare(double, double)}, ie:
+ * {@code -0.0} before {@code 0.0} and NaNs last.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class ArgSort {
+
+	/**
+	 * Runs shorter than this are sorted by insertion sort.
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+
+	/**
+	 * Below this many elements the parallel sorts sort sequentially.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+	private ArgSort() {
+		// static util class
+	}
+
+	/**
+	 * Sort order of a {@code double[]}.
+	 *
+	 * @param values
+	 *            values, not modified
+	 * @return permutation that sorts {@code values}
+	 */
+	public static int[] sort(double[] values) {
+		return sortKeys(sortableKeys(values), false);
+	}
+
+	/**
+	 * Sort order of an {@code int[]}.
+	 *
+	 * @param values
+	 *            values, not modified
+	 * @return permutation that sorts {@code values}
+	 */
+	public static int[] sort(int[] values) {
+		return sortKeys(sortableKeys(values), false);
+	}
+
+	/**
+	 * Sort order of a {@code long[]}.
+	 *
+	 * @param values
+	 *            values, not modified
+	 * @return permutation that sorts {@code values}
+	 */
+	public static int[] sort(long[] values) {
+		return sortKeys(values.clone(), false);
+	}
+
+	/**
+	 * Sort order of a {@code double[]}, sorting and merging blocks in
+	 * parallel on the common fork join pool. Gives the same result as
+	 * {@link #sort(double[])}.
+	 *
+	 * @param values
+	 *            values, not modified
+	 * @return permutation that sorts {@code values}
+	 */
+	public static int[] parallelSort(double[] values) {
+		return sortKeys(sortableKeys(values), true);
+	}
+
+	/**
+	 * Sort order of an {@code int[]}, sorting and merging blocks in parallel
+	 * on the common fork join pool. Gives the same result as
+	 * {@link #sort(int[])}.
+	 *
+	 * @param values
+	 *            values, not modified
+	 * @return permutation that sorts {@code values}
+	 */
+	public static int[] parallelSort(int[] values) {
+		return sortKeys(sortableKeys(values), true);
+	}
+
+	/**
+	 * Sort order of a {@code long[]}, sorting and merging blocks in parallel
+	 * on the common fork join pool. Gives the same result as
+	 * {@link #sort(long[])}.
+	 *
+	 * @param values
+	 *            values, not modified
+	 * @return permutation that sorts {@code values}
+	 */
+	public static int[] parallelSort(long[] values) {
+		return sortKeys(values.clone(), true);
+	}
+
+	/**
+	 * Searches for {@code key} in {@code values} using the sort order
+	 * {@code perm}, as returned by {@link #sort(double[])}.
+	 *
+	 * @param values
+	 *            values
+	 * @param perm
+	 *            permutation that sorts {@code values}
+	 * @param key
+	 *            value to search for
+	 * @return position in {@code perm} of an index {@code i} such that
+	 *         {@code values[i] == key}, otherwise
+	 *         <tt>(-(<i>insertion point</i>) - 1)</tt> as per
+	 *         {@link java.util.Arrays#binarySearch(double[], double)}
+	 */
+	public static int binarySearch(double[] values, int[] perm, double key) {
+		int low = 0;
+		int high = perm.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = Double.compare(values[perm[mid]], key);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Searches for {@code key} in {@code values} using the sort order
+	 * {@code perm}, as returned by {@link #sort(int[])}.
+	 *
+	 * @param values
+	 *            values
+	 * @param perm
+	 *            permutation that sorts {@code values}
+	 * @param key
+	 *            value to search for
+	 * @return position in {@code perm} of an index {@code i} such that
+	 *         {@code values[i] == key}, otherwise
+	 *         <tt>(-(<i>insertion point</i>) - 1)</tt>
+	 */
+	public static int binarySearch(int[] values, int[] perm, int key) {
+		int low = 0;
+		int high = perm.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int value = values[perm[mid]];
+			if (value < key) {
+				low = mid + 1;
+			} else if (value > key) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Searches for {@code key} in {@code values} using the sort order
+	 * {@code perm}, as returned by {@link #sort(long[])}.
+	 *
+	 * @param values
+	 *            values
+	 * @param perm
+	 *            permutation that sorts {@code values}
+	 * @param key
+	 *            value to search for
+	 * @return position in {@code perm} of an index {@code i} such that
+	 *         {@code values[i] == key}, otherwise
+	 *         <tt>(-(<i>insertion point</i>) - 1)</tt>
+	 */
+	public static int binarySearch(long[] values, int[] perm, long key) {
+		int low = 0;
+		int high = perm.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long value = values[perm[mid]];
+			if (value < key) {
+				low = mid + 1;
+			} else if (value > key) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Map doubles to longs that compare in the same order as
+	 * {@link Double#compare(double, double)}, so all types can share one sort.
+	 */
+	private static long[] sortableKeys(double[] values) {
+		long[] keys = new long[values.length];
+		for (int i = 0; i < values.length; i++) {
+			long bits = Double.doubleToLongBits(values[i]);
+			// flip all but the sign bit of negatives so they order correctly
+			keys[i] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+		}
+		return keys;
+	}
+
+	private static long[] sortableKeys(int[] values) {
+		long[] keys = new long[values.length];
+		for (int i = 0; i < values.length; i++) {
+			keys[i] = values[i];
+		}
+		return keys;
+	}
+
+	/**
+	 * Stable merge sort of {@code keys} carrying the original indices along.
+	 * Keys and indices are kept in parallel arrays so merges read memory
+	 * sequentially.
+	 */
+	private static int[] sortKeys(long[] keys, boolean parallel) {
+		int n = keys.length;
+		int[] perm = new int[n];
+		for (int i = 0; i < n; i++) {
+			perm[i] = i;
+		}
+
+		long[] keyBuffer = new long[n];
+		int[] permBuffer = new int[n];
+		if (parallel && n > PARALLEL_THRESHOLD) {
+			ForkJoinPool.commonPool().invoke(
+					new SortTask(keys, perm, keyBuffer, permBuffer, 0, n));
+		} else {
+			mergeSort(keys, perm, keyBuffer, permBuffer, 0, n);
+		}
+		return perm;
+	}
+
+	private static void mergeSort(long[] keys, int[] perm, long[] keyBuffer,
+			int[] permBuffer, int from, int to) {
+		if (to - from <= INSERTION_SORT_THRESHOLD) {
+			insertionSort(keys, perm, from, to);
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		mergeSort(keys, perm, keyBuffer, permBuffer, from, mid);
+		mergeSort(keys, perm, keyBuffer, permBuffer, mid, to);
+		merge(keys, perm, keyBuffer, permBuffer, from, mid, to);
+	}
+
+	private static void insertionSort(long[] keys, int[] perm, int from,
+			int to) {
+		for (int i = from + 1; i < to; i++) {
+			long key = keys[i];
+			int index = perm[i];
+			int j = i - 1;
+			while (j >= from && keys[j] > key) {
+				keys[j + 1] = keys[j];
+				perm[j + 1] = perm[j];
+				j--;
+			}
+			keys[j + 1] = key;
+			perm[j + 1] = index;
+		}
+	}
+
+	/**
+	 * Merge the sorted runs {@code [from, mid)} and {@code [mid, to)}.
+	 */
+	private static void merge(long[] keys, int[] perm, long[] keyBuffer,
+			int[] permBuffer, int from, int mid, int to) {
+		if (keys[mid - 1] <= keys[mid]) {
+			// already in order
+			return;
+		}
+
+		System.arraycopy(keys, from, keyBuffer, from, to - from);
+		System.arraycopy(perm, from, permBuffer, from, to - from);
+
+		int i = from;
+		int j = mid;
+		int k = from;
+		while (i < mid && j < to) {
+			// take from the left run on ties to keep the sort stable
+			if (keyBuffer[j] < keyBuffer[i]) {
+				keys[k] = keyBuffer[j];
+				perm[k++] = permBuffer[j++];
+			} else {
+				keys[k] = keyBuffer[i];
+				perm[k++] = permBuffer[i++];
+			}
+		}
+		while (i < mid) {
+			keys[k] = keyBuffer[i];
+			perm[k++] = permBuffer[i++];
+		}
+		while (j < to) {
+			keys[k] = keyBuffer[j];
+			perm[k++] = permBuffer[j++];
+		}
+	}
+
+	/**
+	 * Sorts both halves in parallel then merges them.
+	 */
+	private static final class SortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final long[] keys;
+		private final int[] perm;
+		private final long[] keyBuffer;
+		private final int[] permBuffer;
+		private final int from;
+		private final int to;
+
+		SortTask(long[] keys, int[] perm, long[] keyBuffer, int[] permBuffer,
+				int from, int to) {
+			this.keys = keys;
+			this.perm = perm;
+			this.keyBuffer = keyBuffer;
+			this.permBuffer = permBuffer;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				mergeSort(keys, perm, keyBuffer, permBuffer, from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new SortTask(keys, perm, keyBuffer, permBuffer, from,
+					mid), new SortTask(keys, perm, keyBuffer, permBuffer, mid,
+					to));
+			merge(keys, perm, keyBuffer, permBuffer, from, mid, to);
+		}
+	}
+}
@@ -0,0 +1,376 @@
+package org.omancode.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * A pool of reusable primitive scratch arrays ({@code double[]},
+ * {@code int[]}, {@code long[]} and {@code byte[]}), to avoid allocating and
+ * zeroing a fresh array in hot loops.
+ * <p>
+ * Arrays are kept in buckets by power of two length, so a leased array may be
+ * longer than the length requested. Use {@link Lease#length()} rather than
+ * the array's own length to bound loops. Arrays too large to ever be
+ * retained, ie: whose bucket is bigger than the pool's maximum retained
+ * bytes, are allocated at exactly the length requested and not pooled. If
+ * the pool zeros arrays on return then every leased array is all zeros,
+ * otherwise it may contain values left by a previous lease.
+ * <p>
+ * A pool is not thread-safe. {@link #local()} returns a pool owned by the
+ * calling thread, and a {@link Lease} must be closed by the thread that
+ * obtained it. Typical use:
+ *
+ * <pre>
+ * try (ArrayPool.Lease&lt;double[]&gt; lease = ArrayPool.local().leaseDoubles(n)) {
+ * 	double[] scratch = lease.array();
+ * 	// use scratch[0 .. n-1]
+ * }
+ * </pre>
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class ArrayPool {
+
+	/**
+	 * Maximum bytes retained by each thread's {@link #local()} pool: 16MB.
+	 */
+	public static final long DEFAULT_MAX_RETAINED_BYTES = 16L * 1024 * 1024;
+
+	private static final ThreadLocal<ArrayPool> LOCAL = new ThreadLocal<ArrayPool>() {
+		@Override
+		protected ArrayPool initialValue() {
+			return new ArrayPool(DEFAULT_MAX_RETAINED_BYTES, true);
+		}
+	};
+
+	/**
+	 * Arrays longer than {@code 1 << MAX_BUCKET} are never pooled.
+	 */
+	private static final int MAX_BUCKET = 30;
+
+	/**
+	 * Supported array element types.
+	 */
+	private enum Kind {
+		DOUBLE(8) {
+			@Override
+			Object allocate(int length) {
+				return new double[length];
+			}
+
+			@Override
+			void zero(Object array) {
+				Arrays.fill((double[]) array, 0);
+			}
+		},
+		INT(4) {
+			@Override
+			Object allocate(int length) {
+				return new int[length];
+			}
+
+			@Override
+			void zero(Object array) {
+				Arrays.fill((int[]) array, 0);
+			}
+		},
+		LONG(8) {
+			@Override
+			Object allocate(int length) {
+				return new long[length];
+			}
+
+			@Override
+			void zero(Object array) {
+				Arrays.fill((long[]) array, 0);
+			}
+		},
+		BYTE(1) {
+			@Override
+			Object allocate(int length) {
+				return new byte[length];
+			}
+
+			@Override
+			void zero(Object array) {
+				Arrays.fill((byte[]) array, (byte) 0);
+			}
+		};
+
+		private final int bytesPerElement;
+
+		private Kind(int bytesPerElement) {
+			this.bytesPerElement = bytesPerElement;
+		}
+
+		abstract Object allocate(int length);
+
+		abstract void zero(Object array);
+	}
+
+	/**
+	 * A leased array. Closing the lease returns the array to the pool it came
+	 * from, after which the array must no longer be used.
+	 *
+	 * @param <A>
+	 *            array type
+	 */
+	public static final class Lease<A> implements AutoCloseable {
+
+		private final ArrayPool pool;
+		private final Kind kind;
+		private final int bucket;
+		private final int length;
+		private A array;
+
+		private Lease(ArrayPool pool, Kind kind, int bucket, int length,
+				A array) {
+			this.pool = pool;
+			this.kind = kind;
+			this.bucket = bucket;
+			this.length = length;
+			this.array = array;
+		}
+
+		/**
+		 * The leased array. May be longer than {@link #length()}.
+		 *
+		 * @return leased array
+		 * @throws IllegalStateException
+		 *             if the lease has been closed
+		 */
+		public A array() {
+			if (array == null) {
+				throw new IllegalStateException("Lease has been closed");
+			}
+			return array;
+		}
+
+		/**
+		 * The length requested when the array was leased.
+		 *
+		 * @return requested length
+		 */
+		public int length() {
+			return length;
+		}
+
+		/**
+		 * Return the array to the pool. Closing an already closed lease has no
+		 * effect.
+		 */
+		@Override
+		public void close() {
+			if (array != null) {
+				pool.release(kind, bucket, array);
+				array = null;
+			}
+		}
+	}
+
+	private final long maxRetainedBytes;
+
+	private final boolean zeroOnReturn;
+
+	/**
+	 * Free arrays, indexed by {@link Kind#ordinal()} then bucket.
+	 */
+	private final ArrayDeque<Object>[][] free;
+
+	private long retainedBytes = 0;
+
+	private long hits = 0;
+
+	private long misses = 0;
+
+	/**
+	 * Construct a pool. Most callers should use {@link #local()} instead.
+	 *
+	 * @param maxRetainedBytes
+	 *            maximum total size in bytes of the free arrays kept by the
+	 *            pool. Arrays returned once this is reached are left for the
+	 *            garbage collector.
+	 * @param zeroOnReturn
+	 *            if true, arrays are zeroed when returned so every leased
+	 *            array is all zeros
+	 */
+	public ArrayPool(long maxRetainedBytes, boolean zeroOnReturn) {
+		this.maxRetainedBytes = maxRetainedBytes;
+		this.zeroOnReturn = zeroOnReturn;
+		@SuppressWarnings("unchecked")
+		ArrayDeque<Object>[][] deques = (ArrayDeque<Object>[][])
+				new ArrayDeque<?>[Kind.values().length][MAX_BUCKET + 1];
+		this.free = deques;
+	}
+
+	/**
+	 * The calling thread's pool. It retains at most
+	 * {@link #DEFAULT_MAX_RETAINED_BYTES} and zeros arrays on return.
+	 *
+	 * @return pool owned by the current thread
+	 */
+	public static ArrayPool local() {
+		return LOCAL.get();
+	}
+
+	/**
+	 * Lease a {@code double[]} of at least {@code length} elements.
+	 *
+	 * @param length
+	 *            minimum length
+	 * @return lease
+	 */
+	public Lease<double[]> leaseDoubles(int length) {
+		return lease(Kind.DOUBLE, length);
+	}
+
+	/**
+	 * Lease an {@code int[]} of at least {@code length} elements.
+	 *
+	 * @param length
+	 *            minimum length
+	 * @return lease
+	 */
+	public Lease<int[]> leaseInts(int length) {
+		return lease(Kind.INT, length);
+	}
+
+	/**
+	 * Lease a {@code long[]} of at least {@code length} elements.
+	 *
+	 * @param length
+	 *            minimum length
+	 * @return lease
+	 */
+	public Lease<long[]> leaseLongs(int length) {
+		return lease(Kind.LONG, length);
+	}
+
+	/**
+	 * Lease a {@code byte[]} of at least {@code length} elements.
+	 *
+	 * @param length
+	 *            minimum length
+	 * @return lease
+	 */
+	public Lease<byte[]> leaseBytes(int length) {
+		return lease(Kind.BYTE, length);
+	}
+
+	/**
+	 * Bucket that holds arrays of length {@code 1 << bucket}, the smallest
+	 * power of two {@code >= length}.
+	 */
+	private static int bucketFor(int length) {
+		return length <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(length - 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <A> Lease<A> lease(Kind kind, int length) {
+		if (length < 0) {
+			throw new IllegalArgumentException("length must be >= 0: "
+					+ length);
+		}
+
+		int bucket = bucketFor(length);
+		if (bucket > MAX_BUCKET || bytes(kind, bucket) > maxRetainedBytes) {
+			// could never be retained, so don't round up
+			misses++;
+			return new Lease<A>(this, kind, -1, length,
+					(A) kind.allocate(length));
+		}
+
+		ArrayDeque<Object> deque = free[kind.ordinal()][bucket];
+		Object array = deque == null ? null : deque.pollFirst();
+		if (array == null) {
+			misses++;
+			array = kind.allocate(1 << bucket);
+		} else {
+			hits++;
+			retainedBytes -= bytes(kind, bucket);
+		}
+
+		return new Lease<A>(this, kind, bucket, length, (A) array);
+	}
+
+	private void release(Kind kind, int bucket, Object array) {
+		if (bucket < 0) {
+			return;
+		}
+
+		long size = bytes(kind, bucket);
+		if (retainedBytes + size > maxRetainedBytes) {
+			return;
+		}
+
+		if (zeroOnReturn) {
+			kind.zero(array);
+		}
+
+		ArrayDeque<Object> deque = free[kind.ordinal()][bucket];
+		if (deque == null) {
+			deque = new ArrayDeque<Object>();
+			free[kind.ordinal()][bucket] = deque;
+		}
+		deque.addFirst(array);
+		retainedBytes += size;
+	}
+
+	private static long bytes(Kind kind, int bucket) {
+		return (long) kind.bytesPerElement << bucket;
+	}
+
+	/**
+	 * Number of leases satisfied from a free array.
+	 *
+	 * @return hit count
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Number of leases that required a new array to be allocated.
+	 *
+	 * @return miss count
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Total size in bytes of the free arrays currently held by the pool.
+	 *
+	 * @return retained bytes
+	 */
+	public long getRetainedBytes() {
+		return retainedBytes;
+	}
+
+	/**
+	 * Maximum total size in bytes of free arrays held by the pool.
+	 *
+	 * @return maximum retained bytes
+	 */
+	public long getMaxRetainedBytes() {
+		return maxRetainedBytes;
+	}
+
+	/**
+	 * Release all free arrays to the garbage collector. Hit and miss counts
+	 * are not reset.
+	 */
+	public void clear() {
+		for (ArrayDeque<Object>[] buckets : free) {
+			Arrays.fill(buckets, null);
+		}
+		retainedBytes = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "ArrayPool[hits=" + hits + ", misses=" + misses
+				+ ", retainedBytes=" + retainedBytes + "]";
+	}
+}
@@ -1,5 +1,10 @@
 package org.omancode.util;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * Static utility class of array functions.
  * 
@@ -49,6 +54,272 @@ public final class ArrayUtil {
 		}
 	}
 
+	/**
+	 * Separator written between elements by the {@code appendTo} methods.
+	 */
+	private static final String ELEMENT_SEPARATOR = ", ";
+
+	/**
+	 * Write the array's contents to {@code out} in the same format as
+	 * {@link #toString(Object[])}, without building the whole string in
+	 * memory first.
+	 * 
+	 * @param out
+	 *            destination, eg: a {@link java.io.Writer} or
+	 *            {@link StringBuilder}. To write to an
+	 *            {@link org.omancode.util.io.Output} wrap it in an
+	 *            {@link org.omancode.util.io.OutputWriter}.
+	 * @param array
+	 *            array to write
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 */
+	public static void appendTo(Appendable out, Object[] array)
+			throws IOException {
+		appendTo(out, array, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of the array's contents to
+	 * {@code out} in the same format as {@link #toString(Object[])}. If the
+	 * array is longer the output ends with eg: {@code ", ... (42 more)"}. A
+	 * negative {@code maxElements} is rejected with an
+	 * {@link IllegalArgumentException}.
+	 * 
+	 * @param out
+	 *            destination
+	 * @param array
+	 *            array to write
+	 * @param maxElements
+	 *            maximum number of elements to write, at least 0
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 */
+	public static void appendTo(Appendable out, Object[] array,
+			int maxElements) throws IOException {
+		if (array == null) {
+			out.append("null");
+			return;
+		}
+
+		appendObjects(out, array, 0, array.length, 1, maxElements);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of the {@code length} elements of
+	 * {@code array} starting at {@code offset}, {@code stride} apart.
+	 */
+	private static void appendObjects(Appendable out, Object[] array,
+			int offset, int length, int stride, int maxElements)
+			throws IOException {
+		int n = limit(length, maxElements);
+		for (int i = 0, j = offset; i < n; i++, j += stride) {
+			if (i > 0) {
+				out.append(ELEMENT_SEPARATOR);
+			}
+			out.append(String.valueOf(array[j]));
+		}
+		appendRemaining(out, n, length);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of a {@code double[]} to {@code out}
+	 * in the same format as {@link #toString(Object[])}, without boxing.
+	 * 
+	 * @param out
+	 *            destination
+	 * @param array
+	 *            array to write
+	 * @param maxElements
+	 *            maximum number of elements to write, at least 0
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 * @see #appendTo(Appendable, Object[], int)
+	 */
+	public static void appendTo(Appendable out, double[] array,
+			int maxElements) throws IOException {
+		if (array == null) {
+			out.append("null");
+			return;
+		}
+
+		appendDoubles(out, array, 0, array.length, 1, maxElements);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of the {@code length} elements of
+	 * {@code array} starting at {@code offset}, {@code stride} apart.
+	 */
+	private static void appendDoubles(Appendable out, double[] array,
+			int offset, int length, int stride, int maxElements)
+			throws IOException {
+		StringBuilder sb = out instanceof StringBuilder ? (StringBuilder) out
+				: null;
+		int n = limit(length, maxElements);
+		for (int i = 0, j = offset; i < n; i++, j += stride) {
+			if (i > 0) {
+				out.append(ELEMENT_SEPARATOR);
+			}
+			if (sb != null) {
+				sb.append(array[j]);
+			} else {
+				out.append(Double.toString(array[j]));
+			}
+		}
+		appendRemaining(out, n, length);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of an {@code int[]} to {@code out} in
+	 * the same format as {@link #toString(Object[])}, without boxing.
+	 * 
+	 * @param out
+	 *            destination
+	 * @param array
+	 *            array to write
+	 * @param maxElements
+	 *            maximum number of elements to write, at least 0
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 * @see #appendTo(Appendable, Object[], int)
+	 */
+	public static void appendTo(Appendable out, int[] array, int maxElements)
+			throws IOException {
+		if (array == null) {
+			out.append("null");
+			return;
+		}
+
+		appendInts(out, array, 0, array.length, 1, maxElements);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of the {@code length} elements of
+	 * {@code array} starting at {@code offset}, {@code stride} apart.
+	 */
+	private static void appendInts(Appendable out, int[] array, int offset,
+			int length, int stride, int maxElements) throws IOException {
+		StringBuilder sb = out instanceof StringBuilder ? (StringBuilder) out
+				: null;
+		int n = limit(length, maxElements);
+		for (int i = 0, j = offset; i < n; i++, j += stride) {
+			if (i > 0) {
+				out.append(ELEMENT_SEPARATOR);
+			}
+			if (sb != null) {
+				sb.append(array[j]);
+			} else {
+				out.append(Integer.toString(array[j]));
+			}
+		}
+		appendRemaining(out, n, length);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of a {@code long[]} to {@code out} in
+	 * the same format as {@link #toString(Object[])}, without boxing.
+	 * 
+	 * @param out
+	 *            destination
+	 * @param array
+	 *            array to write
+	 * @param maxElements
+	 *            maximum number of elements to write, at least 0
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 * @see #appendTo(Appendable, Object[], int)
+	 */
+	public static void appendTo(Appendable out, long[] array, int maxElements)
+			throws IOException {
+		if (array == null) {
+			out.append("null");
+			return;
+		}
+
+		appendLongs(out, array, array.length, maxElements);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of the first {@code length} elements
+	 * of {@code array}.
+	 */
+	private static void appendLongs(Appendable out, long[] array, int length,
+			int maxElements) throws IOException {
+		StringBuilder sb = out instanceof StringBuilder ? (StringBuilder) out
+				: null;
+		int n = limit(length, maxElements);
+		for (int i = 0; i < n; i++) {
+			if (i > 0) {
+				out.append(ELEMENT_SEPARATOR);
+			}
+			if (sb != null) {
+				sb.append(array[i]);
+			} else {
+				out.append(Long.toString(array[i]));
+			}
+		}
+		appendRemaining(out, n, length);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of a {@code boolean[]} to {@code out}
+	 * in the same format as {@link #toString(Object[])}, without boxing.
+	 * 
+	 * @param out
+	 *            destination
+	 * @param array
+	 *            array to write
+	 * @param maxElements
+	 *            maximum number of elements to write, at least 0
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 * @see #appendTo(Appendable, Object[], int)
+	 */
+	public static void appendTo(Appendable out, boolean[] array,
+			int maxElements) throws IOException {
+		if (array == null) {
+			out.append("null");
+			return;
+		}
+
+		int n = limit(array.length, maxElements);
+		for (int i = 0; i < n; i++) {
+			if (i > 0) {
+				out.append(ELEMENT_SEPARATOR);
+			}
+			out.append(array[i] ? "true" : "false");
+		}
+		appendRemaining(out, n, array.length);
+	}
+
+	/**
+	 * Number of elements an {@code appendTo} method writes.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if {@code maxElements} is negative
+	 */
+	private static int limit(int length, int maxElements) {
+		if (maxElements < 0) {
+			throw new IllegalArgumentException("maxElements must be >= 0: "
+					+ maxElements);
+		}
+		return Math.min(length, maxElements);
+	}
+
+	/**
+	 * Mark the elements not written by an {@code appendTo} method.
+	 */
+	private static void appendRemaining(Appendable out, int written,
+			int length) throws IOException {
+		if (written < length) {
+			if (written > 0) {
+				out.append(ELEMENT_SEPARATOR);
+			}
+			out.append("... (").append(Integer.toString(length - written))
+					.append(" more)");
+		}
+	}
+
 	/**
 	 * Returns <tt>true</tt> if the two specified arrays of String are
 	 * <i>equal</i> to one another. The two arrays are considered equal if both
@@ -111,10 +382,22 @@ public final class ArrayUtil {
 	 * @return {@code null} if {@code superArray} contains {@code subArray},
 	 *         otherwise returns the first string in {@code subArray} that does
 	 *         not exist in {@code superArray}.
+	 * @see StringIndex#firstComplement(String[], boolean)
 	 */
 	public static String firstStringComplement(String[] superArray,
 			String[] subArray, boolean caseInsensitive) {
 
+		if (superArray == null) {
+			return subArray.length == 0 ? null : subArray[0];
+		}
+
+		// for more than a single lookup, indexing superArray once
+		// is cheaper than scanning it for every element of subArray
+		if (subArray.length > 1) {
+			return new StringIndex(superArray).firstComplement(subArray,
+					caseInsensitive);
+		}
+
 		for (int i = 0; i < subArray.length; i++) {
 			if (indexOfString(superArray, subArray[i], caseInsensitive, 0) == INDEX_NOT_FOUND) {
 				return subArray[i];
@@ -235,7 +518,8 @@ public final class ArrayUtil {
 	}
 
 	/**
-	 * Return the number of {@code true} elements in {@code array}.
+	 * Return the number of {@code true} elements in {@code array}. For large
+	 * flag arrays consider a {@link BitVector} instead.
 	 * 
 	 * @param array
 	 *            boolean array
@@ -252,6 +536,17 @@ public final class ArrayUtil {
 		return count;
 	}
 
+	/**
+	 * Return the number of set bits in {@code bits}.
+	 * 
+	 * @param bits
+	 *            bit vector
+	 * @return number of set bits in {@code bits}.
+	 */
+	public static int count(BitVector bits) {
+		return bits.count();
+	}
+
 	/**
 	 * Transpose a 2D Object[][] array. eg: {0,1,2},{3,4,5} becomes
 	 * {0,3},{1,4},{2,5}.
@@ -313,4 +608,1121 @@ public final class ArrayUtil {
 		return result;
 	}
 
+	/**
+	 * Below this many elements summation is always done in a single
+	 * thread.
+	 */
+	private static final int PARALLEL_SUM_THRESHOLD = 1 << 16;
+
+	/**
+	 * Size below which {@link #sumPairwise(double[])} stops dividing and sums
+	 * sequentially. Keeps the recursion overhead small while the rounding
+	 * error still grows only with the logarithm of the length.
+	 */
+	private static final int PAIRWISE_BLOCK = 128;
+
+	/**
+	 * Sum double array with naive sequential summation. Fastest, but the
+	 * rounding error grows with the length of the array. See
+	 * {@link #sumCompensated(double[])} and {@link #sumPairwise(double[])}
+	 * for more accurate alternatives.
+	 * 
+	 * @param array
+	 *            array to sum
+	 * @return sum
+	 */
+	public static double sum(double[] array) {
+		double result = 0;
+
+		for (int i = 0; i < array.length; i++) {
+			result = result + array[i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sum double array with Neumaier's improved Kahan compensated summation.
+	 * The error is independent of the length of the array, so the result is
+	 * as accurate as summing with {@link java.math.BigDecimal} and rounding
+	 * once for all but pathological inputs, at a fraction of the cost.
+	 * Infinite or NaN elements, or a sum that overflows, give the same result
+	 * as {@link #sum(double[])}.
+	 * 
+	 * @param array
+	 *            array to sum
+	 * @return sum
+	 */
+	public static double sumCompensated(double[] array) {
+		double[] sc = compensatedSum(array, 0, array.length, 1);
+		return sc[0] + sc[1];
+	}
+
+	/**
+	 * Sum double array with compensated summation (see
+	 * {@link #sumCompensated(double[])}), splitting large arrays across the
+	 * common fork join pool. The partial sums and their compensation terms
+	 * are merged with the same compensated addition, so the accuracy is the
+	 * same as sequential summation.
+	 * 
+	 * @param array
+	 *            array to sum
+	 * @return sum
+	 */
+	public static double sumCompensatedParallel(double[] array) {
+		double[] sc = ForkJoinPool.commonPool().invoke(
+				new CompensatedSumTask(array, 0, array.length));
+		return sc[0] + sc[1];
+	}
+
+	/**
+	 * Sum double array with pairwise (cascade) summation. The error grows
+	 * only with the logarithm of the length of the array, and throughput is
+	 * close to naive summation.
+	 * 
+	 * @param array
+	 *            array to sum
+	 * @return sum
+	 */
+	public static double sumPairwise(double[] array) {
+		return pairwiseSum(array, 0, array.length, 1);
+	}
+
+	/**
+	 * Sum double array with pairwise summation (see
+	 * {@link #sumPairwise(double[])}), splitting large arrays across the
+	 * common fork join pool. Splits at the same points as the sequential
+	 * version so the result is identical to {@link #sumPairwise(double[])}.
+	 * 
+	 * @param array
+	 *            array to sum
+	 * @return sum
+	 */
+	public static double sumPairwiseParallel(double[] array) {
+		return ForkJoinPool.commonPool().invoke(
+				new PairwiseSumTask(array, 0, array.length));
+	}
+
+	/**
+	 * Sum the elements of an {@link IntList}.
+	 * 
+	 * @param list
+	 *            list to sum
+	 * @return sum
+	 */
+	public static int sum(IntList list) {
+		int[] array = list.array();
+		int result = 0;
+
+		for (int i = 0; i < list.size(); i++) {
+			result = result + array[i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sum the elements of a {@link DoubleList} with naive sequential
+	 * summation.
+	 * 
+	 * @param list
+	 *            list to sum
+	 * @return sum
+	 * @see #sum(double[])
+	 */
+	public static double sum(DoubleList list) {
+		double[] array = list.array();
+		double result = 0;
+
+		for (int i = 0; i < list.size(); i++) {
+			result = result + array[i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sum the elements of a {@link DoubleList} with compensated summation.
+	 * 
+	 * @param list
+	 *            list to sum
+	 * @return sum
+	 * @see #sumCompensated(double[])
+	 */
+	public static double sumCompensated(DoubleList list) {
+		double[] sc = compensatedSum(list.array(), 0, list.size(), 1);
+		return sc[0] + sc[1];
+	}
+
+	/**
+	 * Sum the elements of a {@link DoubleList} with pairwise summation.
+	 * 
+	 * @param list
+	 *            list to sum
+	 * @return sum
+	 * @see #sumPairwise(double[])
+	 */
+	public static double sumPairwise(DoubleList list) {
+		return pairwiseSum(list.array(), 0, list.size(), 1);
+	}
+
+	/**
+	 * Sum the values of a {@link PackedIntArray}, unpacking a block at a time
+	 * into a small buffer rather than unpacking the whole array.
+	 * 
+	 * @param array
+	 *            array to sum
+	 * @return sum, as a long so it cannot overflow
+	 */
+	public static long sum(PackedIntArray array) {
+		int[] buffer = new int[PackedIntArray.BLOCK_SIZE];
+		long result = 0;
+
+		for (int b = 0; b < array.blockCount(); b++) {
+			int length = array.decodeBlock(b, buffer);
+			for (int i = 0; i < length; i++) {
+				result = result + buffer[i];
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sum the values of a {@link DeltaLongArray}, decoding a block at a time.
+	 * 
+	 * @param array
+	 *            array to sum
+	 * @return sum
+	 */
+	public static long sum(DeltaLongArray array) {
+		long[] buffer = new long[DeltaLongArray.BLOCK_SIZE];
+		long result = 0;
+
+		for (int b = 0; b < array.blockCount(); b++) {
+			int length = array.decodeBlock(b, buffer);
+			for (int i = 0; i < length; i++) {
+				result = result + buffer[i];
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sum the values of an {@link XorDoubleArray} with naive sequential
+	 * summation, decoding a block at a time.
+	 * 
+	 * @param array
+	 *            array to sum
+	 * @return sum
+	 * @see #sum(double[])
+	 */
+	public static double sum(XorDoubleArray array) {
+		double[] buffer = new double[XorDoubleArray.BLOCK_SIZE];
+		double result = 0;
+
+		for (int b = 0; b < array.blockCount(); b++) {
+			int length = array.decodeBlock(b, buffer);
+			for (int i = 0; i < length; i++) {
+				result = result + buffer[i];
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sum the values of an {@link XorDoubleArray} with compensated
+	 * summation, decoding a block at a time. The block sums are merged with
+	 * their compensation terms, so the accuracy is the same as
+	 * {@link #sumCompensated(double[])} on the decoded array.
+	 * 
+	 * @param array
+	 *            array to sum
+	 * @return sum
+	 */
+	public static double sumCompensated(XorDoubleArray array) {
+		double[] buffer = new double[XorDoubleArray.BLOCK_SIZE];
+		double[] sc = new double[2];
+
+		for (int b = 0; b < array.blockCount(); b++) {
+			int length = array.decodeBlock(b, buffer);
+			sc = mergeCompensated(sc, compensatedSum(buffer, 0, length, 1));
+		}
+
+		return sc[0] + sc[1];
+	}
+
+	/**
+	 * Set all elements of a {@link DoubleList} to zero. The size of the list
+	 * is unchanged.
+	 * 
+	 * @param list
+	 *            list to zero
+	 */
+	public static void zeroArray(DoubleList list) {
+		Arrays.fill(list.array(), 0, list.size(), 0);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of a {@link DoubleList} to
+	 * {@code out}.
+	 * 
+	 * @param out
+	 *            destination
+	 * @param list
+	 *            list to write
+	 * @param maxElements
+	 *            maximum number of elements to write, at least 0
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 * @see #appendTo(Appendable, double[], int)
+	 */
+	public static void appendTo(Appendable out, DoubleList list,
+			int maxElements) throws IOException {
+		appendDoubles(out, list.array(), 0, list.size(), 1, maxElements);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of an {@link IntList} to {@code out}.
+	 * 
+	 * @param out
+	 *            destination
+	 * @param list
+	 *            list to write
+	 * @param maxElements
+	 *            maximum number of elements to write, at least 0
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 * @see #appendTo(Appendable, int[], int)
+	 */
+	public static void appendTo(Appendable out, IntList list, int maxElements)
+			throws IOException {
+		appendInts(out, list.array(), 0, list.size(), 1, maxElements);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of a {@link LongList} to {@code out}.
+	 * 
+	 * @param out
+	 *            destination
+	 * @param list
+	 *            list to write
+	 * @param maxElements
+	 *            maximum number of elements to write, at least 0
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 * @see #appendTo(Appendable, long[], int)
+	 */
+	public static void appendTo(Appendable out, LongList list, int maxElements)
+			throws IOException {
+		appendLongs(out, list.array(), list.size(), maxElements);
+	}
+
+	/**
+	 * Create a string of a slice's elements, in the same format as
+	 * {@link #toString(Object[])}.
+	 * 
+	 * @param slice
+	 *            slice to convert to a string
+	 * @return string representation of slice
+	 */
+	public static String toString(ObjectSlice<?> slice) {
+		StringBuilder builder = new StringBuilder();
+		try {
+			appendTo(builder, slice, Integer.MAX_VALUE);
+		} catch (IOException e) {
+			// StringBuilder does not throw IOException
+			throw new IllegalStateException(e);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Create a string of a slice's elements, in the same format as
+	 * {@link #toString(Object[])}.
+	 * 
+	 * @param slice
+	 *            slice to convert to a string
+	 * @return string representation of slice
+	 */
+	public static String toString(DoubleSlice slice) {
+		StringBuilder builder = new StringBuilder();
+		try {
+			appendTo(builder, slice, Integer.MAX_VALUE);
+		} catch (IOException e) {
+			// StringBuilder does not throw IOException
+			throw new IllegalStateException(e);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Create a string of a slice's elements, in the same format as
+	 * {@link #toString(Object[])}.
+	 * 
+	 * @param slice
+	 *            slice to convert to a string
+	 * @return string representation of slice
+	 */
+	public static String toString(IntSlice slice) {
+		StringBuilder builder = new StringBuilder();
+		try {
+			appendTo(builder, slice, Integer.MAX_VALUE);
+		} catch (IOException e) {
+			// StringBuilder does not throw IOException
+			throw new IllegalStateException(e);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Write at most {@code maxElements} of a slice to {@code out}.
+	 * 
+	 * @param out
+	 *            destination
+	 * @param slice
+	 *            slice to write
+	 * @param maxElements
+	 *            maximum number of elements to write, at least 0
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 * @see #appendTo(Appendable, Object[], int)
+	 */
+	public static void appendTo(Appendable out, ObjectSlice<?> slice,
+			int maxElements) throws IOException {
+		appendObjects(out, slice.array(), slice.offset(), slice.size(),
+				slice.stride(), maxElements);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of a slice to {@code out}, without
+	 * boxing.
+	 * 
+	 * @param out
+	 *            destination
+	 * @param slice
+	 *            slice to write
+	 * @param maxElements
+	 *            maximum number of elements to write, at least 0
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 * @see #appendTo(Appendable, double[], int)
+	 */
+	public static void appendTo(Appendable out, DoubleSlice slice,
+			int maxElements) throws IOException {
+		appendDoubles(out, slice.array(), slice.offset(), slice.size(),
+				slice.stride(), maxElements);
+	}
+
+	/**
+	 * Write at most {@code maxElements} of a slice to {@code out}, without
+	 * boxing.
+	 * 
+	 * @param out
+	 *            destination
+	 * @param slice
+	 *            slice to write
+	 * @param maxElements
+	 *            maximum number of elements to write, at least 0
+	 * @throws IOException
+	 *             if problem writing to {@code out}
+	 * @see #appendTo(Appendable, int[], int)
+	 */
+	public static void appendTo(Appendable out, IntSlice slice,
+			int maxElements) throws IOException {
+		appendInts(out, slice.array(), slice.offset(), slice.size(),
+				slice.stride(), maxElements);
+	}
+
+	/**
+	 * Sum the elements of an {@link IntSlice}.
+	 * 
+	 * @param slice
+	 *            slice to sum
+	 * @return sum
+	 */
+	public static int sum(IntSlice slice) {
+		int[] array = slice.array();
+		int stride = slice.stride();
+		int result = 0;
+
+		for (int i = 0, j = slice.offset(); i < slice.size(); i++, j += stride) {
+			result = result + array[j];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sum the elements of a {@link DoubleSlice} with naive sequential
+	 * summation.
+	 * 
+	 * @param slice
+	 *            slice to sum
+	 * @return sum
+	 * @see #sum(double[])
+	 */
+	public static double sum(DoubleSlice slice) {
+		double[] array = slice.array();
+		int stride = slice.stride();
+		double result = 0;
+
+		for (int i = 0, j = slice.offset(); i < slice.size(); i++, j += stride) {
+			result = result + array[j];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sum the elements of a {@link DoubleSlice} with compensated summation.
+	 * 
+	 * @param slice
+	 *            slice to sum
+	 * @return sum
+	 * @see #sumCompensated(double[])
+	 */
+	public static double sumCompensated(DoubleSlice slice) {
+		double[] sc = compensatedSum(slice.array(), slice.offset(), slice
+				.size(), slice.stride());
+		return sc[0] + sc[1];
+	}
+
+	/**
+	 * Sum the elements of a {@link DoubleSlice} with pairwise summation.
+	 * 
+	 * @param slice
+	 *            slice to sum
+	 * @return sum
+	 * @see #sumPairwise(double[])
+	 */
+	public static double sumPairwise(DoubleSlice slice) {
+		return pairwiseSum(slice.array(), slice.offset(), slice.size(), slice
+				.stride());
+	}
+
+	/**
+	 * Set all elements of a {@link DoubleSlice} to zero in the backing
+	 * array.
+	 * 
+	 * @param slice
+	 *            slice to zero
+	 */
+	public static void zeroArray(DoubleSlice slice) {
+		double[] array = slice.array();
+		if (slice.isContiguous()) {
+			Arrays.fill(array, slice.offset(), slice.offset() + slice.size(), 0);
+			return;
+		}
+		int stride = slice.stride();
+		for (int i = 0, j = slice.offset(); i < slice.size(); i++, j += stride) {
+			array[j] = 0;
+		}
+	}
+
+	/**
+	 * Set all elements of an {@link IntSlice} to zero in the backing array.
+	 * 
+	 * @param slice
+	 *            slice to zero
+	 */
+	public static void zeroArray(IntSlice slice) {
+		int[] array = slice.array();
+		if (slice.isContiguous()) {
+			Arrays.fill(array, slice.offset(), slice.offset() + slice.size(), 0);
+			return;
+		}
+		int stride = slice.stride();
+		for (int i = 0, j = slice.offset(); i < slice.size(); i++, j += stride) {
+			array[j] = 0;
+		}
+	}
+
+	/**
+	 * Count the {@code null} elements of an {@link ObjectSlice}.
+	 * 
+	 * @param slice
+	 *            slice to count
+	 * @return number of {@code null} elements
+	 */
+	public static int countNulls(ObjectSlice<?> slice) {
+		Object[] array = slice.array();
+		int stride = slice.stride();
+		int count = 0;
+
+		for (int i = 0, j = slice.offset(); i < slice.size(); i++, j += stride) {
+			if (array[j] == null) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Check a slice of {@code length} elements from {@code offset},
+	 * {@code stride} apart, fits within an array of {@code arrayLength}.
+	 */
+	static void checkSlice(int arrayLength, int offset, int length, int stride) {
+		if (stride < 1) {
+			throw new IllegalArgumentException("stride must be >= 1: "
+					+ stride);
+		}
+		if (offset < 0 || length < 0 || length > 0
+				&& offset + (long) (length - 1) * stride >= arrayLength) {
+			throw new IndexOutOfBoundsException("slice offset " + offset
+					+ ", length " + length + ", stride " + stride
+					+ " outside array of " + arrayLength);
+		}
+	}
+
+	/**
+	 * Sum {@code values} by group, where {@code keys[i]} is the group of
+	 * {@code values[i]} and groups are numbered densely from 0. Accumulates
+	 * straight into an array indexed by key.
+	 * 
+	 * @param keys
+	 *            group of each value, from 0 to {@code groups - 1}
+	 * @param values
+	 *            values, same length as {@code keys}
+	 * @param groups
+	 *            number of groups
+	 * @return sum of each group, 0 for groups with no values
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a key is outside {@code [0, groups)}
+	 */
+	public static double[] groupSum(int[] keys, double[] values, int groups) {
+		checkGroupLength(keys, values);
+		return new DenseGroups(groups, true).accumulate(keys, values, 0,
+				keys.length).sums;
+	}
+
+	/**
+	 * As per {@link #groupSum(int[], double[], int)}, but accumulating blocks
+	 * of the arrays in parallel on the common fork join pool. Each thread
+	 * accumulates into its own partial sums, which are added together at the
+	 * end. The result can differ from the sequential sum in the last bits.
+	 * 
+	 * @param keys
+	 *            group of each value, from 0 to {@code groups - 1}
+	 * @param values
+	 *            values, same length as {@code keys}
+	 * @param groups
+	 *            number of groups
+	 * @return sum of each group, 0 for groups with no values
+	 */
+	public static double[] groupSumParallel(int[] keys, double[] values,
+			int groups) {
+		checkGroupLength(keys, values);
+		return ForkJoinPool.commonPool().invoke(
+				new DenseGroupTask(keys, values, groups, 0, keys.length,
+						groupBlock(keys.length))).sums;
+	}
+
+	/**
+	 * Count the occurrences of each key, where keys are numbered densely from
+	 * 0.
+	 * 
+	 * @param keys
+	 *            keys, from 0 to {@code groups - 1}
+	 * @param groups
+	 *            number of groups
+	 * @return count of each key
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a key is outside {@code [0, groups)}
+	 */
+	public static long[] groupCount(int[] keys, int groups) {
+		return new DenseGroups(groups, false).accumulate(keys, null, 0,
+				keys.length).counts;
+	}
+
+	/**
+	 * As per {@link #groupCount(int[], int)}, but counting blocks of keys in
+	 * parallel on the common fork join pool.
+	 * 
+	 * @param keys
+	 *            keys, from 0 to {@code groups - 1}
+	 * @param groups
+	 *            number of groups
+	 * @return count of each key
+	 */
+	public static long[] groupCountParallel(int[] keys, int groups) {
+		return ForkJoinPool.commonPool().invoke(
+				new DenseGroupTask(keys, null, groups, 0, keys.length,
+						groupBlock(keys.length))).counts;
+	}
+
+	/**
+	 * Mean of {@code values} by group, where groups are numbered densely
+	 * from 0.
+	 * 
+	 * @param keys
+	 *            group of each value, from 0 to {@code groups - 1}
+	 * @param values
+	 *            values, same length as {@code keys}
+	 * @param groups
+	 *            number of groups
+	 * @return mean of each group, NaN for groups with no values
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a key is outside {@code [0, groups)}
+	 */
+	public static double[] groupMean(int[] keys, double[] values, int groups) {
+		checkGroupLength(keys, values);
+		return new DenseGroups(groups, true).accumulate(keys, values, 0,
+				keys.length).means();
+	}
+
+	/**
+	 * As per {@link #groupMean(int[], double[], int)}, but accumulating
+	 * blocks of the arrays in parallel on the common fork join pool.
+	 * 
+	 * @param keys
+	 *            group of each value, from 0 to {@code groups - 1}
+	 * @param values
+	 *            values, same length as {@code keys}
+	 * @param groups
+	 *            number of groups
+	 * @return mean of each group, NaN for groups with no values
+	 */
+	public static double[] groupMeanParallel(int[] keys, double[] values,
+			int groups) {
+		checkGroupLength(keys, values);
+		return ForkJoinPool.commonPool().invoke(
+				new DenseGroupTask(keys, values, groups, 0, keys.length,
+						groupBlock(keys.length))).means();
+	}
+
+	/**
+	 * Sum {@code values} by group, where {@code keys[i]} is the group of
+	 * {@code values[i]} and keys can be any int. Accumulates into a primitive
+	 * hash map, so suits keys that are sparse or unbounded.
+	 * 
+	 * @param keys
+	 *            group of each value
+	 * @param values
+	 *            values, same length as {@code keys}
+	 * @return sum of each key present
+	 */
+	public static IntDoubleMap groupSum(int[] keys, double[] values) {
+		checkGroupLength(keys, values);
+		return new SparseGroups(true).accumulate(keys, values, 0,
+				keys.length).sums;
+	}
+
+	/**
+	 * As per {@link #groupSum(int[], double[])}, but accumulating blocks of
+	 * the arrays in parallel on the common fork join pool, each into its own
+	 * map. The maps are merged at the end.
+	 * 
+	 * @param keys
+	 *            group of each value
+	 * @param values
+	 *            values, same length as {@code keys}
+	 * @return sum of each key present
+	 */
+	public static IntDoubleMap groupSumParallel(int[] keys, double[] values) {
+		checkGroupLength(keys, values);
+		return ForkJoinPool.commonPool().invoke(
+				new SparseGroupTask(keys, values, 0, keys.length,
+						groupBlock(keys.length))).sums;
+	}
+
+	/**
+	 * Count the occurrences of each key, where keys can be any int.
+	 * 
+	 * @param keys
+	 *            keys
+	 * @return count of each key present
+	 */
+	public static IntIntMap groupCount(int[] keys) {
+		return new SparseGroups(false).accumulate(keys, null, 0, keys.length).counts;
+	}
+
+	/**
+	 * As per {@link #groupCount(int[])}, but counting blocks of keys in
+	 * parallel on the common fork join pool.
+	 * 
+	 * @param keys
+	 *            keys
+	 * @return count of each key present
+	 */
+	public static IntIntMap groupCountParallel(int[] keys) {
+		return ForkJoinPool.commonPool().invoke(
+				new SparseGroupTask(keys, null, 0, keys.length,
+						groupBlock(keys.length))).counts;
+	}
+
+	/**
+	 * Mean of {@code values} by group, where keys can be any int.
+	 * 
+	 * @param keys
+	 *            group of each value
+	 * @param values
+	 *            values, same length as {@code keys}
+	 * @return mean of each key present
+	 */
+	public static IntDoubleMap groupMean(int[] keys, double[] values) {
+		checkGroupLength(keys, values);
+		return new SparseGroups(true).accumulate(keys, values, 0,
+				keys.length).means();
+	}
+
+	/**
+	 * As per {@link #groupMean(int[], double[])}, but accumulating blocks of
+	 * the arrays in parallel on the common fork join pool.
+	 * 
+	 * @param keys
+	 *            group of each value
+	 * @param values
+	 *            values, same length as {@code keys}
+	 * @return mean of each key present
+	 */
+	public static IntDoubleMap groupMeanParallel(int[] keys, double[] values) {
+		checkGroupLength(keys, values);
+		return ForkJoinPool.commonPool().invoke(
+				new SparseGroupTask(keys, values, 0, keys.length,
+						groupBlock(keys.length))).means();
+	}
+
+	private static void checkGroupLength(int[] keys, double[] values) {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException("keys and values differ in length: "
+					+ keys.length + " != " + values.length);
+		}
+	}
+
+	/**
+	 * Size of the blocks accumulated by each group-by task. One block per
+	 * pool thread, so there is one set of partials per thread rather than
+	 * one per {@link #PARALLEL_SUM_THRESHOLD} elements.
+	 */
+	private static int groupBlock(int length) {
+		int parallelism = ForkJoinPool.commonPool().getParallelism();
+		return Math.max(PARALLEL_SUM_THRESHOLD, (length + parallelism - 1)
+				/ parallelism);
+	}
+
+	/**
+	 * Neumaier summation of {@code length} elements of {@code array} from
+	 * {@code offset}, {@code stride} apart.
+	 * 
+	 * @return two element array of the sum and its compensation term
+	 */
+	private static double[] compensatedSum(double[] array, int offset,
+			int length, int stride) {
+		double sum = 0;
+		double c = 0;
+
+		for (int i = 0, j = offset; i < length; i++, j += stride) {
+			double x = array[j];
+			double t = sum + x;
+			if (Math.abs(sum) >= Math.abs(x)) {
+				c += (sum - t) + x;
+			} else {
+				c += (x - t) + sum;
+			}
+			sum = t;
+		}
+
+		return finiteOrZero(sum, c);
+	}
+
+	/**
+	 * Pairwise summation of {@code length} elements of {@code array} from
+	 * {@code offset}, {@code stride} apart.
+	 */
+	private static double pairwiseSum(double[] array, int offset, int length,
+			int stride) {
+		if (length <= PAIRWISE_BLOCK) {
+			// four accumulators break the dependency chain between adds
+			double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+			int i = 0;
+			int j = offset;
+			for (; i + 3 < length; i += 4, j += 4 * stride) {
+				s0 += array[j];
+				s1 += array[j + stride];
+				s2 += array[j + 2 * stride];
+				s3 += array[j + 3 * stride];
+			}
+			for (; i < length; i++, j += stride) {
+				s0 += array[j];
+			}
+			return (s0 + s1) + (s2 + s3);
+		}
+		int half = length / 2;
+		return pairwiseSum(array, offset, half, stride)
+				+ pairwiseSum(array, offset + half * stride, length - half,
+						stride);
+	}
+
+	/**
+	 * A sum and its compensation term. Once a sum is infinite or NaN the
+	 * term is {@code Inf - Inf}, ie: NaN, so it is dropped and the result is
+	 * the same as naive summation.
+	 */
+	private static double[] finiteOrZero(double sum, double c) {
+		return new double[] { sum, Double.isFinite(sum) ? c : 0 };
+	}
+
+	/**
+	 * Add two compensated partial sums, returning the combined sum and
+	 * compensation term.
+	 */
+	private static double[] mergeCompensated(double[] a, double[] b) {
+		double t = a[0] + b[0];
+		if (!Double.isFinite(t)) {
+			return new double[] { t, 0 };
+		}
+		double c;
+		if (Math.abs(a[0]) >= Math.abs(b[0])) {
+			c = (a[0] - t) + b[0];
+		} else {
+			c = (b[0] - t) + a[0];
+		}
+		return new double[] { t, a[1] + b[1] + c };
+	}
+
+	/**
+	 * Parallel compensated summation.
+	 */
+	private static final class CompensatedSumTask extends
+			RecursiveTask<double[]> {
+
+		private static final long serialVersionUID = 1L;
+		private final double[] array;
+		private final int from;
+		private final int to;
+
+		CompensatedSumTask(double[] array, int from, int to) {
+			this.array = array;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected double[] compute() {
+			if (to - from <= PARALLEL_SUM_THRESHOLD) {
+				return compensatedSum(array, from, to - from, 1);
+			}
+			int mid = (from + to) >>> 1;
+			CompensatedSumTask left = new CompensatedSumTask(array, from, mid);
+			left.fork();
+			double[] right = new CompensatedSumTask(array, mid, to).compute();
+			return mergeCompensated(left.join(), right);
+		}
+	}
+
+	/**
+	 * Parallel pairwise summation.
+	 */
+	private static final class PairwiseSumTask extends RecursiveTask<Double> {
+
+		private static final long serialVersionUID = 1L;
+		private final double[] array;
+		private final int from;
+		private final int to;
+
+		PairwiseSumTask(double[] array, int from, int to) {
+			this.array = array;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Double compute() {
+			int n = to - from;
+			if (n <= PARALLEL_SUM_THRESHOLD) {
+				return pairwiseSum(array, from, to - from, 1);
+			}
+			// split exactly as pairwiseSum does
+			int mid = from + n / 2;
+			PairwiseSumTask left = new PairwiseSumTask(array, from, mid);
+			left.fork();
+			double right = new PairwiseSumTask(array, mid, to).compute();
+			return left.join() + right;
+		}
+	}
+
+	/**
+	 * Per group sums and counts for keys numbered densely from 0.
+	 */
+	private static final class DenseGroups {
+		private final double[] sums;
+		private final long[] counts;
+
+		DenseGroups(int groups, boolean withSums) {
+			sums = withSums ? new double[groups] : null;
+			counts = new long[groups];
+		}
+
+		DenseGroups accumulate(int[] keys, double[] values, int from, int to) {
+			if (values == null) {
+				for (int i = from; i < to; i++) {
+					counts[keys[i]]++;
+				}
+			} else {
+				for (int i = from; i < to; i++) {
+					int key = keys[i];
+					sums[key] += values[i];
+					counts[key]++;
+				}
+			}
+			return this;
+		}
+
+		DenseGroups merge(DenseGroups other) {
+			for (int g = 0; g < counts.length; g++) {
+				counts[g] += other.counts[g];
+			}
+			if (sums != null) {
+				for (int g = 0; g < sums.length; g++) {
+					sums[g] += other.sums[g];
+				}
+			}
+			return this;
+		}
+
+		double[] means() {
+			double[] means = new double[counts.length];
+			for (int g = 0; g < means.length; g++) {
+				means[g] = counts[g] == 0 ? Double.NaN : sums[g] / counts[g];
+			}
+			return means;
+		}
+	}
+
+	/**
+	 * Per group sums and counts for arbitrary keys.
+	 */
+	private static final class SparseGroups {
+		private final IntDoubleMap sums;
+		private final IntIntMap counts;
+
+		SparseGroups(boolean withSums) {
+			sums = withSums ? new IntDoubleMap() : null;
+			counts = new IntIntMap();
+		}
+
+		SparseGroups accumulate(int[] keys, double[] values, int from, int to) {
+			if (values == null) {
+				for (int i = from; i < to; i++) {
+					counts.add(keys[i], 1);
+				}
+			} else {
+				for (int i = from; i < to; i++) {
+					int key = keys[i];
+					sums.add(key, values[i]);
+					counts.add(key, 1);
+				}
+			}
+			return this;
+		}
+
+		SparseGroups merge(SparseGroups other) {
+			for (IntIntMap.Cursor c = other.counts.cursor(); c.next();) {
+				counts.add(c.key(), c.value());
+			}
+			if (sums != null) {
+				for (IntDoubleMap.Cursor c = other.sums.cursor(); c.next();) {
+					sums.add(c.key(), c.value());
+				}
+			}
+			return this;
+		}
+
+		IntDoubleMap means() {
+			for (IntDoubleMap.Cursor c = sums.cursor(); c.next();) {
+				c.setValue(c.value() / counts.get(c.key(), 0));
+			}
+			return sums;
+		}
+	}
+
+	/**
+	 * Parallel dense group-by. Splits in half down to {@code block}
+	 * elements, then accumulates each block into its own partials.
+	 */
+	private static final class DenseGroupTask extends
+			RecursiveTask<DenseGroups> {
+
+		private static final long serialVersionUID = 1L;
+		private final int[] keys;
+		private final double[] values;
+		private final int groups;
+		private final int from;
+		private final int to;
+		private final int block;
+
+		DenseGroupTask(int[] keys, double[] values, int groups, int from,
+				int to, int block) {
+			this.keys = keys;
+			this.values = values;
+			this.groups = groups;
+			this.from = from;
+			this.to = to;
+			this.block = block;
+		}
+
+		@Override
+		protected DenseGroups compute() {
+			if (to - from <= block) {
+				return new DenseGroups(groups, values != null).accumulate(
+						keys, values, from, to);
+			}
+			int mid = (from + to) >>> 1;
+			DenseGroupTask left = new DenseGroupTask(keys, values, groups,
+					from, mid, block);
+			left.fork();
+			DenseGroups right = new DenseGroupTask(keys, values, groups, mid,
+					to, block).compute();
+			return left.join().merge(right);
+		}
+	}
+
+	/**
+	 * Parallel sparse group-by. Splits in half down to {@code block}
+	 * elements, then accumulates each block into its own maps.
+	 */
+	private static final class SparseGroupTask extends
+			RecursiveTask<SparseGroups> {
+
+		private static final long serialVersionUID = 1L;
+		private final int[] keys;
+		private final double[] values;
+		private final int from;
+		private final int to;
+		private final int block;
+
+		SparseGroupTask(int[] keys, double[] values, int from, int to,
+				int block) {
+			this.keys = keys;
+			this.values = values;
+			this.from = from;
+			this.to = to;
+			this.block = block;
+		}
+
+		@Override
+		protected SparseGroups compute() {
+			if (to - from <= block) {
+				return new SparseGroups(values != null).accumulate(keys,
+						values, from, to);
+			}
+			int mid = (from + to) >>> 1;
+			SparseGroupTask left = new SparseGroupTask(keys, values, from,
+					mid, block);
+			left.fork();
+			SparseGroups right = new SparseGroupTask(keys, values, mid, to,
+					block).compute();
+			SparseGroups merged = left.join();
+			// merge the smaller map into the larger
+			if (merged.counts.size() < right.counts.size()) {
+				return right.merge(merged);
+			}
+			return merged.merge(right);
+		}
+	}
+
 }
@@ -0,0 +1,73 @@
+package org.omancode.util;
+
+import java.util.Arrays;
+
+/**
+ * Static utility class for reading and writing runs of bits in a
+ * {@code long[]}. Bits are packed least significant first, so a value may
+ * straddle two words. Shared by the compressed array containers.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+final class BitPacking {
+
+	private BitPacking() {
+		// static util class
+	}
+
+	/**
+	 * Number of words needed to hold {@code bits} bits.
+	 */
+	static int words(long bits) {
+		return (int) ((bits + 63) >>> 6);
+	}
+
+	/**
+	 * Mask of the lowest {@code bits} bits.
+	 */
+	static long mask(int bits) {
+		return bits == 64 ? -1L : (1L << bits) - 1;
+	}
+
+	/**
+	 * Write the lowest {@code bits} bits of {@code value} at bit
+	 * {@code pos}. The bits being written to must be clear.
+	 *
+	 * @return {@code words}, or a larger copy if it was too small
+	 */
+	static long[] write(long[] words, long pos, long value, int bits) {
+		if (bits == 0) {
+			return words;
+		}
+		int last = (int) ((pos + bits - 1) >>> 6);
+		if (last >= words.length) {
+			words = Arrays.copyOf(words, Math.max(last + 1,
+					words.length + (words.length >> 1)));
+		}
+		value &= mask(bits);
+		int word = (int) (pos >>> 6);
+		int offset = (int) (pos & 63);
+		words[word] |= value << offset;
+		if (offset + bits > 64) {
+			words[word + 1] |= value >>> (64 - offset);
+		}
+		return words;
+	}
+
+	/**
+	 * Read {@code bits} bits at bit {@code pos}.
+	 */
+	static long read(long[] words, long pos, int bits) {
+		if (bits == 0) {
+			return 0;
+		}
+		int word = (int) (pos >>> 6);
+		int offset = (int) (pos & 63);
+		long value = words[word] >>> offset;
+		if (offset + bits > 64) {
+			value |= words[word + 1] << (64 - offset);
+		}
+		return value & mask(bits);
+	}
+}
@@ -0,0 +1,373 @@
+package org.omancode.util;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size vector of bits packed into a {@code long[]}. Uses an eighth of
+ * the memory of an equivalent {@code boolean[]} and counts set bits a word at a
+ * time with {@link Long#bitCount(long)}.
+ * <p>
+ * Set bits can be iterated in the same way as {@link java.util.BitSet}:
+ *
+ * <pre>
+ * for (int i = bits.nextSetBit(0); i &gt;= 0; i = bits.nextSetBit(i + 1)) {
+ * 	// operate on index i here
+ * }
+ * </pre>
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class BitVector {
+
+	private static final int ADDRESS_BITS_PER_WORD = 6;
+
+	private static final int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+
+	private static final long WORD_MASK = 0xffffffffffffffffL;
+
+	/**
+	 * Packed bits. Bits beyond {@link #size} in the last word are always
+	 * zero.
+	 */
+	private final long[] words;
+
+	/**
+	 * Number of bits.
+	 */
+	private final int size;
+
+	/**
+	 * Construct a {@link BitVector} of {@code size} bits, all initially clear.
+	 *
+	 * @param size
+	 *            number of bits
+	 */
+	public BitVector(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("size must be >= 0: " + size);
+		}
+		this.size = size;
+		this.words = new long[wordIndex(size - 1) + 1];
+	}
+
+	/**
+	 * Construct a {@link BitVector} with a bit set for every {@code true}
+	 * element in {@code array}.
+	 *
+	 * @param array
+	 *            boolean array
+	 */
+	public BitVector(boolean[] array) {
+		this(array.length);
+		for (int i = 0; i < array.length; i++) {
+			if (array[i]) {
+				words[wordIndex(i)] |= 1L << i;
+			}
+		}
+	}
+
+	private static int wordIndex(int bitIndex) {
+		return bitIndex >> ADDRESS_BITS_PER_WORD;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: "
+					+ size);
+		}
+	}
+
+	private void checkSameSize(BitVector other) {
+		if (other.size != size) {
+			throw new IllegalArgumentException("size mismatch: " + size
+					+ " != " + other.size);
+		}
+	}
+
+	/**
+	 * Number of bits in this vector.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the bit at {@code index}.
+	 *
+	 * @param index
+	 *            bit index
+	 * @return {@code true} if the bit is set
+	 */
+	public boolean get(int index) {
+		checkIndex(index);
+		return (words[wordIndex(index)] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Set the bit at {@code index}.
+	 *
+	 * @param index
+	 *            bit index
+	 */
+	public void set(int index) {
+		checkIndex(index);
+		words[wordIndex(index)] |= 1L << index;
+	}
+
+	/**
+	 * Set the bit at {@code index} to {@code value}.
+	 *
+	 * @param index
+	 *            bit index
+	 * @param value
+	 *            value to set
+	 */
+	public void set(int index, boolean value) {
+		if (value) {
+			set(index);
+		} else {
+			clear(index);
+		}
+	}
+
+	/**
+	 * Clear the bit at {@code index}.
+	 *
+	 * @param index
+	 *            bit index
+	 */
+	public void clear(int index) {
+		checkIndex(index);
+		words[wordIndex(index)] &= ~(1L << index);
+	}
+
+	/**
+	 * Clear all bits.
+	 */
+	public void clear() {
+		Arrays.fill(words, 0);
+	}
+
+	/**
+	 * Set all bits.
+	 */
+	public void setAll() {
+		Arrays.fill(words, WORD_MASK);
+		clearUnusedBits();
+	}
+
+	/**
+	 * Zero the bits in the last word beyond {@link #size}, so that
+	 * {@link #count()} and {@link #nextSetBit(int)} never see them.
+	 */
+	private void clearUnusedBits() {
+		int remainder = size & (BITS_PER_WORD - 1);
+		if (remainder != 0) {
+			words[words.length - 1] &= WORD_MASK >>> (BITS_PER_WORD - remainder);
+		}
+	}
+
+	/**
+	 * Return the number of set bits.
+	 *
+	 * @return number of set bits
+	 */
+	public int count() {
+		int count = 0;
+		for (int i = 0; i < words.length; i++) {
+			count += Long.bitCount(words[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * Return the index of the first set bit at or after {@code fromIndex}.
+	 *
+	 * @param fromIndex
+	 *            index to start searching from (inclusive)
+	 * @return index of the next set bit, or {@code -1} if there is none
+	 */
+	public int nextSetBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+		}
+		if (fromIndex >= size) {
+			return -1;
+		}
+
+		int u = wordIndex(fromIndex);
+		long word = words[u] & (WORD_MASK << fromIndex);
+
+		while (true) {
+			if (word != 0) {
+				return (u * BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+			}
+			if (++u == words.length) {
+				return -1;
+			}
+			word = words[u];
+		}
+	}
+
+	/**
+	 * Return the index of the first clear bit at or after {@code fromIndex}.
+	 *
+	 * @param fromIndex
+	 *            index to start searching from (inclusive)
+	 * @return index of the next clear bit, or {@code -1} if there is none
+	 */
+	public int nextClearBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+		}
+		if (fromIndex >= size) {
+			return -1;
+		}
+
+		int u = wordIndex(fromIndex);
+		long word = ~words[u] & (WORD_MASK << fromIndex);
+
+		while (true) {
+			if (word != 0) {
+				int index = (u * BITS_PER_WORD)
+						+ Long.numberOfTrailingZeros(word);
+				return index < size ? index : -1;
+			}
+			if (++u == words.length) {
+				return -1;
+			}
+			word = ~words[u];
+		}
+	}
+
+	/**
+	 * Return the indices of all set bits in ascending order.
+	 *
+	 * @return set bit indices
+	 */
+	public int[] setBits() {
+		int[] result = new int[count()];
+		int n = 0;
+		for (int u = 0; u < words.length; u++) {
+			long word = words[u];
+			while (word != 0) {
+				result[n++] = (u * BITS_PER_WORD)
+						+ Long.numberOfTrailingZeros(word);
+				// clear lowest set bit
+				word &= word - 1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Perform a logical AND of this vector with {@code other}, storing the
+	 * result in this vector.
+	 *
+	 * @param other
+	 *            vector of the same size
+	 */
+	public void and(BitVector other) {
+		checkSameSize(other);
+		for (int i = 0; i < words.length; i++) {
+			words[i] &= other.words[i];
+		}
+	}
+
+	/**
+	 * Perform a logical OR of this vector with {@code other}, storing the
+	 * result in this vector.
+	 *
+	 * @param other
+	 *            vector of the same size
+	 */
+	public void or(BitVector other) {
+		checkSameSize(other);
+		for (int i = 0; i < words.length; i++) {
+			words[i] |= other.words[i];
+		}
+	}
+
+	/**
+	 * Perform a logical XOR of this vector with {@code other}, storing the
+	 * result in this vector.
+	 *
+	 * @param other
+	 *            vector of the same size
+	 */
+	public void xor(BitVector other) {
+		checkSameSize(other);
+		for (int i = 0; i < words.length; i++) {
+			words[i] ^= other.words[i];
+		}
+	}
+
+	/**
+	 * Clear every bit in this vector whose corresponding bit is set in
+	 * {@code other}.
+	 *
+	 * @param other
+	 *            vector of the same size
+	 */
+	public void andNot(BitVector other) {
+		checkSameSize(other);
+		for (int i = 0; i < words.length; i++) {
+			words[i] &= ~other.words[i];
+		}
+	}
+
+	/**
+	 * Convert to a {@code boolean[]}.
+	 *
+	 * @return boolean array with {@code true} for every set bit
+	 */
+	public boolean[] toBooleanArray() {
+		boolean[] result = new boolean[size];
+		for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+			result[i] = true;
+		}
+		return result;
+	}
+
+	/**
+	 * Copy this vector.
+	 *
+	 * @return a new {@link BitVector} with the same bits set
+	 */
+	public BitVector copy() {
+		BitVector copy = new BitVector(size);
+		System.arraycopy(words, 0, copy.words, 0, words.length);
+		return copy;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof BitVector)) {
+			return false;
+		}
+		BitVector other = (BitVector) obj;
+		return size == other.size && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * size + Arrays.hashCode(words);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(size + 2);
+		sb.append('[');
+		for (int i = 0; i < size; i++) {
+			sb.append(get(i) ? '1' : '0');
+		}
+		sb.append(']');
+		return sb.toString();
+	}
+}
@@ -0,0 +1,927 @@
+package org.omancode.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A table stored column by column, each column in a typed {@code double[]},
+ * {@code int[]}, {@code long[]} or {@code String[]}, rather than as an
+ * {@code Object[][]} of boxed cells. Missing values in primitive columns are
+ * marked in a {@link BitVector} that is only allocated once a column has a
+ * missing value. In {@code String} columns a missing value is a
+ * {@code null} element.
+ * <p>
+ * Columns wrap the arrays they are given without copying.
+ * {@link #rows(int, int)} and {@link #select(String...)} return views that
+ * share the same arrays, and {@link #row(int)} returns a view of a single
+ * row. Changes through any view are seen by all of them.
+ * <p>
+ * {@link #toObjectArray()} and {@link #fromObjectArray(String[], Object[][])}
+ * convert to and from row major {@code Object[][]}, and
+ * {@link org.omancode.util.swing.ColumnTableModel} displays a table in a
+ * {@code JTable}.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class ColumnTable {
+
+	private final int rowCount;
+
+	private final List<Column> columns;
+
+	/**
+	 * Construct an empty table. Columns added must have {@code rowCount}
+	 * rows.
+	 *
+	 * @param rowCount
+	 *            number of rows
+	 */
+	public ColumnTable(int rowCount) {
+		this(rowCount, new ArrayList<Column>());
+	}
+
+	private ColumnTable(int rowCount, List<Column> columns) {
+		if (rowCount < 0) {
+			throw new IllegalArgumentException("rowCount must be >= 0: "
+					+ rowCount);
+		}
+		this.rowCount = rowCount;
+		this.columns = columns;
+	}
+
+	/**
+	 * Create a table from a row major {@code Object[][]}. The type of each
+	 * column is the narrowest that holds all its non-null values: Integer,
+	 * Short and Byte cells give an {@code int} column, Long cells a
+	 * {@code long} column, other numbers a {@code double} column, and
+	 * anything else a {@code String} column of {@link String#valueOf(Object)}.
+	 * Null cells become missing values.
+	 *
+	 * @param names
+	 *            column names
+	 * @param rows
+	 *            rows, each with a cell per name
+	 * @return new table
+	 */
+	public static ColumnTable fromObjectArray(String[] names, Object[][] rows) {
+		ColumnTable table = new ColumnTable(rows.length);
+		for (int c = 0; c < names.length; c++) {
+			Class<?> type = columnType(rows, c);
+			if (type == String.class) {
+				String[] values = new String[rows.length];
+				for (int r = 0; r < rows.length; r++) {
+					Object cell = rows[r][c];
+					values[r] = cell == null ? null : String.valueOf(cell);
+				}
+				table.addColumn(names[c], values);
+				continue;
+			}
+
+			Column column;
+			if (type == double.class) {
+				column = table.addDoubleColumn(names[c]);
+			} else if (type == long.class) {
+				column = table.addLongColumn(names[c]);
+			} else {
+				column = table.addIntColumn(names[c]);
+			}
+			for (int r = 0; r < rows.length; r++) {
+				Number cell = (Number) rows[r][c];
+				if (cell == null) {
+					column.setNull(r);
+				} else if (type == double.class) {
+					((DoubleColumn) column).set(r, cell.doubleValue());
+				} else if (type == long.class) {
+					((LongColumn) column).set(r, cell.longValue());
+				} else {
+					((IntColumn) column).set(r, cell.intValue());
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Narrowest column type for column {@code c} of {@code rows}.
+	 */
+	private static Class<?> columnType(Object[][] rows, int c) {
+		Class<?> type = int.class;
+		for (int r = 0; r < rows.length; r++) {
+			Object cell = rows[r][c];
+			if (cell == null) {
+				continue;
+			}
+			if (!(cell instanceof Number)) {
+				return String.class;
+			}
+			if (cell instanceof Long) {
+				if (type == int.class) {
+					type = long.class;
+				}
+			} else if (!(cell instanceof Integer || cell instanceof Short
+					|| cell instanceof Byte)) {
+				type = double.class;
+			}
+		}
+		return type;
+	}
+
+	/**
+	 * Copy the table into a row major {@code Object[][]} of boxed cells, with
+	 * {@code null} for missing values.
+	 *
+	 * @return new array of {@link #getRowCount()} rows
+	 */
+	public Object[][] toObjectArray() {
+		Object[][] result = new Object[rowCount][columns.size()];
+		for (int c = 0; c < columns.size(); c++) {
+			Column column = columns.get(c);
+			for (int r = 0; r < rowCount; r++) {
+				result[r][c] = column.get(r);
+			}
+		}
+		return result;
+	}
+
+	private <C extends Column> C add(C column) {
+		if (indexOf(column.getName()) != ArrayUtil.INDEX_NOT_FOUND) {
+			throw new IllegalArgumentException("Duplicate column name "
+					+ column.getName());
+		}
+		columns.add(column);
+		return column;
+	}
+
+	private void checkLength(int length) {
+		if (length != rowCount) {
+			throw new IllegalArgumentException("Column has " + length
+					+ " rows, table has " + rowCount);
+		}
+	}
+
+	/**
+	 * Add a column that wraps {@code values} without copying.
+	 *
+	 * @param name
+	 *            column name
+	 * @param values
+	 *            values, one per row
+	 * @return the new column
+	 */
+	public DoubleColumn addColumn(String name, double[] values) {
+		checkLength(values.length);
+		return add(new DoubleColumn(name, values, null, 0, rowCount));
+	}
+
+	/**
+	 * Add a column that wraps {@code values} without copying.
+	 *
+	 * @param name
+	 *            column name
+	 * @param values
+	 *            values, one per row
+	 * @return the new column
+	 */
+	public IntColumn addColumn(String name, int[] values) {
+		checkLength(values.length);
+		return add(new IntColumn(name, values, null, 0, rowCount));
+	}
+
+	/**
+	 * Add a column that wraps {@code values} without copying.
+	 *
+	 * @param name
+	 *            column name
+	 * @param values
+	 *            values, one per row
+	 * @return the new column
+	 */
+	public LongColumn addColumn(String name, long[] values) {
+		checkLength(values.length);
+		return add(new LongColumn(name, values, null, 0, rowCount));
+	}
+
+	/**
+	 * Add a column that wraps {@code values} without copying. {@code null}
+	 * elements are missing values.
+	 *
+	 * @param name
+	 *            column name
+	 * @param values
+	 *            values, one per row
+	 * @return the new column
+	 */
+	public StringColumn addColumn(String name, String[] values) {
+		checkLength(values.length);
+		return add(new StringColumn(name, values, 0, rowCount));
+	}
+
+	/**
+	 * Add a column of zeros.
+	 *
+	 * @param name
+	 *            column name
+	 * @return the new column
+	 */
+	public DoubleColumn addDoubleColumn(String name) {
+		return addColumn(name, new double[rowCount]);
+	}
+
+	/**
+	 * Add a column of zeros.
+	 *
+	 * @param name
+	 *            column name
+	 * @return the new column
+	 */
+	public IntColumn addIntColumn(String name) {
+		return addColumn(name, new int[rowCount]);
+	}
+
+	/**
+	 * Add a column of zeros.
+	 *
+	 * @param name
+	 *            column name
+	 * @return the new column
+	 */
+	public LongColumn addLongColumn(String name) {
+		return addColumn(name, new long[rowCount]);
+	}
+
+	/**
+	 * Add a column of missing values.
+	 *
+	 * @param name
+	 *            column name
+	 * @return the new column
+	 */
+	public StringColumn addStringColumn(String name) {
+		return addColumn(name, new String[rowCount]);
+	}
+
+	/**
+	 * Number of rows.
+	 *
+	 * @return row count
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Number of columns.
+	 *
+	 * @return column count
+	 */
+	public int getColumnCount() {
+		return columns.size();
+	}
+
+	/**
+	 * Column names, in column order.
+	 *
+	 * @return new array of names
+	 */
+	public String[] getColumnNames() {
+		String[] names = new String[columns.size()];
+		for (int c = 0; c < names.length; c++) {
+			names[c] = columns.get(c).getName();
+		}
+		return names;
+	}
+
+	/**
+	 * Index of the column called {@code name}.
+	 *
+	 * @param name
+	 *            column name
+	 * @return index, or {@link ArrayUtil#INDEX_NOT_FOUND}
+	 */
+	public int indexOf(String name) {
+		for (int c = 0; c < columns.size(); c++) {
+			if (columns.get(c).getName().equals(name)) {
+				return c;
+			}
+		}
+		return ArrayUtil.INDEX_NOT_FOUND;
+	}
+
+	/**
+	 * Column at {@code index}.
+	 *
+	 * @param index
+	 *            column index
+	 * @return column
+	 */
+	public Column getColumn(int index) {
+		return columns.get(index);
+	}
+
+	/**
+	 * Column called {@code name}.
+	 *
+	 * @param name
+	 *            column name
+	 * @return column
+	 * @throws IllegalArgumentException
+	 *             if there is no such column
+	 */
+	public Column getColumn(String name) {
+		int index = indexOf(name);
+		if (index == ArrayUtil.INDEX_NOT_FOUND) {
+			throw new IllegalArgumentException("Unknown column " + name);
+		}
+		return columns.get(index);
+	}
+
+	/**
+	 * Columns, in order.
+	 *
+	 * @return unmodifiable list of columns
+	 */
+	public List<Column> getColumns() {
+		return Collections.unmodifiableList(columns);
+	}
+
+	/**
+	 * View of a single row.
+	 *
+	 * @param index
+	 *            row index
+	 * @return row view
+	 */
+	public Row row(int index) {
+		if (index < 0 || index >= rowCount) {
+			throw new IndexOutOfBoundsException("Row: " + index + ", Rows: "
+					+ rowCount);
+		}
+		return new Row(index);
+	}
+
+	/**
+	 * View of rows {@code [from, to)} that shares this table's arrays.
+	 * Columns added to the view are not added to this table.
+	 *
+	 * @param from
+	 *            first row (inclusive)
+	 * @param to
+	 *            last row (exclusive)
+	 * @return table view
+	 */
+	public ColumnTable rows(int from, int to) {
+		if (from < 0 || to > rowCount || from > to) {
+			throw new IndexOutOfBoundsException("rows [" + from + ", " + to
+					+ ") outside " + rowCount);
+		}
+		List<Column> view = new ArrayList<Column>(columns.size());
+		for (Column column : columns) {
+			view.add(column.view(from, to));
+		}
+		return new ColumnTable(to - from, view);
+	}
+
+	/**
+	 * View of the named columns, in the order given, that shares this
+	 * table's arrays.
+	 *
+	 * @param names
+	 *            column names
+	 * @return table view
+	 */
+	public ColumnTable select(String... names) {
+		List<Column> view = new ArrayList<Column>(names.length);
+		for (String name : names) {
+			view.add(getColumn(name));
+		}
+		return new ColumnTable(rowCount, view);
+	}
+
+	@Override
+	public String toString() {
+		return rowCount + " rows, columns: "
+				+ ArrayUtil.toString(getColumnNames());
+	}
+
+	/**
+	 * A view of one row of a {@link ColumnTable}.
+	 */
+	public final class Row {
+
+		private final int index;
+
+		private Row(int index) {
+			this.index = index;
+		}
+
+		/**
+		 * Index of this row in the table.
+		 *
+		 * @return row index
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Whether the cell in column {@code column} is missing.
+		 *
+		 * @param column
+		 *            column index
+		 * @return {@code true} if missing
+		 */
+		public boolean isNull(int column) {
+			return columns.get(column).isNull(index);
+		}
+
+		/**
+		 * Cell in column {@code column}, boxed.
+		 *
+		 * @param column
+		 *            column index
+		 * @return value, or {@code null} if missing
+		 */
+		public Object get(int column) {
+			return columns.get(column).get(index);
+		}
+
+		/**
+		 * Cell of a {@code double} column.
+		 *
+		 * @param column
+		 *            column index
+		 * @return value
+		 */
+		public double getDouble(int column) {
+			return ((DoubleColumn) columns.get(column)).getDouble(index);
+		}
+
+		/**
+		 * Cell of an {@code int} column.
+		 *
+		 * @param column
+		 *            column index
+		 * @return value
+		 */
+		public int getInt(int column) {
+			return ((IntColumn) columns.get(column)).getInt(index);
+		}
+
+		/**
+		 * Cell of a {@code long} column.
+		 *
+		 * @param column
+		 *            column index
+		 * @return value
+		 */
+		public long getLong(int column) {
+			return ((LongColumn) columns.get(column)).getLong(index);
+		}
+
+		/**
+		 * Cell of a {@code String} column.
+		 *
+		 * @param column
+		 *            column index
+		 * @return value, or {@code null} if missing
+		 */
+		public String getString(int column) {
+			return ((StringColumn) columns.get(column)).get(index);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (int c = 0; c < columns.size(); c++) {
+				if (c > 0) {
+					sb.append(", ");
+				}
+				sb.append(get(c));
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * A named column of rows {@code [offset, offset + size)} of a backing
+	 * array.
+	 */
+	public abstract static class Column {
+
+		private final String name;
+
+		/**
+		 * Index in the backing array of the first row.
+		 */
+		protected final int offset;
+
+		private final int size;
+
+		Column(String name, int offset, int size) {
+			this.name = name;
+			this.offset = offset;
+			this.size = size;
+		}
+
+		/**
+		 * Column name.
+		 *
+		 * @return name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Number of rows.
+		 *
+		 * @return size
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Index in the backing array of the first row of this column. Non
+		 * zero for views created by {@link ColumnTable#rows(int, int)}.
+		 *
+		 * @return offset
+		 */
+		public int getOffset() {
+			return offset;
+		}
+
+		/**
+		 * Element type, eg: {@code double.class}.
+		 *
+		 * @return type
+		 */
+		public abstract Class<?> getType();
+
+		/**
+		 * Whether row {@code row} is missing.
+		 *
+		 * @param row
+		 *            row index
+		 * @return {@code true} if missing
+		 */
+		public abstract boolean isNull(int row);
+
+		/**
+		 * Mark row {@code row} as missing.
+		 *
+		 * @param row
+		 *            row index
+		 */
+		public abstract void setNull(int row);
+
+		/**
+		 * Row {@code row}, boxed.
+		 *
+		 * @param row
+		 *            row index
+		 * @return value, or {@code null} if missing
+		 */
+		public abstract Object get(int row);
+
+		abstract Column view(int from, int to);
+
+		/**
+		 * Check {@code row} is within the column, and return its index in
+		 * the backing array.
+		 */
+		int index(int row) {
+			if (row < 0 || row >= size) {
+				throw new IndexOutOfBoundsException("Row: " + row + ", Rows: "
+						+ size);
+			}
+			return offset + row;
+		}
+
+		@Override
+		public String toString() {
+			return name + " (" + getType().getSimpleName() + ")";
+		}
+	}
+
+	/**
+	 * A column of primitives with missing values marked in a shared
+	 * {@link BitVector}, created on the first missing value.
+	 */
+	abstract static class PrimitiveColumn extends Column {
+
+		/**
+		 * Holder for the missing value bits, shared by all views of the
+		 * same backing array.
+		 */
+		final BitVector[] nulls;
+
+		private final int capacity;
+
+		PrimitiveColumn(String name, BitVector[] nulls, int capacity,
+				int offset, int size) {
+			super(name, offset, size);
+			this.nulls = nulls == null ? new BitVector[1] : nulls;
+			this.capacity = capacity;
+		}
+
+		@Override
+		public boolean isNull(int row) {
+			int i = index(row);
+			return nulls[0] != null && nulls[0].get(i);
+		}
+
+		@Override
+		public void setNull(int row) {
+			int i = index(row);
+			if (nulls[0] == null) {
+				nulls[0] = new BitVector(capacity);
+			}
+			nulls[0].set(i);
+		}
+
+		/**
+		 * Clear the missing bit of backing array index {@code i}.
+		 */
+		void present(int i) {
+			if (nulls[0] != null) {
+				nulls[0].clear(i);
+			}
+		}
+
+		/**
+		 * Number of missing values.
+		 *
+		 * @return count
+		 */
+		public int nullCount() {
+			if (nulls[0] == null) {
+				return 0;
+			}
+			int count = 0;
+			for (int i = nulls[0].nextSetBit(offset); i >= 0
+					&& i < offset + size(); i = nulls[0].nextSetBit(i + 1)) {
+				count++;
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * A {@code double} column.
+	 */
+	public static final class DoubleColumn extends PrimitiveColumn {
+
+		private final double[] values;
+
+		DoubleColumn(String name, double[] values, BitVector[] nulls,
+				int offset, int size) {
+			super(name, nulls, values.length, offset, size);
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return double.class;
+		}
+
+		/**
+		 * Row {@code row}. The value of a missing row is undefined.
+		 *
+		 * @param row
+		 *            row index
+		 * @return value
+		 */
+		public double getDouble(int row) {
+			return values[index(row)];
+		}
+
+		@Override
+		public Object get(int row) {
+			return isNull(row) ? null : Double.valueOf(getDouble(row));
+		}
+
+		/**
+		 * Set row {@code row}, clearing any missing mark.
+		 *
+		 * @param row
+		 *            row index
+		 * @param value
+		 *            value
+		 */
+		public void set(int row, double value) {
+			int i = index(row);
+			values[i] = value;
+			present(i);
+		}
+
+		/**
+		 * The backing array, not a copy. Row {@code r} is at
+		 * {@code array()[getOffset() + r]}.
+		 *
+		 * @return backing array
+		 */
+		public double[] array() {
+			return values;
+		}
+
+		@Override
+		DoubleColumn view(int from, int to) {
+			return new DoubleColumn(getName(), values, nulls, offset + from,
+					to - from);
+		}
+	}
+
+	/**
+	 * An {@code int} column.
+	 */
+	public static final class IntColumn extends PrimitiveColumn {
+
+		private final int[] values;
+
+		IntColumn(String name, int[] values, BitVector[] nulls, int offset,
+				int size) {
+			super(name, nulls, values.length, offset, size);
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return int.class;
+		}
+
+		/**
+		 * Row {@code row}. The value of a missing row is undefined.
+		 *
+		 * @param row
+		 *            row index
+		 * @return value
+		 */
+		public int getInt(int row) {
+			return values[index(row)];
+		}
+
+		@Override
+		public Object get(int row) {
+			return isNull(row) ? null : Integer.valueOf(getInt(row));
+		}
+
+		/**
+		 * Set row {@code row}, clearing any missing mark.
+		 *
+		 * @param row
+		 *            row index
+		 * @param value
+		 *            value
+		 */
+		public void set(int row, int value) {
+			int i = index(row);
+			values[i] = value;
+			present(i);
+		}
+
+		/**
+		 * The backing array, not a copy. Row {@code r} is at
+		 * {@code array()[getOffset() + r]}.
+		 *
+		 * @return backing array
+		 */
+		public int[] array() {
+			return values;
+		}
+
+		@Override
+		IntColumn view(int from, int to) {
+			return new IntColumn(getName(), values, nulls, offset + from, to
+					- from);
+		}
+	}
+
+	/**
+	 * A {@code long} column.
+	 */
+	public static final class LongColumn extends PrimitiveColumn {
+
+		private final long[] values;
+
+		LongColumn(String name, long[] values, BitVector[] nulls, int offset,
+				int size) {
+			super(name, nulls, values.length, offset, size);
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return long.class;
+		}
+
+		/**
+		 * Row {@code row}. The value of a missing row is undefined.
+		 *
+		 * @param row
+		 *            row index
+		 * @return value
+		 */
+		public long getLong(int row) {
+			return values[index(row)];
+		}
+
+		@Override
+		public Object get(int row) {
+			return isNull(row) ? null : Long.valueOf(getLong(row));
+		}
+
+		/**
+		 * Set row {@code row}, clearing any missing mark.
+		 *
+		 * @param row
+		 *            row index
+		 * @param value
+		 *            value
+		 */
+		public void set(int row, long value) {
+			int i = index(row);
+			values[i] = value;
+			present(i);
+		}
+
+		/**
+		 * The backing array, not a copy. Row {@code r} is at
+		 * {@code array()[getOffset() + r]}.
+		 *
+		 * @return backing array
+		 */
+		public long[] array() {
+			return values;
+		}
+
+		@Override
+		LongColumn view(int from, int to) {
+			return new LongColumn(getName(), values, nulls, offset + from, to
+					- from);
+		}
+	}
+
+	/**
+	 * A {@code String} column. Missing values are {@code null} elements.
+	 */
+	public static final class StringColumn extends Column {
+
+		private final String[] values;
+
+		StringColumn(String name, String[] values, int offset, int size) {
+			super(name, offset, size);
+			this.values = values;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return String.class;
+		}
+
+		@Override
+		public boolean isNull(int row) {
+			return values[index(row)] == null;
+		}
+
+		@Override
+		public void setNull(int row) {
+			values[index(row)] = null;
+		}
+
+		@Override
+		public String get(int row) {
+			return values[index(row)];
+		}
+
+		/**
+		 * Set row {@code row}.
+		 *
+		 * @param row
+		 *            row index
+		 * @param value
+		 *            value, or {@code null} if missing
+		 */
+		public void set(int row, String value) {
+			values[index(row)] = value;
+		}
+
+		/**
+		 * The backing array, not a copy. Row {@code r} is at
+		 * {@code array()[getOffset() + r]}.
+		 *
+		 * @return backing array
+		 */
+		public String[] array() {
+			return values;
+		}
+
+		@Override
+		StringColumn view(int from, int to) {
+			return new StringColumn(getName(), values, offset + from, to
+					- from);
+		}
+	}
+}
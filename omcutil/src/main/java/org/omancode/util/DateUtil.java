@@ -1,11 +1,18 @@
 package org.omancode.util;
 
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
 import java.util.Date;
-import java.util.Locale;
+import java.util.TimeZone;
 
 /**
  * Utility class of static methods that work with dates.
+ * <p>
+ * Formatting is thread-safe and does not lock. The most recently formatted
+ * second is cached, so repeated calls within the same second, eg: when
+ * naming a batch of files, return the same string without formatting.
  * 
  * @author Oliver Mannion
  * @version $Revision$
@@ -13,10 +20,35 @@ import java.util.Locale;
 public final class DateUtil {
 
 	/**
-	 * Unique sortable date formatter.
+	 * Rules of the default time zone when this class was loaded, as used by
+	 * the {@link java.text.SimpleDateFormat} this class once shared.
 	 */
-	private static final SimpleDateFormat UNIQUE_SORTABLE = new SimpleDateFormat(
-			"yyyyMMdd-HHmmss", Locale.getDefault());
+	private static final ZoneRules ZONE_RULES = TimeZone.getDefault()
+			.toZoneId().getRules();
+
+	private static final int MILLIS_PER_SECOND = 1000;
+
+	/**
+	 * A second and its formatted string. Immutable, so it can be shared
+	 * between threads through a volatile field.
+	 */
+	private static final class FormattedSecond {
+		private final long epochSecond;
+		private final String text;
+
+		private FormattedSecond(long epochSecond, String text) {
+			this.epochSecond = epochSecond;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * The last second formatted. Threads that format different seconds at
+	 * the same time may overwrite each other's entries, which only costs a
+	 * later miss.
+	 */
+	private static volatile FormattedSecond lastSecond = new FormattedSecond(
+			Long.MIN_VALUE, null);
 
 	private DateUtil() {
 		// no instantiation
@@ -30,7 +62,7 @@ public final class DateUtil {
 	 * @return unique sortable string representation of current date/time.
 	 */
 	public static String nowToSortableUniqueDateString() {
-		return toUniqueSortableString(new Date());
+		return toUniqueSortableString(System.currentTimeMillis());
 	}
 
 	/**
@@ -42,7 +74,60 @@ public final class DateUtil {
 	 * @return unique sortable string representation of {@code date}.
 	 */
 	public static String toUniqueSortableString(Date date) {
-		return UNIQUE_SORTABLE.format(date);
+		return toUniqueSortableString(date.getTime());
+	}
+
+	/**
+	 * Converts milliseconds since the epoch to a unique date time string in
+	 * sortable order. i.e: yyyyMMdd-HHmmss.
+	 * 
+	 * @param millis
+	 *            milliseconds since 1970-01-01T00:00:00Z
+	 * @return unique sortable string representation of {@code millis}.
+	 */
+	public static String toUniqueSortableString(long millis) {
+		long epochSecond = Math.floorDiv(millis, MILLIS_PER_SECOND);
+		FormattedSecond cached = lastSecond;
+		if (cached.epochSecond == epochSecond) {
+			return cached.text;
+		}
+		String text = formatSecond(epochSecond);
+		lastSecond = new FormattedSecond(epochSecond, text);
+		return text;
+	}
+
+	/**
+	 * Format as yyyyMMdd-HHmmss in the default time zone. Years before 1 AD
+	 * are written as the year of the era, as {@link java.text.SimpleDateFormat}
+	 * does.
+	 */
+	private static String formatSecond(long epochSecond) {
+		ZoneOffset offset = ZONE_RULES.getOffset(Instant
+				.ofEpochSecond(epochSecond));
+		LocalDateTime time = LocalDateTime.ofEpochSecond(epochSecond, 0,
+				offset);
+
+		int year = time.getYear();
+		int yearOfEra = year >= 1 ? year : 1 - year;
+
+		StringBuilder sb = new StringBuilder(16);
+		appendPadded(sb, yearOfEra, 4);
+		appendPadded(sb, time.getMonthValue(), 2);
+		appendPadded(sb, time.getDayOfMonth(), 2);
+		sb.append('-');
+		appendPadded(sb, time.getHour(), 2);
+		appendPadded(sb, time.getMinute(), 2);
+		appendPadded(sb, time.getSecond(), 2);
+		return sb.toString();
+	}
+
+	private static void appendPadded(StringBuilder sb, int value, int width) {
+		for (int limit = 10, i = 1; i < width; i++, limit *= 10) {
+			if (value < limit) {
+				sb.append('0');
+			}
+		}
+		sb.append(value);
 	}
 
 }
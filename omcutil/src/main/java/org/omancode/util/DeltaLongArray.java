@@ -0,0 +1,192 @@
+package org.omancode.util;
+
+import java.util.Arrays;
+
+/**
+ * An immutable {@code long[]} stored as the differences between consecutive
+ * values, each written as a zigzag varint. Suits timestamps, ids and other
+ * sorted or slowly changing series, where most differences fit in one or two
+ * bytes rather than eight.
+ * <p>
+ * Values are split into blocks of {@link #BLOCK_SIZE}. Each block keeps its
+ * first value and the byte offset of its differences, so any block can be
+ * decoded without decoding those before it, and {@link #get(int)} decodes at
+ * most one block.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class DeltaLongArray {
+
+	/**
+	 * Number of values in each block.
+	 */
+	public static final int BLOCK_SIZE = 128;
+
+	private final int size;
+
+	private final byte[] data;
+
+	/**
+	 * First value of each block.
+	 */
+	private final long[] bases;
+
+	/**
+	 * Offset in {@link #data} of the differences of each block.
+	 */
+	private final int[] offsets;
+
+	private DeltaLongArray(int size, byte[] data, long[] bases, int[] offsets) {
+		this.size = size;
+		this.data = data;
+		this.bases = bases;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Encode an array.
+	 *
+	 * @param values
+	 *            values to encode
+	 * @return encoded copy of {@code values}
+	 */
+	public static DeltaLongArray of(long[] values) {
+		int blocks = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		long[] bases = new long[blocks];
+		int[] offsets = new int[blocks];
+		byte[] data = new byte[Math.max(16, values.length)];
+		int pos = 0;
+
+		for (int b = 0; b < blocks; b++) {
+			int from = b * BLOCK_SIZE;
+			int to = Math.min(values.length, from + BLOCK_SIZE);
+			bases[b] = values[from];
+			offsets[b] = pos;
+			for (int i = from + 1; i < to; i++) {
+				// room for the longest varint
+				if (pos + 10 > data.length) {
+					data = Arrays.copyOf(data, data.length + (data.length >> 1)
+							+ 10);
+				}
+				long delta = values[i] - values[i - 1];
+				// zigzag so small negative differences are small too
+				long zigzag = (delta << 1) ^ (delta >> 63);
+				while ((zigzag & ~0x7FL) != 0) {
+					data[pos++] = (byte) ((zigzag & 0x7F) | 0x80);
+					zigzag >>>= 7;
+				}
+				data[pos++] = (byte) zigzag;
+			}
+		}
+		return new DeltaLongArray(values.length, Arrays.copyOf(data, pos),
+				bases, offsets);
+	}
+
+	/**
+	 * Number of values.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Number of blocks.
+	 *
+	 * @return block count
+	 */
+	public int blockCount() {
+		return bases.length;
+	}
+
+	/**
+	 * Value at {@code index}. Decodes the values before it in its block.
+	 *
+	 * @param index
+	 *            index
+	 * @return value
+	 */
+	public long get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		}
+		int b = index / BLOCK_SIZE;
+		long value = bases[b];
+		int pos = offsets[b];
+		for (int i = b * BLOCK_SIZE; i < index; i++) {
+			long zigzag = 0;
+			int shift = 0;
+			byte next;
+			do {
+				next = data[pos++];
+				zigzag |= (long) (next & 0x7F) << shift;
+				shift += 7;
+			} while (next < 0);
+			value += (zigzag >>> 1) ^ -(zigzag & 1);
+		}
+		return value;
+	}
+
+	/**
+	 * Decode block {@code block} into the start of {@code dest}.
+	 *
+	 * @param block
+	 *            block index
+	 * @param dest
+	 *            array of at least {@link #BLOCK_SIZE} elements
+	 * @return number of values decoded, {@link #BLOCK_SIZE} for all but
+	 *         the last block
+	 */
+	public int decodeBlock(int block, long[] dest) {
+		int length = Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+		long value = bases[block];
+		int pos = offsets[block];
+		dest[0] = value;
+		for (int i = 1; i < length; i++) {
+			long zigzag = 0;
+			int shift = 0;
+			byte next;
+			do {
+				next = data[pos++];
+				zigzag |= (long) (next & 0x7F) << shift;
+				shift += 7;
+			} while (next < 0);
+			value += (zigzag >>> 1) ^ -(zigzag & 1);
+			dest[i] = value;
+		}
+		return length;
+	}
+
+	/**
+	 * Decode all values.
+	 *
+	 * @return new array
+	 */
+	public long[] toArray() {
+		long[] result = new long[size];
+		long[] buffer = new long[BLOCK_SIZE];
+		for (int b = 0; b < blockCount(); b++) {
+			int length = decodeBlock(b, buffer);
+			System.arraycopy(buffer, 0, result, b * BLOCK_SIZE, length);
+		}
+		return result;
+	}
+
+	/**
+	 * Approximate memory used by the encoded values and block index.
+	 *
+	 * @return bytes
+	 */
+	public long getCompressedBytes() {
+		return data.length + 8L * bases.length + 4L * offsets.length;
+	}
+
+	@Override
+	public String toString() {
+		return "size: " + size + ", blocks: " + blockCount() + ", bytes: "
+				+ getCompressedBytes() + " (from " + 8L * size + ")";
+	}
+}
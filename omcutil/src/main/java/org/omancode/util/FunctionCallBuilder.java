@@ -0,0 +1,221 @@
+package org.omancode.util;
+
+import java.io.IOException;
+
+/**
+ * Builds function call strings, eg: {@code func(1, 2.5, "a")}, argument by
+ * argument without boxing, varargs arrays or intermediate strings. A
+ * builder can be reused for any number of calls:
+ *
+ * <pre>
+ * FunctionCallBuilder call = new FunctionCallBuilder();
+ * for (...) {
+ * 	call.start(sb, &quot;func&quot;).arg(i).arg(x).argQuoted(name).end();
+ * }
+ * </pre>
+ *
+ * Calls are written either straight into a caller supplied
+ * {@link StringBuilder}, or with {@link #start(CharSequence)} into a buffer
+ * held by the builder and then copied to any {@link Appendable} with
+ * {@link #appendTo(Appendable)}. Once the buffers have grown to the longest
+ * call, neither way allocates. Not thread-safe.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ * @see StringUtil#functionCall(String, Object...)
+ */
+public class FunctionCallBuilder {
+
+	private static final String ARG_SEPARATOR = ", ";
+
+	/**
+	 * Buffer used when no {@link StringBuilder} is supplied.
+	 */
+	private final StringBuilder buffer = new StringBuilder(64);
+
+	private StringBuilder out;
+
+	private int args;
+
+	/**
+	 * Start a call, appending to {@code sb}.
+	 *
+	 * @param sb
+	 *            destination
+	 * @param functionName
+	 *            function name
+	 * @return this builder
+	 */
+	public FunctionCallBuilder start(StringBuilder sb,
+			CharSequence functionName) {
+		out = sb;
+		args = 0;
+		out.append(functionName).append('(');
+		return this;
+	}
+
+	/**
+	 * Start a call in the builder's own buffer, clearing any previous call.
+	 * Finish with {@link #end()} and then {@link #appendTo(Appendable)} or
+	 * {@link #toString()}.
+	 *
+	 * @param functionName
+	 *            function name
+	 * @return this builder
+	 */
+	public FunctionCallBuilder start(CharSequence functionName) {
+		buffer.setLength(0);
+		return start(buffer, functionName);
+	}
+
+	private StringBuilder next() {
+		if (out == null) {
+			throw new IllegalStateException("call not started");
+		}
+		if (args++ > 0) {
+			out.append(ARG_SEPARATOR);
+		}
+		return out;
+	}
+
+	/**
+	 * Add an int argument.
+	 *
+	 * @param value
+	 *            argument
+	 * @return this builder
+	 */
+	public FunctionCallBuilder arg(int value) {
+		next().append(value);
+		return this;
+	}
+
+	/**
+	 * Add a long argument.
+	 *
+	 * @param value
+	 *            argument
+	 * @return this builder
+	 */
+	public FunctionCallBuilder arg(long value) {
+		next().append(value);
+		return this;
+	}
+
+	/**
+	 * Add a double argument, formatted as per {@link Double#toString(double)}.
+	 *
+	 * @param value
+	 *            argument
+	 * @return this builder
+	 */
+	public FunctionCallBuilder arg(double value) {
+		next().append(value);
+		return this;
+	}
+
+	/**
+	 * Add a boolean argument.
+	 *
+	 * @param value
+	 *            argument
+	 * @return this builder
+	 */
+	public FunctionCallBuilder arg(boolean value) {
+		next().append(value);
+		return this;
+	}
+
+	/**
+	 * Add an argument as is, eg: a variable name or an expression.
+	 *
+	 * @param value
+	 *            argument, {@code "null"} if {@code null}
+	 * @return this builder
+	 */
+	public FunctionCallBuilder arg(CharSequence value) {
+		next().append(value);
+		return this;
+	}
+
+	/**
+	 * Add an argument as per {@link String#valueOf(Object)}.
+	 *
+	 * @param value
+	 *            argument
+	 * @return this builder
+	 */
+	public FunctionCallBuilder arg(Object value) {
+		if (value instanceof CharSequence) {
+			return arg((CharSequence) value);
+		}
+		next().append(value);
+		return this;
+	}
+
+	/**
+	 * Add a string literal argument, in double quotes with quotes,
+	 * backslashes and control characters escaped.
+	 *
+	 * @param value
+	 *            argument
+	 * @return this builder
+	 * @see StringUtil#appendQuoted(StringBuilder, CharSequence)
+	 */
+	public FunctionCallBuilder argQuoted(CharSequence value) {
+		StringUtil.appendQuoted(next(), value);
+		return this;
+	}
+
+	/**
+	 * Add a named argument, eg: {@code name = value}, with the value added
+	 * by a following {@code arg} method.
+	 *
+	 * @param name
+	 *            argument name
+	 * @return this builder
+	 */
+	public FunctionCallBuilder name(CharSequence name) {
+		next().append(name).append(" = ");
+		// the value follows without a separator
+		args = 0;
+		return this;
+	}
+
+	/**
+	 * Finish the call.
+	 *
+	 * @return this builder
+	 */
+	public FunctionCallBuilder end() {
+		if (out == null) {
+			throw new IllegalStateException("call not started");
+		}
+		out.append(')');
+		out = null;
+		return this;
+	}
+
+	/**
+	 * Copy the last call built by {@link #start(CharSequence)} to
+	 * {@code dest}.
+	 *
+	 * @param dest
+	 *            destination, eg: a {@link java.io.Writer}
+	 * @throws IOException
+	 *             if problem writing to {@code dest}
+	 */
+	public void appendTo(Appendable dest) throws IOException {
+		dest.append(buffer);
+	}
+
+	/**
+	 * The last call built by {@link #start(CharSequence)}.
+	 *
+	 * @return call string
+	 */
+	@Override
+	public String toString() {
+		return buffer.toString();
+	}
+}
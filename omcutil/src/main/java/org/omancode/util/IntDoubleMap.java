@@ -0,0 +1,459 @@
+package org.omancode.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash map from primitive {@code int} keys to primitive {@code double} values.
+ * Keys and values are held in open addressing (linear probing) arrays, so
+ * there is no boxing on get, put or iteration and no per entry object.
+ * <p>
+ * Iterate over entries with a {@link Cursor}:
+ *
+ * <pre>
+ * IntDoubleMap.Cursor c = map.cursor();
+ * while (c.next()) {
+ * 	int key = c.key();
+ * 	double value = c.value();
+ * }
+ * </pre>
+ *
+ * Not thread-safe.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class IntDoubleMap {
+
+	/**
+	 * Default fraction of slots that may be filled before the table grows.
+	 */
+	public static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+	private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+	/**
+	 * Key of empty slots. An entry for this key is held separately in
+	 * {@link #hasFreeKey} and {@link #freeKeyValue}.
+	 */
+	private static final int FREE_KEY = 0;
+
+	private final float loadFactor;
+
+	private int[] keys;
+
+	private double[] values;
+
+	private int mask;
+
+	private int threshold;
+
+	/**
+	 * Number of entries in the table, excluding the free key entry.
+	 */
+	private int tableSize = 0;
+
+	private boolean hasFreeKey = false;
+
+	private double freeKeyValue;
+
+	/**
+	 * Construct an empty map.
+	 */
+	public IntDoubleMap() {
+		this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Construct an empty map sized to hold {@code expectedSize} entries
+	 * without growing.
+	 *
+	 * @param expectedSize
+	 *            expected number of entries
+	 */
+	public IntDoubleMap(int expectedSize) {
+		this(expectedSize, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Construct an empty map sized to hold {@code expectedSize} entries
+	 * without growing.
+	 *
+	 * @param expectedSize
+	 *            expected number of entries
+	 * @param loadFactor
+	 *            fraction of slots that may be filled before the table grows,
+	 *            greater than 0 and less than 1. Lower is faster, higher uses
+	 *            less memory.
+	 */
+	public IntDoubleMap(int expectedSize, float loadFactor) {
+		if (!(loadFactor > 0 && loadFactor < 1)) {
+			throw new IllegalArgumentException(
+					"loadFactor must be between 0 and 1: " + loadFactor);
+		}
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("expectedSize must be >= 0: "
+					+ expectedSize);
+		}
+		this.loadFactor = loadFactor;
+		allocate(tableCapacity(expectedSize, loadFactor));
+	}
+
+	/**
+	 * Construct a map from parallel arrays of keys and values. Where a key
+	 * repeats, the last value wins.
+	 *
+	 * @param keys
+	 *            keys
+	 * @param values
+	 *            values, the same length as {@code keys}
+	 */
+	public IntDoubleMap(int[] keys, double[] values) {
+		this(keys.length, DEFAULT_LOAD_FACTOR);
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException(
+					"keys and values must be the same length");
+		}
+		for (int i = 0; i < keys.length; i++) {
+			put(keys[i], values[i]);
+		}
+	}
+
+	private static int tableCapacity(int expectedSize, float loadFactor) {
+		long needed = (long) Math.ceil(Math.max(expectedSize, 1) / loadFactor) + 1;
+		if (needed > 1 << 30) {
+			throw new IllegalArgumentException("expectedSize too large: "
+					+ expectedSize);
+		}
+		return Integer.highestOneBit((int) needed - 1) << 1;
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new double[capacity];
+		mask = capacity - 1;
+		threshold = (int) Math.min(capacity - 1, (long) (capacity * loadFactor));
+	}
+
+	private int slot(int key) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * Number of entries.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return tableSize + (hasFreeKey ? 1 : 0);
+	}
+
+	/**
+	 * Returns {@code true} if there are no entries.
+	 *
+	 * @return {@code true} if empty
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns {@code true} if there is an entry for {@code key}.
+	 *
+	 * @param key
+	 *            key
+	 * @return {@code true} if present
+	 */
+	public boolean containsKey(int key) {
+		if (key == FREE_KEY) {
+			return hasFreeKey;
+		}
+		return find(key) >= 0;
+	}
+
+	private int find(int key) {
+		int slot = slot(key);
+		int k;
+		while ((k = keys[slot]) != FREE_KEY) {
+			if (k == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the value for {@code key}.
+	 *
+	 * @param key
+	 *            key
+	 * @param defaultValue
+	 *            value to return if there is no entry for {@code key}
+	 * @return value, or {@code defaultValue}
+	 */
+	public double get(int key, double defaultValue) {
+		if (key == FREE_KEY) {
+			return hasFreeKey ? freeKeyValue : defaultValue;
+		}
+		int slot = find(key);
+		return slot >= 0 ? values[slot] : defaultValue;
+	}
+
+	/**
+	 * Associate {@code value} with {@code key}, replacing any existing value.
+	 *
+	 * @param key
+	 *            key
+	 * @param value
+	 *            value
+	 * @return {@code true} if {@code key} was not already present
+	 */
+	public boolean put(int key, double value) {
+		if (key == FREE_KEY) {
+			boolean added = !hasFreeKey;
+			hasFreeKey = true;
+			freeKeyValue = value;
+			return added;
+		}
+
+		int slot = slot(key);
+		int k;
+		while ((k = keys[slot]) != FREE_KEY) {
+			if (k == key) {
+				values[slot] = value;
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++tableSize > threshold) {
+			rehash(keys.length << 1);
+		}
+		return true;
+	}
+
+	/**
+	 * Add {@code delta} to the value for {@code key}, treating a missing
+	 * entry as zero.
+	 *
+	 * @param key
+	 *            key
+	 * @param delta
+	 *            amount to add
+	 * @return the new value
+	 */
+	public double add(int key, double delta) {
+		if (key == FREE_KEY) {
+			freeKeyValue = hasFreeKey ? freeKeyValue + delta : delta;
+			hasFreeKey = true;
+			return freeKeyValue;
+		}
+
+		int slot = slot(key);
+		int k;
+		while ((k = keys[slot]) != FREE_KEY) {
+			if (k == key) {
+				values[slot] += delta;
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = delta;
+		if (++tableSize > threshold) {
+			rehash(keys.length << 1);
+		}
+		return delta;
+	}
+
+	/**
+	 * Remove the entry for {@code key}.
+	 *
+	 * @param key
+	 *            key
+	 * @return {@code true} if an entry was removed
+	 */
+	public boolean remove(int key) {
+		if (key == FREE_KEY) {
+			boolean removed = hasFreeKey;
+			hasFreeKey = false;
+			return removed;
+		}
+
+		int slot = find(key);
+		if (slot < 0) {
+			return false;
+		}
+
+		// shift back following entries of the same probe run
+		// so lookups never stop early at the emptied slot
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		int k;
+		while ((k = keys[next]) != FREE_KEY) {
+			int home = slot(k);
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = k;
+				values[gap] = values[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[gap] = FREE_KEY;
+		tableSize--;
+		return true;
+	}
+
+	/**
+	 * Remove all entries. The capacity is unchanged.
+	 */
+	public void clear() {
+		Arrays.fill(keys, FREE_KEY);
+		tableSize = 0;
+		hasFreeKey = false;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		double[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			int key = oldKeys[i];
+			if (key != FREE_KEY) {
+				int slot = slot(key);
+				while (keys[slot] != FREE_KEY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Copy the keys to a new array, in iteration order.
+	 *
+	 * @return keys
+	 */
+	public int[] keys() {
+		int[] result = new int[size()];
+		int n = 0;
+		for (Cursor c = cursor(); c.next();) {
+			result[n++] = c.key();
+		}
+		return result;
+	}
+
+	/**
+	 * Copy the values to a new array, in the same order as {@link #keys()}.
+	 *
+	 * @return values
+	 */
+	public double[] values() {
+		double[] result = new double[size()];
+		int n = 0;
+		for (Cursor c = cursor(); c.next();) {
+			result[n++] = c.value();
+		}
+		return result;
+	}
+
+	/**
+	 * Create a cursor positioned before the first entry. The map must not be
+	 * modified while iterating, except through {@link Cursor#setValue}.
+	 *
+	 * @return cursor
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Iterates over the entries of the map without boxing.
+	 */
+	public final class Cursor {
+
+		/**
+		 * Current slot; {@code keys.length} for the free key entry.
+		 */
+		private int slot = -1;
+
+		private Cursor() {
+		}
+
+		/**
+		 * Advance to the next entry.
+		 *
+		 * @return {@code false} if there are no more entries
+		 */
+		public boolean next() {
+			while (++slot < keys.length) {
+				if (keys[slot] != FREE_KEY) {
+					return true;
+				}
+			}
+			if (slot == keys.length && hasFreeKey) {
+				return true;
+			}
+			slot = keys.length + 1;
+			return false;
+		}
+
+		private void checkPositioned() {
+			if (slot < 0 || slot > keys.length) {
+				throw new NoSuchElementException();
+			}
+		}
+
+		/**
+		 * Key of the current entry.
+		 *
+		 * @return key
+		 */
+		public int key() {
+			checkPositioned();
+			return slot == keys.length ? FREE_KEY : keys[slot];
+		}
+
+		/**
+		 * Value of the current entry.
+		 *
+		 * @return value
+		 */
+		public double value() {
+			checkPositioned();
+			return slot == keys.length ? freeKeyValue : values[slot];
+		}
+
+		/**
+		 * Replace the value of the current entry.
+		 *
+		 * @param value
+		 *            new value
+		 */
+		public void setValue(double value) {
+			checkPositioned();
+			if (slot == keys.length) {
+				freeKeyValue = value;
+			} else {
+				values[slot] = value;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		for (Cursor c = cursor(); c.next();) {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(c.key()).append('=').append(c.value());
+		}
+		return sb.append('}').toString();
+	}
+}
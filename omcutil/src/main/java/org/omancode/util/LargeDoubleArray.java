@@ -0,0 +1,525 @@
+package org.omancode.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A {@code long} indexed array of doubles held outside the Java heap, either
+ * in direct memory or in a memory-mapped file. Unlike a {@code double[]} it
+ * can hold more than {@link Integer#MAX_VALUE} elements and, when file
+ * backed, more than fits in the heap or physical memory.
+ * <p>
+ * Storage is split into segments of {@code 2^27} doubles (1GB) because a
+ * single NIO buffer is limited to {@link Integer#MAX_VALUE} bytes.
+ * <p>
+ * Provides the same operations as {@link ArrayUtil} does for
+ * {@code double[]}: {@link #sum()}, {@link #count()}, {@link #zero()},
+ * {@link #transpose(LargeDoubleArray, long, long, LargeDoubleArray)} and bulk
+ * copies. Not thread-safe.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class LargeDoubleArray implements Closeable {
+
+	private static final int SEGMENT_SHIFT = 27;
+
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+	private static final int SEGMENT_MASK = (int) (SEGMENT_SIZE - 1);
+
+	private static final int BYTES_PER_DOUBLE = 8;
+
+	/**
+	 * Side length of the square tiles used by
+	 * {@link #transpose(LargeDoubleArray, long, long, LargeDoubleArray)}.
+	 */
+	private static final int TRANSPOSE_TILE = 64;
+
+	/**
+	 * Chunk of zeros used by {@link #zero()}.
+	 */
+	private static final double[] ZEROS = new double[4096];
+
+	private final long length;
+
+	private final DoubleBuffer[] segments;
+
+	/**
+	 * The mapped byte buffers behind {@link #segments}, or {@code null} if
+	 * not file backed.
+	 */
+	private final MappedByteBuffer[] mapped;
+
+	private boolean closed = false;
+
+	private LargeDoubleArray(long length, DoubleBuffer[] segments,
+			MappedByteBuffer[] mapped) {
+		this.length = length;
+		this.segments = segments;
+		this.mapped = mapped;
+	}
+
+	private static int segmentCount(long length) {
+		return (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+	}
+
+	private static int segmentLength(long length, int segment) {
+		return (int) Math.min(SEGMENT_SIZE, length
+				- ((long) segment << SEGMENT_SHIFT));
+	}
+
+	/**
+	 * Allocate an array of {@code length} zeros in direct (off-heap) memory.
+	 * The memory is released when the array is garbage collected.
+	 *
+	 * @param length
+	 *            number of elements
+	 * @return off-heap array
+	 */
+	public static LargeDoubleArray allocateDirect(long length) {
+		checkLength(length);
+		DoubleBuffer[] segments = new DoubleBuffer[segmentCount(length)];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = ByteBuffer
+					.allocateDirect(segmentLength(length, i) * BYTES_PER_DOUBLE)
+					.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		}
+		return new LargeDoubleArray(length, segments, null);
+	}
+
+	/**
+	 * Map a file of big-endian doubles (as written by
+	 * {@link java.io.DataOutputStream#writeDouble(double)}) read/write. The
+	 * file is created or extended as necessary to hold {@code length}
+	 * elements.
+	 *
+	 * @param file
+	 *            file to map
+	 * @param length
+	 *            number of elements
+	 * @return file backed array
+	 * @throws IOException
+	 *             if problem opening or mapping the file
+	 */
+	public static LargeDoubleArray map(File file, long length)
+			throws IOException {
+		return map(file, length, ByteOrder.BIG_ENDIAN, false);
+	}
+
+	/**
+	 * Map an existing file of big-endian doubles read only. The length is
+	 * taken from the size of the file.
+	 *
+	 * @param file
+	 *            file to map
+	 * @return file backed read only array
+	 * @throws IOException
+	 *             if problem opening or mapping the file
+	 */
+	public static LargeDoubleArray mapReadOnly(File file) throws IOException {
+		return map(file, file.length() / BYTES_PER_DOUBLE,
+				ByteOrder.BIG_ENDIAN, true);
+	}
+
+	/**
+	 * Map a file of doubles.
+	 *
+	 * @param file
+	 *            file to map
+	 * @param length
+	 *            number of elements
+	 * @param order
+	 *            byte order of the doubles in the file
+	 * @param readOnly
+	 *            if true the file is mapped read only and must already hold
+	 *            {@code length} elements, otherwise it is mapped read/write
+	 *            and created or extended as necessary
+	 * @return file backed array
+	 * @throws IOException
+	 *             if problem opening or mapping the file
+	 */
+	public static LargeDoubleArray map(File file, long length,
+			ByteOrder order, boolean readOnly) throws IOException {
+		checkLength(length);
+		if (readOnly && file.length() < length * BYTES_PER_DOUBLE) {
+			throw new IOException("File \"" + file + "\" is smaller than "
+					+ length + " doubles");
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(file, readOnly ? "r"
+				: "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY
+					: FileChannel.MapMode.READ_WRITE;
+
+			int count = segmentCount(length);
+			DoubleBuffer[] segments = new DoubleBuffer[count];
+			MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+			for (int i = 0; i < count; i++) {
+				long position = ((long) i << SEGMENT_SHIFT) * BYTES_PER_DOUBLE;
+				long size = (long) segmentLength(length, i) * BYTES_PER_DOUBLE;
+				mapped[i] = channel.map(mode, position, size);
+				segments[i] = mapped[i].order(order).asDoubleBuffer();
+			}
+
+			// mappings remain valid after the channel is closed
+			return new LargeDoubleArray(length, segments, mapped);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void checkLength(long length) {
+		if (length < 0) {
+			throw new IllegalArgumentException("length must be >= 0: "
+					+ length);
+		}
+	}
+
+	private DoubleBuffer segment(long index) {
+		if (closed) {
+			throw new IllegalStateException("Array has been closed");
+		}
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("index: " + index
+					+ ", length: " + length);
+		}
+		return segments[(int) (index >>> SEGMENT_SHIFT)];
+	}
+
+	private DoubleBuffer segmentAt(int segment) {
+		if (closed) {
+			throw new IllegalStateException("Array has been closed");
+		}
+		return segments[segment];
+	}
+
+	/**
+	 * Number of elements.
+	 *
+	 * @return length
+	 */
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * Get the element at {@code index}.
+	 *
+	 * @param index
+	 *            index
+	 * @return value
+	 */
+	public double get(long index) {
+		return segment(index).get((int) index & SEGMENT_MASK);
+	}
+
+	/**
+	 * Set the element at {@code index}.
+	 *
+	 * @param index
+	 *            index
+	 * @param value
+	 *            value
+	 */
+	public void set(long index, double value) {
+		segment(index).put((int) index & SEGMENT_MASK, value);
+	}
+
+	/**
+	 * Sum all elements.
+	 *
+	 * @return sum
+	 */
+	public double sum() {
+		double result = 0;
+		for (int s = 0; s < segments.length; s++) {
+			DoubleBuffer segment = segmentAt(s);
+			int limit = segment.limit();
+			for (int i = 0; i < limit; i++) {
+				result += segment.get(i);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of non-zero elements, the {@code double} equivalent
+	 * of {@link ArrayUtil#count(boolean[])}.
+	 *
+	 * @return number of non-zero elements
+	 */
+	public long count() {
+		long result = 0;
+		for (int s = 0; s < segments.length; s++) {
+			DoubleBuffer segment = segmentAt(s);
+			int limit = segment.limit();
+			for (int i = 0; i < limit; i++) {
+				if (segment.get(i) != 0) {
+					result++;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Set all elements to zero.
+	 */
+	public void zero() {
+		for (int s = 0; s < segments.length; s++) {
+			DoubleBuffer segment = segmentAt(s).duplicate();
+			segment.clear();
+			while (segment.hasRemaining()) {
+				segment.put(ZEROS, 0, Math.min(ZEROS.length,
+						segment.remaining()));
+			}
+		}
+	}
+
+	/**
+	 * Copy elements from a {@code double[]} into this array.
+	 *
+	 * @param src
+	 *            source array
+	 * @param srcPos
+	 *            starting position in the source array
+	 * @param destPos
+	 *            starting position in this array
+	 * @param count
+	 *            number of elements to copy
+	 */
+	public void copyFrom(double[] src, int srcPos, long destPos, int count) {
+		checkRange(destPos, count);
+		int copied = 0;
+		while (copied < count) {
+			long index = destPos + copied;
+			DoubleBuffer segment = segment(index).duplicate();
+			segment.position((int) index & SEGMENT_MASK);
+			int n = Math.min(count - copied, segment.remaining());
+			segment.put(src, srcPos + copied, n);
+			copied += n;
+		}
+	}
+
+	/**
+	 * Copy elements from this array into a {@code double[]}.
+	 *
+	 * @param srcPos
+	 *            starting position in this array
+	 * @param dest
+	 *            destination array
+	 * @param destPos
+	 *            starting position in the destination array
+	 * @param count
+	 *            number of elements to copy
+	 */
+	public void copyTo(long srcPos, double[] dest, int destPos, int count) {
+		checkRange(srcPos, count);
+		int copied = 0;
+		while (copied < count) {
+			long index = srcPos + copied;
+			DoubleBuffer segment = segment(index).duplicate();
+			segment.position((int) index & SEGMENT_MASK);
+			int n = Math.min(count - copied, segment.remaining());
+			segment.get(dest, destPos + copied, n);
+			copied += n;
+		}
+	}
+
+	/**
+	 * Copy elements between two {@link LargeDoubleArray}s. The ranges must
+	 * not overlap if {@code src} and {@code dest} are the same array.
+	 *
+	 * @param src
+	 *            source array
+	 * @param srcPos
+	 *            starting position in the source array
+	 * @param dest
+	 *            destination array
+	 * @param destPos
+	 *            starting position in the destination array
+	 * @param count
+	 *            number of elements to copy
+	 */
+	public static void copy(LargeDoubleArray src, long srcPos,
+			LargeDoubleArray dest, long destPos, long count) {
+		src.checkRange(srcPos, count);
+		dest.checkRange(destPos, count);
+		long copied = 0;
+		while (copied < count) {
+			long s = srcPos + copied;
+			long d = destPos + copied;
+			DoubleBuffer from = src.segment(s).duplicate();
+			from.position((int) s & SEGMENT_MASK);
+			DoubleBuffer to = dest.segment(d).duplicate();
+			to.position((int) d & SEGMENT_MASK);
+			int n = (int) Math.min(count - copied, Math.min(from.remaining(),
+					to.remaining()));
+			from.limit(from.position() + n);
+			to.put(from);
+			copied += n;
+		}
+	}
+
+	/**
+	 * Transpose a row-major matrix of {@code rows x cols} held in {@code src}
+	 * into {@code dest}, which then holds the {@code cols x rows} row-major
+	 * transpose. Works in square tiles so that both arrays are accessed in
+	 * runs, which matters when they are file backed.
+	 *
+	 * @param src
+	 *            source matrix, must not be {@code dest}
+	 * @param rows
+	 *            number of rows in {@code src}
+	 * @param cols
+	 *            number of columns in {@code src}
+	 * @param dest
+	 *            destination of at least {@code rows * cols} elements
+	 * @see ArrayUtil#transpose(double[][])
+	 */
+	public static void transpose(LargeDoubleArray src, long rows, long cols,
+			LargeDoubleArray dest) {
+		transpose(src, rows, cols, dest, TRANSPOSE_TILE);
+	}
+
+	/**
+	 * Transpose a row-major matrix file of big-endian doubles into another
+	 * file, without loading either into the heap. Both files are accessed
+	 * through memory mappings, a tile at a time, so matrices many times
+	 * larger than physical memory can be transposed: the operating system
+	 * pages the mapped regions in and out as tiles are visited.
+	 *
+	 * @param src
+	 *            source file of {@code rows * cols} doubles
+	 * @param rows
+	 *            number of rows in {@code src}
+	 * @param cols
+	 *            number of columns in {@code src}
+	 * @param dest
+	 *            destination file, created or overwritten. Will hold the
+	 *            {@code cols x rows} row-major transpose.
+	 * @param bufferBytes
+	 *            heap budget for the tile buffers. Larger tiles mean longer
+	 *            sequential runs in each file.
+	 * @throws IOException
+	 *             if problem reading or writing the files
+	 */
+	public static void transpose(File src, long rows, long cols, File dest,
+			long bufferBytes) throws IOException {
+		if (src.getCanonicalFile().equals(dest.getCanonicalFile())) {
+			throw new IllegalArgumentException(
+					"src and dest must be different files");
+		}
+
+		// two square tiles of doubles must fit in the budget
+		long side = (long) Math.sqrt(bufferBytes / (2.0 * BYTES_PER_DOUBLE));
+		int tile = (int) Math.max(1, Math.min(side, 1 << 14));
+
+		LargeDoubleArray in = map(src, rows * cols, ByteOrder.BIG_ENDIAN,
+				true);
+		try {
+			if (dest.exists() && dest.length() > rows * cols * BYTES_PER_DOUBLE) {
+				// shrink any existing larger file
+				RandomAccessFile raf = new RandomAccessFile(dest, "rw");
+				try {
+					raf.setLength(rows * cols * BYTES_PER_DOUBLE);
+				} finally {
+					raf.close();
+				}
+			}
+			LargeDoubleArray out = map(dest, rows * cols);
+			try {
+				transpose(in, rows, cols, out, tile);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Tiled transpose. Each tile is read into a heap buffer a row run at a
+	 * time, transposed in the heap, then written out a row run at a time.
+	 */
+	private static void transpose(LargeDoubleArray src, long rows, long cols,
+			LargeDoubleArray dest, int tile) {
+		if (src == dest) {
+			throw new IllegalArgumentException(
+					"src and dest must be different arrays");
+		}
+		src.checkRange(0, rows * cols);
+		dest.checkRange(0, rows * cols);
+
+		double[] in = new double[tile * tile];
+		double[] out = new double[tile * tile];
+
+		for (long r0 = 0; r0 < rows; r0 += tile) {
+			int h = (int) Math.min(tile, rows - r0);
+			for (long c0 = 0; c0 < cols; c0 += tile) {
+				int w = (int) Math.min(tile, cols - c0);
+
+				for (int r = 0; r < h; r++) {
+					src.copyTo((r0 + r) * cols + c0, in, r * w, w);
+				}
+				for (int r = 0; r < h; r++) {
+					for (int c = 0; c < w; c++) {
+						out[c * h + r] = in[r * w + c];
+					}
+				}
+				for (int c = 0; c < w; c++) {
+					dest.copyFrom(out, c * h, (c0 + c) * rows + r0, h);
+				}
+			}
+		}
+	}
+
+	private void checkRange(long pos, long count) {
+		if (pos < 0 || count < 0 || pos + count > length) {
+			throw new IndexOutOfBoundsException("range [" + pos + ", "
+					+ (pos + count) + ") outside length " + length);
+		}
+	}
+
+	/**
+	 * Write any changes to a memory-mapped file back to the storage device.
+	 * Has no effect if not file backed.
+	 */
+	public void force() {
+		if (mapped != null) {
+			for (MappedByteBuffer buffer : mapped) {
+				buffer.force();
+			}
+		}
+	}
+
+	/**
+	 * Flush changes to a memory-mapped file and release this array's
+	 * references to its buffers. The memory itself is released when the
+	 * buffers are garbage collected.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			if (mapped != null && mapped.length > 0 && !mapped[0].isReadOnly()) {
+				force();
+			}
+			Arrays.fill(segments, null);
+			if (mapped != null) {
+				Arrays.fill(mapped, null);
+			}
+			closed = true;
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package org.omancode.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive {@code long}s, for collecting an unknown
+ * number of values without boxing them into a {@code List<Long>}.
+ * <p>
+ * The backing array is available through {@link #array()} without copying.
+ * It may be longer than the list, so only the first {@link #size()} elements
+ * are valid. {@link #trimmedArray()} returns a backing array of exactly
+ * {@link #size()} elements, copying only if there is spare capacity.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ * @see DoubleList
+ * @see IntList
+ */
+public class LongList {
+
+	private static final int DEFAULT_CAPACITY = 10;
+
+	private long[] elements;
+
+	private int size = 0;
+
+	/**
+	 * Construct an empty list with a default initial capacity.
+	 */
+	public LongList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Construct an empty list.
+	 *
+	 * @param initialCapacity
+	 *            initial capacity
+	 */
+	public LongList(int initialCapacity) {
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException(
+					"initialCapacity must be >= 0: " + initialCapacity);
+		}
+		elements = new long[initialCapacity];
+	}
+
+	private LongList(long[] elements, int size) {
+		this.elements = elements;
+		this.size = size;
+	}
+
+	/**
+	 * Create a list backed by {@code array}, without copying. The list
+	 * initially contains all of the array's elements. Changes to the list
+	 * write through to the array until the list grows beyond it.
+	 *
+	 * @param array
+	 *            backing array
+	 * @return list
+	 */
+	public static LongList wrap(long[] array) {
+		return new LongList(array, array.length);
+	}
+
+	/**
+	 * Number of elements.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns {@code true} if the list has no elements.
+	 *
+	 * @return {@code true} if empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index
+					+ ", size: " + size);
+		}
+	}
+
+	/**
+	 * Get the element at {@code index}.
+	 *
+	 * @param index
+	 *            index
+	 * @return element
+	 */
+	public long get(int index) {
+		checkIndex(index);
+		return elements[index];
+	}
+
+	/**
+	 * Replace the element at {@code index}.
+	 *
+	 * @param index
+	 *            index
+	 * @param value
+	 *            new value
+	 * @return previous value
+	 */
+	public long set(int index, long value) {
+		checkIndex(index);
+		long old = elements[index];
+		elements[index] = value;
+		return old;
+	}
+
+	/**
+	 * Ensure the list can hold {@code minCapacity} elements without
+	 * reallocating.
+	 *
+	 * @param minCapacity
+	 *            minimum capacity
+	 */
+	public void ensureCapacity(int minCapacity) {
+		if (minCapacity > elements.length) {
+			int capacity = Math.max(minCapacity, elements.length
+					+ (elements.length >> 1) + 1);
+			elements = Arrays.copyOf(elements, capacity);
+		}
+	}
+
+	/**
+	 * Append a value.
+	 *
+	 * @param value
+	 *            value
+	 */
+	public void add(long value) {
+		if (size == elements.length) {
+			ensureCapacity(size + 1);
+		}
+		elements[size++] = value;
+	}
+
+	/**
+	 * Append all elements of an array.
+	 *
+	 * @param values
+	 *            values
+	 */
+	public void addAll(long[] values) {
+		addAll(values, 0, values.length);
+	}
+
+	/**
+	 * Append {@code length} elements of an array starting at {@code offset}.
+	 *
+	 * @param values
+	 *            values
+	 * @param offset
+	 *            index of first element to append
+	 * @param length
+	 *            number of elements to append
+	 */
+	public void addAll(long[] values, int offset, int length) {
+		ensureCapacity(size + length);
+		System.arraycopy(values, offset, elements, size, length);
+		size += length;
+	}
+
+	/**
+	 * Append all elements of another list.
+	 *
+	 * @param list
+	 *            list
+	 */
+	public void addAll(LongList list) {
+		addAll(list.elements, 0, list.size);
+	}
+
+	/**
+	 * Remove all elements. The capacity is unchanged.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * The backing array, without copying. Only the first {@link #size()}
+	 * elements are valid. Becomes stale if the list subsequently grows.
+	 *
+	 * @return backing array
+	 */
+	public long[] array() {
+		return elements;
+	}
+
+	/**
+	 * Shrink the capacity to {@link #size()}.
+	 */
+	public void trimToSize() {
+		if (size < elements.length) {
+			elements = Arrays.copyOf(elements, size);
+		}
+	}
+
+	/**
+	 * Trim the capacity to {@link #size()} and return the backing array. Only
+	 * copies if there was spare capacity.
+	 *
+	 * @return backing array of exactly {@link #size()} elements
+	 */
+	public long[] trimmedArray() {
+		trimToSize();
+		return elements;
+	}
+
+	/**
+	 * Copy the elements to a new array.
+	 *
+	 * @return new array of {@link #size()} elements
+	 */
+	public long[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+
+	/**
+	 * Sort the elements into ascending order.
+	 */
+	public void sort() {
+		Arrays.sort(elements, 0, size);
+	}
+
+	/**
+	 * Search a sorted list for {@code key}.
+	 *
+	 * @param key
+	 *            value to search for
+	 * @return index of {@code key}, otherwise
+	 *         <tt>(-(<i>insertion point</i>) - 1)</tt>
+	 * @see Arrays#binarySearch(long[], int, int, long)
+	 */
+	public int binarySearch(long key) {
+		return Arrays.binarySearch(elements, 0, size, key);
+	}
+
+	/**
+	 * Index of the first occurrence of {@code value}.
+	 *
+	 * @param value
+	 *            value to find
+	 * @return index, or {@link ArrayUtil#INDEX_NOT_FOUND} if not found
+	 */
+	public int indexOf(long value) {
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == value) {
+				return i;
+			}
+		}
+		return ArrayUtil.INDEX_NOT_FOUND;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('[');
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(elements[i]);
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -0,0 +1,188 @@
+package org.omancode.util;
+
+/**
+ * A view of part of an object array: {@code length} elements starting at
+ * {@code offset}, each {@code stride} elements apart. Reads and writes go
+ * straight to the backing array, so partitions of an array, or every
+ * {@code n}th element such as a column of a row major matrix, can be
+ * processed without {@link java.util.Arrays#copyOfRange(Object[], int, int)}.
+ * <p>
+ * {@link ArrayUtil} accepts slices for string conversion.
+ *
+ * @param <T>
+ *            element type
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class ObjectSlice<T> {
+
+	private final T[] array;
+
+	private final int offset;
+
+	private final int length;
+
+	private final int stride;
+
+	/**
+	 * Construct a slice of the whole array.
+	 *
+	 * @param array
+	 *            backing array
+	 */
+	public ObjectSlice(T[] array) {
+		this(array, 0, array.length, 1);
+	}
+
+	/**
+	 * Construct a slice of {@code length} consecutive elements.
+	 *
+	 * @param array
+	 *            backing array
+	 * @param offset
+	 *            index of the first element
+	 * @param length
+	 *            number of elements
+	 */
+	public ObjectSlice(T[] array, int offset, int length) {
+		this(array, offset, length, 1);
+	}
+
+	/**
+	 * Construct a slice of {@code length} elements {@code stride} apart.
+	 *
+	 * @param array
+	 *            backing array
+	 * @param offset
+	 *            index of the first element
+	 * @param length
+	 *            number of elements
+	 * @param stride
+	 *            distance between elements, at least 1
+	 */
+	public ObjectSlice(T[] array, int offset, int length, int stride) {
+		ArrayUtil.checkSlice(array.length, offset, length, stride);
+		this.array = array;
+		this.offset = offset;
+		this.length = length;
+		this.stride = stride;
+	}
+
+	/**
+	 * Number of elements.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return length;
+	}
+
+	/**
+	 * Index in the backing array of the first element.
+	 *
+	 * @return offset
+	 */
+	public int offset() {
+		return offset;
+	}
+
+	/**
+	 * Distance in the backing array between elements.
+	 *
+	 * @return stride
+	 */
+	public int stride() {
+		return stride;
+	}
+
+	/**
+	 * The backing array, not a copy. Element {@code i} is at
+	 * {@code array()[offset() + i * stride()]}.
+	 *
+	 * @return backing array
+	 */
+	public T[] array() {
+		return array;
+	}
+
+	/**
+	 * Whether the elements are adjacent in the backing array.
+	 *
+	 * @return {@code true} if stride is 1
+	 */
+	public boolean isContiguous() {
+		return stride == 1;
+	}
+
+	private int index(int i) {
+		if (i < 0 || i >= length) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: "
+					+ length);
+		}
+		return offset + i * stride;
+	}
+
+	/**
+	 * Element {@code i}.
+	 *
+	 * @param i
+	 *            index within the slice
+	 * @return value
+	 */
+	public T get(int i) {
+		return array[index(i)];
+	}
+
+	/**
+	 * Set element {@code i} in the backing array.
+	 *
+	 * @param i
+	 *            index within the slice
+	 * @param value
+	 *            value
+	 */
+	public void set(int i, T value) {
+		array[index(i)] = value;
+	}
+
+	/**
+	 * View of elements {@code [from, to)} of this slice.
+	 *
+	 * @param from
+	 *            first element (inclusive)
+	 * @param to
+	 *            last element (exclusive)
+	 * @return slice sharing the backing array
+	 */
+	public ObjectSlice<T> slice(int from, int to) {
+		if (from < 0 || to > length || from > to) {
+			throw new IndexOutOfBoundsException("[" + from + ", " + to
+					+ ") outside slice of " + length);
+		}
+		return new ObjectSlice<T>(array, offset + from * stride, to - from,
+				stride);
+	}
+
+	/**
+	 * Copy the elements into a new array.
+	 *
+	 * @return new array
+	 */
+	public Object[] toArray() {
+		Object[] result = new Object[length];
+		if (stride == 1) {
+			System.arraycopy(array, offset, result, 0, length);
+		} else {
+			for (int i = 0, j = offset; i < length; i++, j += stride) {
+				result[i] = array[j];
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return ArrayUtil.toString(this);
+	}
+}
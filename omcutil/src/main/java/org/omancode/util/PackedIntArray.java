@@ -0,0 +1,181 @@
+package org.omancode.util;
+
+/**
+ * An immutable {@code int[]} stored bit-packed. Values are split into blocks
+ * of {@link #BLOCK_SIZE}, and each block stores its values as offsets from
+ * the block minimum using only as many bits as the largest offset needs. Suits
+ * small or clustered ints such as codes, counts and categories: a block of
+ * values between 0 and 15 takes 4 bits per value rather than 32.
+ * <p>
+ * Every value is at a computed bit position, so {@link #get(int)} is
+ * constant time.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class PackedIntArray {
+
+	/**
+	 * Number of values in each block.
+	 */
+	public static final int BLOCK_SIZE = 128;
+
+	private final int size;
+
+	private final long[] words;
+
+	/**
+	 * Minimum of each block.
+	 */
+	private final int[] mins;
+
+	/**
+	 * Bits per value in each block, from 0 to 32.
+	 */
+	private final byte[] widths;
+
+	/**
+	 * Bit position of the start of each block.
+	 */
+	private final long[] starts;
+
+	private PackedIntArray(int size, long[] words, int[] mins, byte[] widths,
+			long[] starts) {
+		this.size = size;
+		this.words = words;
+		this.mins = mins;
+		this.widths = widths;
+		this.starts = starts;
+	}
+
+	/**
+	 * Pack an array.
+	 *
+	 * @param values
+	 *            values to pack
+	 * @return packed copy of {@code values}
+	 */
+	public static PackedIntArray of(int[] values) {
+		int blocks = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int[] mins = new int[blocks];
+		byte[] widths = new byte[blocks];
+		long[] starts = new long[blocks];
+
+		long bits = 0;
+		for (int b = 0; b < blocks; b++) {
+			int from = b * BLOCK_SIZE;
+			int to = Math.min(values.length, from + BLOCK_SIZE);
+			int min = values[from];
+			int max = values[from];
+			for (int i = from + 1; i < to; i++) {
+				min = Math.min(min, values[i]);
+				max = Math.max(max, values[i]);
+			}
+			long range = (long) max - min;
+			mins[b] = min;
+			widths[b] = (byte) (64 - Long.numberOfLeadingZeros(range));
+			starts[b] = bits;
+			bits += (long) widths[b] * (to - from);
+		}
+
+		long[] words = new long[BitPacking.words(bits)];
+		for (int b = 0; b < blocks; b++) {
+			int from = b * BLOCK_SIZE;
+			int to = Math.min(values.length, from + BLOCK_SIZE);
+			int width = widths[b];
+			long pos = starts[b];
+			for (int i = from; i < to; i++, pos += width) {
+				BitPacking.write(words, pos, (long) values[i] - mins[b], width);
+			}
+		}
+		return new PackedIntArray(values.length, words, mins, widths, starts);
+	}
+
+	/**
+	 * Number of values.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Number of blocks.
+	 *
+	 * @return block count
+	 */
+	public int blockCount() {
+		return mins.length;
+	}
+
+	/**
+	 * Value at {@code index}.
+	 *
+	 * @param index
+	 *            index
+	 * @return value
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		}
+		int b = index / BLOCK_SIZE;
+		int width = widths[b];
+		return (int) (mins[b] + BitPacking.read(words, starts[b]
+				+ (long) (index - b * BLOCK_SIZE) * width, width));
+	}
+
+	/**
+	 * Unpack block {@code block} into the start of {@code dest}.
+	 *
+	 * @param block
+	 *            block index
+	 * @param dest
+	 *            array of at least {@link #BLOCK_SIZE} elements
+	 * @return number of values unpacked, {@link #BLOCK_SIZE} for all but
+	 *         the last block
+	 */
+	public int decodeBlock(int block, int[] dest) {
+		int length = Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+		int width = widths[block];
+		int min = mins[block];
+		long pos = starts[block];
+		for (int i = 0; i < length; i++, pos += width) {
+			dest[i] = (int) (min + BitPacking.read(words, pos, width));
+		}
+		return length;
+	}
+
+	/**
+	 * Unpack all values.
+	 *
+	 * @return new array
+	 */
+	public int[] toArray() {
+		int[] result = new int[size];
+		int[] buffer = new int[BLOCK_SIZE];
+		for (int b = 0; b < blockCount(); b++) {
+			int length = decodeBlock(b, buffer);
+			System.arraycopy(buffer, 0, result, b * BLOCK_SIZE, length);
+		}
+		return result;
+	}
+
+	/**
+	 * Approximate memory used by the packed values and block index.
+	 *
+	 * @return bytes
+	 */
+	public long getCompressedBytes() {
+		return 8L * words.length + 4L * mins.length + widths.length + 8L
+				* starts.length;
+	}
+
+	@Override
+	public String toString() {
+		return "size: " + size + ", blocks: " + blockCount() + ", bytes: "
+				+ getCompressedBytes() + " (from " + 4L * size + ")";
+	}
+}
@@ -0,0 +1,230 @@
+package org.omancode.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates unique, sortable {@code long} ids, without locking. Each id
+ * packs, from the most significant bit:
+ * <ul>
+ * <li>{@value #TIMESTAMP_BITS} bits of milliseconds since
+ * {@link #EPOCH_MILLIS}, which lasts until 2089</li>
+ * <li>{@value #NODE_BITS} bits of node, identifying the process</li>
+ * <li>{@value #SEQUENCE_BITS} bits of sequence within the millisecond</li>
+ * </ul>
+ * Ids from one generator are strictly increasing, even if called from many
+ * threads at once, or if the system clock goes backwards. If more than
+ * {@code 2^}{@value #SEQUENCE_BITS} ids are asked for in a millisecond, the
+ * timestamp moves ahead of the clock until the clock catches up. Ids from
+ * generators with different nodes never collide.
+ * <p>
+ * {@link #toString(long)} formats an id as
+ * {@code yyyyMMdd-HHmmss-SSS-nnnsss}, ie: the date time as per
+ * {@link DateUtil#toUniqueSortableString(long)}, then milliseconds, node and
+ * sequence in fixed width hex, so the strings sort in the same order as the
+ * ids. The date time is local, so strings from the hour repeated when
+ * daylight saving ends sort out of order.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class SortableIdGenerator {
+
+	/**
+	 * Start of the timestamp, 2020-01-01T00:00:00Z.
+	 */
+	public static final long EPOCH_MILLIS = 1577836800000L;
+
+	/**
+	 * Bits of the timestamp.
+	 */
+	public static final int TIMESTAMP_BITS = 41;
+
+	/**
+	 * Bits of the node.
+	 */
+	public static final int NODE_BITS = 10;
+
+	/**
+	 * Bits of the sequence.
+	 */
+	public static final int SEQUENCE_BITS = 12;
+
+	/**
+	 * Largest node.
+	 */
+	public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+	private static final SortableIdGenerator SHARED = new SortableIdGenerator(
+			defaultNode());
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef"
+			.toCharArray();
+
+	/**
+	 * Node shifted into place.
+	 */
+	private final long nodeBits;
+
+	/**
+	 * Last timestamp and sequence issued, ie: the id without its node.
+	 */
+	private final AtomicLong last = new AtomicLong();
+
+	/**
+	 * Construct a generator.
+	 *
+	 * @param node
+	 *            node, from 0 to {@link #MAX_NODE}, that no other generator
+	 *            producing ids that must not collide with these is using
+	 */
+	public SortableIdGenerator(int node) {
+		if (node < 0 || node > MAX_NODE) {
+			throw new IllegalArgumentException("node must be between 0 and "
+					+ MAX_NODE);
+		}
+		this.nodeBits = (long) node << SEQUENCE_BITS;
+	}
+
+	/**
+	 * A generator shared by the process, with a node of
+	 * {@link #defaultNode()}.
+	 *
+	 * @return shared generator
+	 */
+	public static SortableIdGenerator shared() {
+		return SHARED;
+	}
+
+	/**
+	 * A node for this process: the process id XORed with a hash of the host
+	 * name, so processes running on one host at the same time have
+	 * different nodes unless their ids are {@code 2^}{@value #NODE_BITS}
+	 * apart. Random if the process id can't be found.
+	 *
+	 * @return node
+	 */
+	public static int defaultNode() {
+		// eg: 1234@hostname
+		String name = ManagementFactory.getRuntimeMXBean().getName();
+		int at = name.indexOf('@');
+		try {
+			int pid = Integer.parseInt(name.substring(0, at));
+			int host = name.substring(at + 1).hashCode();
+			return (pid ^ host ^ (host >>> NODE_BITS)) & MAX_NODE;
+		} catch (RuntimeException e) { // NOPMD
+			// not of the form pid@host
+			return ThreadLocalRandom.current().nextInt(MAX_NODE + 1);
+		}
+	}
+
+	/**
+	 * Generate an id greater than any this generator has returned.
+	 *
+	 * @return id
+	 */
+	public long nextId() {
+		long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+		long prev;
+		long next;
+		do {
+			prev = last.get();
+			next = Math.max(now, prev + 1);
+		} while (!last.compareAndSet(prev, next));
+
+		return toId(next);
+	}
+
+	/**
+	 * Insert the node between the timestamp and sequence.
+	 */
+	private long toId(long timestampAndSequence) {
+		long timestamp = timestampAndSequence >>> SEQUENCE_BITS;
+		return timestamp << (NODE_BITS + SEQUENCE_BITS) | nodeBits
+				| (timestampAndSequence & SEQUENCE_MASK);
+	}
+
+	/**
+	 * Generate an id and format it with {@link #toString(long)}.
+	 *
+	 * @return id string
+	 */
+	public String nextString() {
+		return toString(nextId());
+	}
+
+	/**
+	 * Node of this generator.
+	 *
+	 * @return node
+	 */
+	public int getNode() {
+		return (int) (nodeBits >>> SEQUENCE_BITS);
+	}
+
+	/**
+	 * Time of an id, in milliseconds since 1970-01-01T00:00:00Z.
+	 *
+	 * @param id
+	 *            id
+	 * @return timestamp
+	 */
+	public static long getTimestamp(long id) {
+		return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+	}
+
+	/**
+	 * Node of an id.
+	 *
+	 * @param id
+	 *            id
+	 * @return node
+	 */
+	public static int getNode(long id) {
+		return (int) (id >>> SEQUENCE_BITS) & MAX_NODE;
+	}
+
+	/**
+	 * Sequence of an id within its millisecond.
+	 *
+	 * @param id
+	 *            id
+	 * @return sequence
+	 */
+	public static int getSequence(long id) {
+		return (int) (id & SEQUENCE_MASK);
+	}
+
+	/**
+	 * Format an id as {@code yyyyMMdd-HHmmss-SSS-nnnsss}.
+	 *
+	 * @param id
+	 *            id
+	 * @return sortable string
+	 */
+	public static String toString(long id) {
+		long millis = getTimestamp(id);
+		StringBuilder sb = new StringBuilder(26);
+		sb.append(DateUtil.toUniqueSortableString(millis)).append('-');
+
+		int ms = (int) Math.floorMod(millis, 1000L);
+		sb.append((char) ('0' + ms / 100)).append((char) ('0' + ms / 10 % 10))
+				.append((char) ('0' + ms % 10)).append('-');
+
+		// node and sequence, 22 bits as 6 hex digits
+		int low = (int) (id & ((1L << (NODE_BITS + SEQUENCE_BITS)) - 1));
+		for (int shift = 20; shift >= 0; shift -= 4) {
+			sb.append(HEX_DIGITS[(low >>> shift) & 0xf]);
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "node: " + getNode() + ", last: "
+				+ toString(toId(last.get()));
+	}
+}
@@ -0,0 +1,275 @@
+package org.omancode.util;
+
+import java.util.Arrays;
+
+/**
+ * An index over a {@code String[]} that finds the position of a string in
+ * constant time, either case sensitively or case insensitively. Build it once
+ * and reuse it instead of repeated calls to
+ * {@link ArrayUtil#indexOfString(String[], String, boolean)}, which scans the
+ * array on every call.
+ * <p>
+ * As with {@link ArrayUtil#indexOfString(String[], String, boolean)}, when a
+ * string occurs more than once the lowest index is returned. Case insensitive
+ * matching follows {@link String#equalsIgnoreCase(String)}. The index holds a
+ * reference to the array it was built from, which must not be modified
+ * afterwards.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class StringIndex {
+
+	/**
+	 * Marks an empty slot in the hash tables.
+	 */
+	private static final int EMPTY = -1;
+
+	private final String[] array;
+
+	/**
+	 * Open addressing table of indices into {@link #array}, hashed with
+	 * {@link String#hashCode()}.
+	 */
+	private final int[] exactSlots;
+
+	/**
+	 * Open addressing table of indices into {@link #array}, hashed with
+	 * {@link #caseInsensitiveHash(String)}.
+	 */
+	private final int[] foldedSlots;
+
+	private final int mask;
+
+	/**
+	 * Index of the first {@code null} element, or
+	 * {@link ArrayUtil#INDEX_NOT_FOUND}.
+	 */
+	private final int nullIndex;
+
+	/**
+	 * Build an index over {@code array}.
+	 *
+	 * @param array
+	 *            array of strings to index, may contain {@code null}s
+	 */
+	public StringIndex(String[] array) {
+		this.array = array;
+
+		// power of two capacity, at most half full
+		int capacity = Integer.highestOneBit(Math.max(2, array.length) * 2);
+		if (capacity < array.length * 2) {
+			capacity <<= 1;
+		}
+		mask = capacity - 1;
+		exactSlots = new int[capacity];
+		foldedSlots = new int[capacity];
+		Arrays.fill(exactSlots, EMPTY);
+		Arrays.fill(foldedSlots, EMPTY);
+
+		int firstNull = ArrayUtil.INDEX_NOT_FOUND;
+		for (int i = 0; i < array.length; i++) {
+			String str = array[i];
+			if (str == null) {
+				if (firstNull == ArrayUtil.INDEX_NOT_FOUND) {
+					firstNull = i;
+				}
+				continue;
+			}
+			if (find(str, false) == ArrayUtil.INDEX_NOT_FOUND) {
+				insert(exactSlots, str.hashCode(), i);
+			}
+			if (find(str, true) == ArrayUtil.INDEX_NOT_FOUND) {
+				insert(foldedSlots, caseInsensitiveHash(str), i);
+			}
+		}
+		nullIndex = firstNull;
+	}
+
+	private void insert(int[] slots, int hash, int index) {
+		int slot = spread(hash) & mask;
+		while (slots[slot] != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = index;
+	}
+
+	private static int spread(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Hash code consistent with {@link String#equalsIgnoreCase(String)}, ie:
+	 * two strings that are equal ignoring case have the same hash. Computed
+	 * without allocating a lower case copy.
+	 *
+	 * @param str
+	 *            string
+	 * @return case insensitive hash
+	 */
+	private static int caseInsensitiveHash(String str) {
+		int h = 0;
+		for (int i = 0; i < str.length(); i++) {
+			char c = Character.toLowerCase(Character.toUpperCase(str
+					.charAt(i)));
+			h = 31 * h + c;
+		}
+		return h;
+	}
+
+	private int find(String str, boolean caseInsensitive) {
+		int[] slots;
+		int slot;
+		if (caseInsensitive) {
+			slots = foldedSlots;
+			slot = spread(caseInsensitiveHash(str)) & mask;
+		} else {
+			slots = exactSlots;
+			slot = spread(str.hashCode()) & mask;
+		}
+
+		int index;
+		while ((index = slots[slot]) != EMPTY) {
+			if (caseInsensitive ? str.equalsIgnoreCase(array[index]) : str
+					.equals(array[index])) {
+				return index;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return ArrayUtil.INDEX_NOT_FOUND;
+	}
+
+	/**
+	 * Number of elements in the indexed array.
+	 *
+	 * @return length of the indexed array
+	 */
+	public int size() {
+		return array.length;
+	}
+
+	/**
+	 * Convenience method that calls {@link #indexOf(String, boolean)} with a
+	 * caseInsensitive = true, the same default as
+	 * {@link ArrayUtil#indexOfString(String[], String)}.
+	 *
+	 * @param stringToFind
+	 *            the string to find, may be {@code null}
+	 * @return the lowest index of the string, or
+	 *         {@link ArrayUtil#INDEX_NOT_FOUND} if not found
+	 */
+	public int indexOf(String stringToFind) {
+		return indexOf(stringToFind, true);
+	}
+
+	/**
+	 * Find the lowest index of a string in the indexed array.
+	 *
+	 * @param stringToFind
+	 *            the string to find, may be {@code null}
+	 * @param caseInsensitive
+	 *            if true, the strings are compared without regard to case
+	 * @return the lowest index of the string, or
+	 *         {@link ArrayUtil#INDEX_NOT_FOUND} if not found
+	 */
+	public int indexOf(String stringToFind, boolean caseInsensitive) {
+		if (stringToFind == null) {
+			return nullIndex;
+		}
+		return find(stringToFind, caseInsensitive);
+	}
+
+	/**
+	 * Returns {@code true} if the indexed array contains {@code str}.
+	 *
+	 * @param str
+	 *            the string to find, may be {@code null}
+	 * @param caseInsensitive
+	 *            if true, the strings are compared without regard to case
+	 * @return {@code true} if found
+	 */
+	public boolean contains(String str, boolean caseInsensitive) {
+		return indexOf(str, caseInsensitive) != ArrayUtil.INDEX_NOT_FOUND;
+	}
+
+	/**
+	 * Map each string to its index in the indexed array.
+	 *
+	 * @param strings
+	 *            strings to find
+	 * @param caseInsensitive
+	 *            if true, the strings are compared without regard to case
+	 * @return array the same length as {@code strings} containing the index of
+	 *         each string in the indexed array, or
+	 *         {@link ArrayUtil#INDEX_NOT_FOUND} for those not found
+	 */
+	public int[] indicesOf(String[] strings, boolean caseInsensitive) {
+		int[] result = new int[strings.length];
+		for (int i = 0; i < strings.length; i++) {
+			result[i] = indexOf(strings[i], caseInsensitive);
+		}
+		return result;
+	}
+
+	/**
+	 * Positions in {@code strings} of the strings that are in the indexed
+	 * array.
+	 *
+	 * @param strings
+	 *            strings to find
+	 * @param caseInsensitive
+	 *            if true, the strings are compared without regard to case
+	 * @return ascending indices into {@code strings}
+	 */
+	public int[] intersection(String[] strings, boolean caseInsensitive) {
+		return select(strings, caseInsensitive, true);
+	}
+
+	/**
+	 * Positions in {@code strings} of the strings that are not in the indexed
+	 * array.
+	 *
+	 * @param strings
+	 *            strings to find
+	 * @param caseInsensitive
+	 *            if true, the strings are compared without regard to case
+	 * @return ascending indices into {@code strings}
+	 */
+	public int[] complement(String[] strings, boolean caseInsensitive) {
+		return select(strings, caseInsensitive, false);
+	}
+
+	private int[] select(String[] strings, boolean caseInsensitive,
+			boolean found) {
+		int[] result = new int[strings.length];
+		int n = 0;
+		for (int i = 0; i < strings.length; i++) {
+			if (contains(strings[i], caseInsensitive) == found) {
+				result[n++] = i;
+			}
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * Returns the first string in {@code strings} that is not in the indexed
+	 * array.
+	 *
+	 * @param strings
+	 *            strings to find
+	 * @param caseInsensitive
+	 *            if true, the strings are compared without regard to case
+	 * @return {@code null} if all {@code strings} are in the indexed array,
+	 *         otherwise the first one that is not
+	 * @see ArrayUtil#firstStringComplement(String[], String[], boolean)
+	 */
+	public String firstComplement(String[] strings, boolean caseInsensitive) {
+		for (int i = 0; i < strings.length; i++) {
+			if (!contains(strings[i], caseInsensitive)) {
+				return strings[i];
+			}
+		}
+		return null;
+	}
+}
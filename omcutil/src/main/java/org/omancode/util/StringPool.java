@@ -0,0 +1,296 @@
+package org.omancode.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe pool of canonical strings, for values such as
+ * property names, file extensions and paths that are repeated across many
+ * objects. {@link #intern(CharSequence)} returns the pooled string equal to
+ * its argument, so equal values share one instance and the duplicates can
+ * be collected.
+ * <p>
+ * Unlike {@link String#intern()} the pool has a fixed number of entries.
+ * Entries are held in sets of {@link #WAYS}, chosen by hash, ordered from
+ * most to least recently used. A miss on a full set evicts its least
+ * recently used entry. Lookups hash and compare the characters of the
+ * {@link CharSequence} directly, so a hit neither locks nor allocates, eg: a
+ * name can be looked up from a reused {@link StringBuilder}.
+ * <p>
+ * Updates are not locked. Concurrent misses on the same set may lose an
+ * entry or pool an equal string twice, which costs a later miss but never
+ * returns a string that is not equal to the one asked for.
+ * <p>
+ * Statistics count hits and misses, and estimate the bytes saved by
+ * returning a pooled string instead of keeping or creating a new one.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class StringPool {
+
+	/**
+	 * Number of entries in each set.
+	 */
+	public static final int WAYS = 4;
+
+	/**
+	 * Capacity of the {@link #shared()} pool.
+	 */
+	public static final int SHARED_CAPACITY = 4096;
+
+	private static final StringPool SHARED = new StringPool(SHARED_CAPACITY);
+
+	/**
+	 * Estimated bytes of a {@link String} and its {@code char[]} other than
+	 * the characters themselves: two object headers, the array length, hash
+	 * and reference.
+	 */
+	private static final int STRING_OVERHEAD = 40;
+
+	private final AtomicReferenceArray<String> entries;
+
+	/**
+	 * Mask from a hash to the first entry of its set.
+	 */
+	private final int setMask;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder savedBytes = new LongAdder();
+
+	/**
+	 * Construct a pool.
+	 *
+	 * @param capacity
+	 *            maximum number of strings, rounded up to a power of two and
+	 *            at least {@link #WAYS}
+	 */
+	public StringPool(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("capacity must be > 0 and <= "
+					+ (1 << 30));
+		}
+		int size = Math.max(WAYS, Integer.highestOneBit(capacity - 1) << 1);
+		entries = new AtomicReferenceArray<String>(size);
+		setMask = (size - 1) & ~(WAYS - 1);
+	}
+
+	/**
+	 * A pool shared by the util classes, with a capacity of
+	 * {@link #SHARED_CAPACITY}.
+	 *
+	 * @return shared pool
+	 */
+	public static StringPool shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Return the pooled string equal to {@code chars}, adding one if there
+	 * isn't one. If {@code chars} is a {@link String} it is itself pooled on
+	 * a miss.
+	 *
+	 * @param chars
+	 *            characters to look up
+	 * @return string equal to {@code chars}, or {@code null} if
+	 *         {@code chars} is {@code null}
+	 */
+	public String intern(CharSequence chars) {
+		if (chars == null) {
+			return null;
+		}
+		int hash = hash(chars);
+		int set = spread(hash) & setMask;
+
+		for (int i = 0; i < WAYS; i++) {
+			String entry = entries.get(set + i);
+			if (entry == null) {
+				break;
+			}
+			if (entry.hashCode() == hash && contentEquals(entry, chars)) {
+				hits.increment();
+				if (entry != chars) {
+					savedBytes.add(bytes(entry));
+				}
+				if (i > 0) {
+					promote(set, i, entry);
+				}
+				return entry;
+			}
+		}
+
+		misses.increment();
+		String str = chars.toString();
+		insert(set, str);
+		return str;
+	}
+
+	/**
+	 * Move the entry at {@code set + way} to the front of its set.
+	 */
+	private void promote(int set, int way, String entry) {
+		for (int i = way; i > 0; i--) {
+			entries.lazySet(set + i, entries.get(set + i - 1));
+		}
+		entries.lazySet(set, entry);
+	}
+
+	/**
+	 * Add {@code str} to the front of its set, dropping the last entry if
+	 * the set is full.
+	 */
+	private void insert(int set, String str) {
+		if (entries.get(set + WAYS - 1) != null) {
+			evictions.increment();
+		}
+		for (int i = WAYS - 1; i > 0; i--) {
+			entries.lazySet(set + i, entries.get(set + i - 1));
+		}
+		entries.set(set, str);
+	}
+
+	/**
+	 * Same as {@link String#hashCode()}, without creating a string.
+	 */
+	private static int hash(CharSequence chars) {
+		if (chars instanceof String) {
+			return chars.hashCode();
+		}
+		int h = 0;
+		for (int i = 0, n = chars.length(); i < n; i++) {
+			h = 31 * h + chars.charAt(i);
+		}
+		return h;
+	}
+
+	/**
+	 * Mix all the bits of a string hash into the low bits used to pick a
+	 * set. Similar strings, eg: {@code name1}, {@code name2}, have hashes
+	 * that differ only in a few low bits, and would otherwise fill a few
+	 * sets. Uses the MurmurHash3 finalizer.
+	 */
+	private static int spread(int hash) {
+		int h = hash ^ (hash >>> 16);
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean contentEquals(String str, CharSequence chars) {
+		if (chars instanceof String) {
+			return str.equals(chars);
+		}
+		int n = str.length();
+		if (n != chars.length()) {
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			if (str.charAt(i) != chars.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Estimated heap bytes of {@code str}, assuming two bytes a character.
+	 */
+	private static long bytes(String str) {
+		return (STRING_OVERHEAD + 2L * str.length() + 7) & ~7L;
+	}
+
+	/**
+	 * Maximum number of pooled strings.
+	 *
+	 * @return capacity
+	 */
+	public int capacity() {
+		return entries.length();
+	}
+
+	/**
+	 * Number of pooled strings. Counts every entry, so is not constant time.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < entries.length(); i++) {
+			if (entries.get(i) != null) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Remove all pooled strings. Statistics are kept.
+	 */
+	public void clear() {
+		for (int i = 0; i < entries.length(); i++) {
+			entries.set(i, null);
+		}
+	}
+
+	/**
+	 * Number of lookups that found a pooled string.
+	 *
+	 * @return hit count
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Number of lookups that added a string.
+	 *
+	 * @return miss count
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Number of strings dropped from a full set to make room for another.
+	 *
+	 * @return eviction count
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Estimated heap bytes saved by hits that returned a pooled string in
+	 * place of a different instance, which the caller can then drop, or
+	 * in place of creating one from a non {@link String} sequence.
+	 *
+	 * @return bytes saved
+	 */
+	public long getSavedBytes() {
+		return savedBytes.sum();
+	}
+
+	/**
+	 * Fraction of lookups that were hits.
+	 *
+	 * @return hit ratio, or {@code NaN} if there have been no lookups
+	 */
+	public double getHitRatio() {
+		long h = getHitCount();
+		long total = h + getMissCount();
+		return total == 0 ? Double.NaN : (double) h / total;
+	}
+
+	@Override
+	public String toString() {
+		return "capacity: " + capacity() + ", hits: " + getHitCount()
+				+ ", misses: " + getMissCount() + ", evictions: "
+				+ getEvictionCount() + ", saved bytes: " + getSavedBytes();
+	}
+}
@@ -8,29 +8,31 @@ package org.omancode.util;
  */
 public final class StringUtil {
 
+	private static final char[] HEX_DIGITS = "0123456789abcdef"
+			.toCharArray();
+
 	private StringUtil() {
 		// static util class
 	}
 
 	/**
-	 * Construct a function call string, eg: "func(1,2,3)".
+	 * Construct a function call string, eg: "func(1, 2, 3)". For building
+	 * many calls without allocating, use a {@link FunctionCallBuilder}.
 	 * 
 	 * @param functionName
 	 *            function names
 	 * @param args
-	 *            args
+	 *            args, may be empty
 	 * @return function call string
 	 */
 	public static String functionCall(String functionName, Object... args) {
-		StringBuilder sb = new StringBuilder(64);
+		FunctionCallBuilder call = new FunctionCallBuilder();
 
-		sb.append(functionName).append("(");
-		int i = 0;
-		for (; i < args.length - 1; i++) {
-			sb.append(args[i].toString()).append(", ");
+		call.start(functionName);
+		for (Object arg : args) {
+			call.arg(arg);
 		}
-		sb.append(args[i].toString()).append(")");
-		return sb.toString();
+		return call.end().toString();
 	}
 
 	/**
@@ -43,4 +45,53 @@ public final class StringUtil {
 	public static String doublequote(String str) {
 		return "\"" + str + "\"";
 	}
+
+	/**
+	 * Append {@code str} to {@code sb} wrapped in double quotes, with double
+	 * quotes and backslashes escaped by a backslash, newlines, carriage
+	 * returns and tabs written as {@code \n}, {@code \r} and {@code \t},
+	 * and other control characters as a four digit unicode escape. Does not
+	 * allocate.
+	 * 
+	 * @param sb
+	 *            destination
+	 * @param str
+	 *            string to quote, or {@code null} to append {@code null}
+	 *            unquoted
+	 * @return {@code sb}
+	 */
+	public static StringBuilder appendQuoted(StringBuilder sb,
+			CharSequence str) {
+		if (str == null) {
+			return sb.append((String) null);
+		}
+
+		sb.append('"');
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+			case '"':
+			case '\\':
+				sb.append('\\').append(c);
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < ' ') {
+					sb.append("\\u00").append(HEX_DIGITS[c >> 4]).append(
+							HEX_DIGITS[c & 0xF]);
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		return sb.append('"');
+	}
 }
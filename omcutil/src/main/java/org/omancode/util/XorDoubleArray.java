@@ -0,0 +1,244 @@
+package org.omancode.util;
+
+import java.util.Arrays;
+
+/**
+ * An immutable {@code double[]} compressed with the XOR encoding of the
+ * Gorilla time series database (Pelkonen et al, "Gorilla: A Fast, Scalable,
+ * In-Memory Time Series Database", 2015). Each value is XORed with the one
+ * before it. A repeated value then takes one bit, and a value that changes
+ * only a few bits of the mantissa takes a few more. Series that change
+ * slowly or repeat compress well. Random noise does not compress, and may
+ * take slightly more than 64 bits a value.
+ * <p>
+ * Values are split into blocks of {@link #BLOCK_SIZE}. Each block starts
+ * with its first value in full, so any block can be decoded without decoding
+ * those before it, and {@link #get(int)} decodes at most one block.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public final class XorDoubleArray {
+
+	/**
+	 * Number of values in each block.
+	 */
+	public static final int BLOCK_SIZE = 128;
+
+	/**
+	 * Bits used to store the number of leading zeros of an XOR, which is
+	 * capped to fit.
+	 */
+	private static final int LEADING_BITS = 5;
+
+	private static final int MAX_LEADING = (1 << LEADING_BITS) - 1;
+
+	/**
+	 * Bits used to store the number of meaningful bits of an XOR, less one.
+	 */
+	private static final int LENGTH_BITS = 6;
+
+	private final int size;
+
+	private final long[] words;
+
+	/**
+	 * Bit position of the start of each block.
+	 */
+	private final long[] starts;
+
+	private XorDoubleArray(int size, long[] words, long[] starts) {
+		this.size = size;
+		this.words = words;
+		this.starts = starts;
+	}
+
+	/**
+	 * Encode an array.
+	 *
+	 * @param values
+	 *            values to encode
+	 * @return encoded copy of {@code values}
+	 */
+	public static XorDoubleArray of(double[] values) {
+		int blocks = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		long[] starts = new long[blocks];
+		long[] words = new long[Math.max(1, values.length / 4)];
+		long pos = 0;
+
+		for (int b = 0; b < blocks; b++) {
+			int from = b * BLOCK_SIZE;
+			int to = Math.min(values.length, from + BLOCK_SIZE);
+			starts[b] = pos;
+
+			long previous = Double.doubleToRawLongBits(values[from]);
+			words = BitPacking.write(words, pos, previous, 64);
+			pos += 64;
+			int windowLeading = -1;
+			int windowTrailing = 0;
+
+			for (int i = from + 1; i < to; i++) {
+				long bits = Double.doubleToRawLongBits(values[i]);
+				long xor = bits ^ previous;
+				previous = bits;
+
+				if (xor == 0) {
+					// '0'
+					words = BitPacking.write(words, pos, 0, 1);
+					pos += 1;
+					continue;
+				}
+
+				int leading = Math.min(MAX_LEADING, Long
+						.numberOfLeadingZeros(xor));
+				int trailing = Long.numberOfTrailingZeros(xor);
+				if (windowLeading >= 0 && leading >= windowLeading
+						&& trailing >= windowTrailing) {
+					// '10', then the meaningful bits within the last window
+					int length = 64 - windowLeading - windowTrailing;
+					words = BitPacking.write(words, pos, 1, 2);
+					pos += 2;
+					words = BitPacking.write(words, pos, xor >>> windowTrailing,
+							length);
+					pos += length;
+				} else {
+					// '11', leading zeros, length, then the meaningful bits
+					int length = 64 - leading - trailing;
+					words = BitPacking.write(words, pos, 3, 2);
+					pos += 2;
+					words = BitPacking.write(words, pos, leading, LEADING_BITS);
+					pos += LEADING_BITS;
+					words = BitPacking.write(words, pos, length - 1, LENGTH_BITS);
+					pos += LENGTH_BITS;
+					words = BitPacking.write(words, pos, xor >>> trailing, length);
+					pos += length;
+					windowLeading = leading;
+					windowTrailing = trailing;
+				}
+			}
+		}
+		return new XorDoubleArray(values.length, Arrays.copyOf(words,
+				BitPacking.words(pos)), starts);
+	}
+
+	/**
+	 * Number of values.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Number of blocks.
+	 *
+	 * @return block count
+	 */
+	public int blockCount() {
+		return starts.length;
+	}
+
+	/**
+	 * Value at {@code index}. Decodes the values before it in its block.
+	 *
+	 * @param index
+	 *            index
+	 * @return value
+	 */
+	public double get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		}
+		int b = index / BLOCK_SIZE;
+		return Double.longBitsToDouble(decode(b, null, index - b * BLOCK_SIZE
+				+ 1));
+	}
+
+	/**
+	 * Decode block {@code block} into the start of {@code dest}.
+	 *
+	 * @param block
+	 *            block index
+	 * @param dest
+	 *            array of at least {@link #BLOCK_SIZE} elements
+	 * @return number of values decoded, {@link #BLOCK_SIZE} for all but
+	 *         the last block
+	 */
+	public int decodeBlock(int block, double[] dest) {
+		int length = Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+		decode(block, dest, length);
+		return length;
+	}
+
+	/**
+	 * Decode the first {@code length} values of a block into {@code dest},
+	 * if not null.
+	 *
+	 * @return bits of the last value decoded
+	 */
+	private long decode(int block, double[] dest, int length) {
+		long pos = starts[block];
+		long value = BitPacking.read(words, pos, 64);
+		pos += 64;
+		if (dest != null) {
+			dest[0] = Double.longBitsToDouble(value);
+		}
+		int windowTrailing = 0;
+		int windowLength = 0;
+
+		for (int i = 1; i < length; i++) {
+			if (BitPacking.read(words, pos, 1) != 0) {
+				if (BitPacking.read(words, pos + 1, 1) != 0) {
+					pos += 2;
+					int leading = (int) BitPacking.read(words, pos, LEADING_BITS);
+					pos += LEADING_BITS;
+					windowLength = (int) BitPacking.read(words, pos, LENGTH_BITS) + 1;
+					pos += LENGTH_BITS;
+					windowTrailing = 64 - leading - windowLength;
+				} else {
+					pos += 2;
+				}
+				value ^= BitPacking.read(words, pos, windowLength) << windowTrailing;
+				pos += windowLength;
+			} else {
+				pos += 1;
+			}
+			if (dest != null) {
+				dest[i] = Double.longBitsToDouble(value);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Decode all values.
+	 *
+	 * @return new array
+	 */
+	public double[] toArray() {
+		double[] result = new double[size];
+		double[] buffer = new double[BLOCK_SIZE];
+		for (int b = 0; b < blockCount(); b++) {
+			int length = decodeBlock(b, buffer);
+			System.arraycopy(buffer, 0, result, b * BLOCK_SIZE, length);
+		}
+		return result;
+	}
+
+	/**
+	 * Approximate memory used by the encoded values and block index.
+	 *
+	 * @return bytes
+	 */
+	public long getCompressedBytes() {
+		return 8L * words.length + 8L * starts.length;
+	}
+
+	@Override
+	public String toString() {
+		return "size: " + size + ", blocks: " + blockCount() + ", bytes: "
+				+ getCompressedBytes() + " (from " + 8L * size + ")";
+	}
+}
@@ -9,6 +9,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.beanutils.PropertyUtils;
+import org.omancode.util.StringPool;
 
 /**
  * Inspects a bean and provides its property names and types. If the property
@@ -233,7 +234,7 @@ public class BeanPropertyInspector implements
 				// property won't be added to the list
 				PropertyUtils.getProperty(bean, propName);
 
-				propNames.add(propName);
+				propNames.add(StringPool.shared().intern(propName));
 				propCount++;
 
 				if (klass.isPrimitive() && reportBoxedPrimitiveType) {
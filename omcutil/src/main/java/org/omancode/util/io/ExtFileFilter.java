@@ -47,6 +47,8 @@ import java.util.List;
 
 import javax.swing.filechooser.FileFilter;
 
+import org.omancode.util.StringPool;
+
 /**
  * A convenience implementation of FileFilter that filters out all files except
  * for those type extensions that it knows about.
@@ -166,7 +168,7 @@ public class ExtFileFilter extends FileFilter {
 				return true;
 			}
 			String extension = getExtension(f);
-			if (extension != null && filters.contains(getExtension(f))) {
+			if (extension != null && filters.contains(extension)) {
 				return true;
 			}
 		}
@@ -203,7 +205,7 @@ public class ExtFileFilter extends FileFilter {
 	 * Note that the "." before the extension is not needed and will be ignored.
 	 */
 	public final void addExtension(String extension) {
-		filters.add(extension.toLowerCase());
+		filters.add(StringPool.shared().intern(extension.toLowerCase()));
 		fullDescription = null;
 	}
 
@@ -11,7 +11,7 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
-import org.omancode.util.DateUtil;
+import org.omancode.util.SortableIdGenerator;
 
 /**
  * Static utility class of general purpose file functions.
@@ -221,18 +221,20 @@ public final class FileUtil {
 	}
 
 	/**
-	 * Takes a file name, removes any illegal characters and prefixes a date.
+	 * Takes a file name, removes any illegal characters and prefixes a date
+	 * and unique id from {@link SortableIdGenerator#shared()}, so names
+	 * created in the same second, or by parallel processes, differ.
 	 * 
 	 * @param fileName
 	 *            file name
-	 * @return date + filename (cleaned)
+	 * @return date + id + filename (cleaned)
 	 */
 	public static String cleanDatedName(String fileName) {
 
 		// strip runName of any illegal characters
 		String cleanedRunName = FileUtil.stripInvalidFileNameChars(fileName);
 		String datedfileName =
-				DateUtil.nowToSortableUniqueDateString() + " "
+				SortableIdGenerator.shared().nextString() + " "
 						+ cleanedRunName;
 		return datedfileName;
 
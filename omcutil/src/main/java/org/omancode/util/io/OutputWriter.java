@@ -0,0 +1,108 @@
+package org.omancode.util.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A {@link Writer} that prints to an {@link Output}. Characters are buffered
+ * and printed in chunks, so writing many small pieces results in few calls to
+ * {@link Output#print(String)}. Remember to {@link #flush()} or
+ * {@link #close()} when finished.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class OutputWriter extends Writer {
+
+	/**
+	 * Default number of characters buffered before printing.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	private final Output output;
+
+	private final char[] buffer;
+
+	private int count = 0;
+
+	/**
+	 * Construct with a buffer of {@link #DEFAULT_BUFFER_SIZE} characters.
+	 *
+	 * @param output
+	 *            output to print to
+	 */
+	public OutputWriter(Output output) {
+		this(output, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Construct with specified buffer size.
+	 *
+	 * @param output
+	 *            output to print to
+	 * @param bufferSize
+	 *            number of characters buffered before printing
+	 */
+	public OutputWriter(Output output, int bufferSize) {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("bufferSize must be > 0");
+		}
+		this.output = output;
+		this.buffer = new char[bufferSize];
+	}
+
+	@Override
+	public void write(int c) {
+		if (count == buffer.length) {
+			flushBuffer();
+		}
+		buffer[count++] = (char) c;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) {
+		if (len >= buffer.length) {
+			// larger than the buffer, print directly
+			flushBuffer();
+			output.print(new String(cbuf, off, len));
+			return;
+		}
+		if (len > buffer.length - count) {
+			flushBuffer();
+		}
+		System.arraycopy(cbuf, off, buffer, count, len);
+		count += len;
+	}
+
+	@Override
+	public void write(String str, int off, int len) {
+		if (len >= buffer.length) {
+			flushBuffer();
+			output.print(str.substring(off, off + len));
+			return;
+		}
+		if (len > buffer.length - count) {
+			flushBuffer();
+		}
+		str.getChars(off, off + len, buffer, count);
+		count += len;
+	}
+
+	private void flushBuffer() {
+		if (count > 0) {
+			output.print(new String(buffer, 0, count));
+			count = 0;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flushBuffer();
+	}
+
+}
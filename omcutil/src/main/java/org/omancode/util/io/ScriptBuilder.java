@@ -0,0 +1,277 @@
+package org.omancode.util.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.omancode.util.FunctionCallBuilder;
+
+/**
+ * Collects commands, one per line, into a script that is streamed to a
+ * {@link Writer} or {@link Output} in chunks, so an interpreter can be sent
+ * one large batch rather than one command at a time:
+ *
+ * <pre>
+ * ScriptBuilder script = new ScriptBuilder(writer);
+ * FunctionCallBuilder call = new FunctionCallBuilder();
+ * for (...) {
+ * 	script.add(call.start(&quot;func&quot;).arg(i).argQuoted(name).end());
+ * }
+ * script.flush();
+ * </pre>
+ *
+ * Commands are held until at least the chunk size has been collected, then
+ * written and the destination flushed. Chunks always end on a command
+ * boundary, so the destination never sees part of a command. The number of
+ * commands and their size in characters and UTF-8 bytes are counted as they
+ * are added. Not thread-safe.
+ *
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class ScriptBuilder implements Flushable, Closeable {
+
+	/**
+	 * Default number of characters collected before writing a chunk.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+	private static final char LINE_SEPARATOR = '\n';
+
+	private final Writer out;
+
+	private final int chunkSize;
+
+	/**
+	 * Commands not yet written.
+	 */
+	private final StringBuilder pending;
+
+	/**
+	 * Reused to copy {@link #pending} to {@link #out} without creating a
+	 * string.
+	 */
+	private char[] chars;
+
+	private long commandCount = 0;
+
+	private long charCount = 0;
+
+	private long byteCount = 0;
+
+	private long chunkCount = 0;
+
+	/**
+	 * Construct with a chunk size of {@link #DEFAULT_CHUNK_SIZE}.
+	 *
+	 * @param out
+	 *            destination
+	 */
+	public ScriptBuilder(Writer out) {
+		this(out, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Construct with a specified chunk size.
+	 *
+	 * @param out
+	 *            destination
+	 * @param chunkSize
+	 *            number of characters collected before writing a chunk
+	 */
+	public ScriptBuilder(Writer out, int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be > 0");
+		}
+		this.out = out;
+		this.chunkSize = chunkSize;
+		this.pending = new StringBuilder(chunkSize + 256);
+		this.chars = new char[chunkSize + 256];
+	}
+
+	/**
+	 * Construct a script printed to an {@link Output}, one
+	 * {@link Output#print(String)} per chunk.
+	 *
+	 * @param output
+	 *            destination
+	 * @param chunkSize
+	 *            number of characters collected before printing a chunk
+	 */
+	public ScriptBuilder(Output output, int chunkSize) {
+		this(new OutputWriter(output, chunkSize), chunkSize);
+	}
+
+	/**
+	 * Construct a script printed to an {@link Output} with a chunk size of
+	 * {@link #DEFAULT_CHUNK_SIZE}.
+	 *
+	 * @param output
+	 *            destination
+	 */
+	public ScriptBuilder(Output output) {
+		this(output, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Add a command.
+	 *
+	 * @param command
+	 *            command, without a trailing line separator
+	 * @return this script
+	 * @throws IOException
+	 *             if problem writing a full chunk
+	 */
+	public ScriptBuilder add(CharSequence command) throws IOException {
+		int start = pending.length();
+		pending.append(command).append(LINE_SEPARATOR);
+		added(start);
+		return this;
+	}
+
+	/**
+	 * Add the call last built in {@code call}'s own buffer, ie: by
+	 * {@link FunctionCallBuilder#start(CharSequence)}.
+	 *
+	 * @param call
+	 *            finished call
+	 * @return this script
+	 * @throws IOException
+	 *             if problem writing a full chunk
+	 */
+	public ScriptBuilder add(FunctionCallBuilder call) throws IOException {
+		int start = pending.length();
+		call.appendTo(pending);
+		pending.append(LINE_SEPARATOR);
+		added(start);
+		return this;
+	}
+
+	/**
+	 * Count the command just appended to {@link #pending} from
+	 * {@code start}, and write a chunk if there is enough.
+	 */
+	private void added(int start) throws IOException {
+		commandCount++;
+		charCount += pending.length() - start;
+		byteCount += utf8Length(pending, start, pending.length());
+		if (pending.length() >= chunkSize) {
+			writeChunk();
+		}
+	}
+
+	/**
+	 * Number of bytes {@code str[from, to)} takes encoded as UTF-8.
+	 */
+	private static long utf8Length(CharSequence str, int from, int to) {
+		long bytes = 0;
+		for (int i = from; i < to; i++) {
+			char c = str.charAt(i);
+			if (c < 0x80) {
+				bytes += 1;
+			} else if (c < 0x800) {
+				bytes += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < to
+					&& Character.isLowSurrogate(str.charAt(i + 1))) {
+				bytes += 4;
+				i++;
+			} else {
+				bytes += 3;
+			}
+		}
+		return bytes;
+	}
+
+	private void writeChunk() throws IOException {
+		int length = pending.length();
+		if (length == 0) {
+			return;
+		}
+		if (chars.length < length) {
+			chars = new char[length];
+		}
+		pending.getChars(0, length, chars, 0);
+		pending.setLength(0);
+		out.write(chars, 0, length);
+		out.flush();
+		chunkCount++;
+	}
+
+	/**
+	 * Write any commands not yet written and flush the destination.
+	 *
+	 * @throws IOException
+	 *             if problem writing
+	 */
+	@Override
+	public void flush() throws IOException {
+		writeChunk();
+		out.flush();
+	}
+
+	/**
+	 * Flush and close the destination.
+	 *
+	 * @throws IOException
+	 *             if problem writing
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+		out.close();
+	}
+
+	/**
+	 * Number of commands added.
+	 *
+	 * @return command count
+	 */
+	public long getCommandCount() {
+		return commandCount;
+	}
+
+	/**
+	 * Size of the commands added, including line separators, in
+	 * characters.
+	 *
+	 * @return character count
+	 */
+	public long getCharCount() {
+		return charCount;
+	}
+
+	/**
+	 * Size of the commands added, including line separators, in bytes when
+	 * encoded as UTF-8.
+	 *
+	 * @return byte count
+	 */
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	/**
+	 * Number of chunks written so far.
+	 *
+	 * @return chunk count
+	 */
+	public long getChunkCount() {
+		return chunkCount;
+	}
+
+	/**
+	 * Number of characters added but not yet written.
+	 *
+	 * @return pending character count
+	 */
+	public int getPendingCharCount() {
+		return pending.length();
+	}
+
+	@Override
+	public String toString() {
+		return commandCount + " commands, " + byteCount + " bytes, "
+				+ chunkCount + " chunks written";
+	}
+}
@@ -0,0 +1,63 @@
+package org.omancode.util.swing;
+
+import javax.swing.table.AbstractTableModel;
+
+import org.omancode.util.ColumnTable;
+
+/**
+ * Display a {@link ColumnTable} in a {@code JTable}. Cells are read from the
+ * table's column arrays as they are painted, so only visible cells are ever
+ * boxed. Read only.
+ * 
+ * @author Oliver Mannion
+ * @version $Revision$
+ */
+public class ColumnTableModel extends AbstractTableModel {
+
+	private static final long serialVersionUID = -3107426785530120941L;
+
+	private final ColumnTable table;
+
+	/**
+	 * Construct a {@link ColumnTableModel} over a table.
+	 * 
+	 * @param table
+	 *            table to display
+	 */
+	public ColumnTableModel(ColumnTable table) {
+		this.table = table;
+	}
+
+	@Override
+	public Class<?> getColumnClass(int columnIndex) {
+		Class<?> type = table.getColumn(columnIndex).getType();
+		if (type == double.class) {
+			return Double.class;
+		} else if (type == int.class) {
+			return Integer.class;
+		} else if (type == long.class) {
+			return Long.class;
+		}
+		return type;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return table.getColumnCount();
+	}
+
+	@Override
+	public String getColumnName(int columnIndex) {
+		return table.getColumn(columnIndex).getName();
+	}
+
+	@Override
+	public int getRowCount() {
+		return table.getRowCount();
+	}
+
+	@Override
+	public Object getValueAt(int row, int col) {
+		return table.getColumn(col).get(row);
+	}
+}
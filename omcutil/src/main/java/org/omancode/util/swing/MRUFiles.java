@@ -13,6 +13,7 @@ import javax.swing.event.ListDataListener;
 
 import org.apache.commons.lang.StringUtils;
 import org.omancode.util.MRUSet;
+import org.omancode.util.StringPool;
 
 /**
  * Provide a menu of MRU files and loading/saving the file list from
@@ -150,7 +151,8 @@ public class MRUFiles implements ListDataListener {
 
 		public FileAction(File file) throws IOException {
 			this.file = file;
-			this.filePath = file.getCanonicalPath();
+			this.filePath = StringPool.shared().intern(
+					file.getCanonicalPath());
 
 			putValue(Action.NAME, filePath);
 			putValue(Action.SHORT_DESCRIPTION, filePath);